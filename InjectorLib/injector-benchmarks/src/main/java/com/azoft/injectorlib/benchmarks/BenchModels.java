@@ -0,0 +1,366 @@
+package com.azoft.injectorlib.benchmarks;
+
+import android.app.Fragment;
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+
+import com.azoft.injectorlib.InjectSavedState;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * Model hierarchies for benchmarks. Every family has 4 levels with the same field set, FamilyN extends Family(N-1), so depth
+ * and field count grow together. Values are set by {@link #fill(Object, int)} from declared field types.
+ */
+@SuppressWarnings("unused")
+final class BenchModels {
+
+    static final int MAX_DEPTH = 4;
+
+    private BenchModels() {
+    }
+
+    static Class<?> getModelClass(final String family, final int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth should be from 1 to " + MAX_DEPTH);
+        }
+
+        try {
+            return Class.forName(BenchModels.class.getName() + '$' + family + (depth - 1));
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown model family " + family, e);
+        }
+    }
+
+    /**
+     * Sets every InjectSavedState-field of the model and its superclasses to a value of the declared type.
+     */
+    static void fill(final Object model, final int seed) throws IllegalAccessException {
+        for (Class<?> clazz = model.getClass(); null != clazz; clazz = clazz.getSuperclass()) {
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (field.isAnnotationPresent(InjectSavedState.class)) {
+                    field.setAccessible(true);
+                    field.set(model, valueOf(field, seed));
+                }
+            }
+        }
+    }
+
+    private static Object valueOf(final Field field, final int seed) {
+        final Class<?> type = field.getType();
+
+        if (int.class.equals(type)) {
+            return seed;
+        } else if (long.class.equals(type)) {
+            return seed * 31L;
+        } else if (double.class.equals(type)) {
+            return seed / 3d;
+        } else if (boolean.class.equals(type)) {
+            return 0 == seed % 2;
+        } else if (float.class.equals(type)) {
+            return seed / 7f;
+        } else if (short.class.equals(type)) {
+            return (short) seed;
+        } else if (Integer.class.equals(type)) {
+            return seed + 1;
+        } else if (Long.class.equals(type)) {
+            return seed + 2L;
+        } else if (String.class.equals(type)) {
+            return "value" + seed;
+        } else if (ArrayList.class.equals(type)) {
+            final Object elementType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+
+            if (String.class.equals(elementType)) {
+                return BenchValues.stringList(seed, 16);
+            } else if (Long.class.equals(elementType)) {
+                return BenchValues.longList(seed, 32);
+            }
+            return BenchValues.parcelableList(seed, 16);
+        } else if (HashMap.class.equals(type)) {
+            return BenchValues.map(seed, 16);
+        } else if (LinkedHashSet.class.equals(type)) {
+            return BenchValues.linkedHashSet(seed, 16);
+        } else if (SparseIntArray.class.equals(type)) {
+            return BenchValues.sparseIntArray(seed, 32);
+        } else if (SparseBooleanArray.class.equals(type)) {
+            return BenchValues.sparseBooleanArray(seed, 32);
+        } else if (SparseLongArray.class.equals(type)) {
+            return BenchValues.sparseLongArray(seed, 16);
+        } else if (LongSparseArray.class.equals(type)) {
+            return BenchValues.longSparseArray(seed, 16);
+        } else if (BenchParcelable.class.equals(type)) {
+            return new BenchParcelable(seed);
+        } else if (BenchSerializable.class.equals(type)) {
+            return new BenchSerializable(seed, 16);
+        } else if (BenchPojo.class.equals(type)) {
+            return new BenchPojo(seed, 8);
+        } else if (BenchValueType.class.equals(type)) {
+            return new BenchValueType(seed, 8);
+        }
+
+        throw new IllegalArgumentException("No bench value for " + field);
+    }
+
+
+    static class Primitives0 {
+
+        @InjectSavedState int mInt0;
+        @InjectSavedState long mLong0;
+        @InjectSavedState double mDouble0;
+        @InjectSavedState boolean mBoolean0;
+        @InjectSavedState float mFloat0;
+        @InjectSavedState short mShort0;
+        @InjectSavedState Integer mBoxedInt0;
+        @InjectSavedState Long mBoxedLong0;
+    }
+
+    static class Primitives1 extends Primitives0 {
+
+        @InjectSavedState int mInt1;
+        @InjectSavedState long mLong1;
+        @InjectSavedState double mDouble1;
+        @InjectSavedState boolean mBoolean1;
+        @InjectSavedState float mFloat1;
+        @InjectSavedState short mShort1;
+        @InjectSavedState Integer mBoxedInt1;
+        @InjectSavedState Long mBoxedLong1;
+    }
+
+    static class Primitives2 extends Primitives1 {
+
+        @InjectSavedState int mInt2;
+        @InjectSavedState long mLong2;
+        @InjectSavedState double mDouble2;
+        @InjectSavedState boolean mBoolean2;
+        @InjectSavedState float mFloat2;
+        @InjectSavedState short mShort2;
+        @InjectSavedState Integer mBoxedInt2;
+        @InjectSavedState Long mBoxedLong2;
+    }
+
+    static class Primitives3 extends Primitives2 {
+
+        @InjectSavedState int mInt3;
+        @InjectSavedState long mLong3;
+        @InjectSavedState double mDouble3;
+        @InjectSavedState boolean mBoolean3;
+        @InjectSavedState float mFloat3;
+        @InjectSavedState short mShort3;
+        @InjectSavedState Integer mBoxedInt3;
+        @InjectSavedState Long mBoxedLong3;
+    }
+
+    static class Collections0 {
+
+        @InjectSavedState HashMap<String, Integer> mMap0;
+        @InjectSavedState ArrayList<Long> mIds0;
+        @InjectSavedState LinkedHashSet<String> mNames0;
+        @InjectSavedState SparseIntArray mPositions0;
+        @InjectSavedState SparseBooleanArray mChecked0;
+        @InjectSavedState SparseLongArray mTimes0;
+        @InjectSavedState LongSparseArray<String> mTitles0;
+        @InjectSavedState HashMap<String, Integer> mOtherMap0;
+    }
+
+    static class Collections1 extends Collections0 {
+
+        @InjectSavedState HashMap<String, Integer> mMap1;
+        @InjectSavedState ArrayList<Long> mIds1;
+        @InjectSavedState LinkedHashSet<String> mNames1;
+        @InjectSavedState SparseIntArray mPositions1;
+        @InjectSavedState SparseBooleanArray mChecked1;
+        @InjectSavedState SparseLongArray mTimes1;
+        @InjectSavedState LongSparseArray<String> mTitles1;
+        @InjectSavedState HashMap<String, Integer> mOtherMap1;
+    }
+
+    static class Collections2 extends Collections1 {
+
+        @InjectSavedState HashMap<String, Integer> mMap2;
+        @InjectSavedState ArrayList<Long> mIds2;
+        @InjectSavedState LinkedHashSet<String> mNames2;
+        @InjectSavedState SparseIntArray mPositions2;
+        @InjectSavedState SparseBooleanArray mChecked2;
+        @InjectSavedState SparseLongArray mTimes2;
+        @InjectSavedState LongSparseArray<String> mTitles2;
+        @InjectSavedState HashMap<String, Integer> mOtherMap2;
+    }
+
+    static class Collections3 extends Collections2 {
+
+        @InjectSavedState HashMap<String, Integer> mMap3;
+        @InjectSavedState ArrayList<Long> mIds3;
+        @InjectSavedState LinkedHashSet<String> mNames3;
+        @InjectSavedState SparseIntArray mPositions3;
+        @InjectSavedState SparseBooleanArray mChecked3;
+        @InjectSavedState SparseLongArray mTimes3;
+        @InjectSavedState LongSparseArray<String> mTitles3;
+        @InjectSavedState HashMap<String, Integer> mOtherMap3;
+    }
+
+    static class Pojos0 {
+
+        @InjectSavedState BenchPojo mItem0;
+        @InjectSavedState BenchPojo mOtherItem0;
+        @InjectSavedState BenchPojo mHeader0;
+        @InjectSavedState BenchPojo mFooter0;
+    }
+
+    static class Pojos1 extends Pojos0 {
+
+        @InjectSavedState BenchPojo mItem1;
+        @InjectSavedState BenchPojo mOtherItem1;
+        @InjectSavedState BenchPojo mHeader1;
+        @InjectSavedState BenchPojo mFooter1;
+    }
+
+    static class Pojos2 extends Pojos1 {
+
+        @InjectSavedState BenchPojo mItem2;
+        @InjectSavedState BenchPojo mOtherItem2;
+        @InjectSavedState BenchPojo mHeader2;
+        @InjectSavedState BenchPojo mFooter2;
+    }
+
+    static class Pojos3 extends Pojos2 {
+
+        @InjectSavedState BenchPojo mItem3;
+        @InjectSavedState BenchPojo mOtherItem3;
+        @InjectSavedState BenchPojo mHeader3;
+        @InjectSavedState BenchPojo mFooter3;
+    }
+
+    static class ValueTypes0 {
+
+        @InjectSavedState BenchValueType mItem0;
+        @InjectSavedState BenchValueType mOtherItem0;
+        @InjectSavedState BenchValueType mHeader0;
+        @InjectSavedState BenchValueType mFooter0;
+    }
+
+    static class ValueTypes1 extends ValueTypes0 {
+
+        @InjectSavedState BenchValueType mItem1;
+        @InjectSavedState BenchValueType mOtherItem1;
+        @InjectSavedState BenchValueType mHeader1;
+        @InjectSavedState BenchValueType mFooter1;
+    }
+
+    static class ValueTypes2 extends ValueTypes1 {
+
+        @InjectSavedState BenchValueType mItem2;
+        @InjectSavedState BenchValueType mOtherItem2;
+        @InjectSavedState BenchValueType mHeader2;
+        @InjectSavedState BenchValueType mFooter2;
+    }
+
+    static class ValueTypes3 extends ValueTypes2 {
+
+        @InjectSavedState BenchValueType mItem3;
+        @InjectSavedState BenchValueType mOtherItem3;
+        @InjectSavedState BenchValueType mHeader3;
+        @InjectSavedState BenchValueType mFooter3;
+    }
+
+    static class Mixed0 {
+
+        @InjectSavedState int mInt0;
+        @InjectSavedState double mDouble0;
+        @InjectSavedState String mString0;
+        @InjectSavedState ArrayList<String> mStringList0;
+        @InjectSavedState BenchParcelable mParcelable0;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList0;
+        @InjectSavedState BenchSerializable mSerializable0;
+        @InjectSavedState HashMap<String, Integer> mMap0;
+    }
+
+    static class Mixed1 extends Mixed0 {
+
+        @InjectSavedState int mInt1;
+        @InjectSavedState double mDouble1;
+        @InjectSavedState String mString1;
+        @InjectSavedState ArrayList<String> mStringList1;
+        @InjectSavedState BenchParcelable mParcelable1;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList1;
+        @InjectSavedState BenchSerializable mSerializable1;
+        @InjectSavedState HashMap<String, Integer> mMap1;
+    }
+
+    static class Mixed2 extends Mixed1 {
+
+        @InjectSavedState int mInt2;
+        @InjectSavedState double mDouble2;
+        @InjectSavedState String mString2;
+        @InjectSavedState ArrayList<String> mStringList2;
+        @InjectSavedState BenchParcelable mParcelable2;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList2;
+        @InjectSavedState BenchSerializable mSerializable2;
+        @InjectSavedState HashMap<String, Integer> mMap2;
+    }
+
+    static class Mixed3 extends Mixed2 {
+
+        @InjectSavedState int mInt3;
+        @InjectSavedState double mDouble3;
+        @InjectSavedState String mString3;
+        @InjectSavedState ArrayList<String> mStringList3;
+        @InjectSavedState BenchParcelable mParcelable3;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList3;
+        @InjectSavedState BenchSerializable mSerializable3;
+        @InjectSavedState HashMap<String, Integer> mMap3;
+    }
+
+    static class FragmentMixed0 extends Fragment {
+
+        @InjectSavedState int mInt0;
+        @InjectSavedState double mDouble0;
+        @InjectSavedState String mString0;
+        @InjectSavedState ArrayList<String> mStringList0;
+        @InjectSavedState BenchParcelable mParcelable0;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList0;
+        @InjectSavedState BenchSerializable mSerializable0;
+        @InjectSavedState HashMap<String, Integer> mMap0;
+    }
+
+    static class FragmentMixed1 extends FragmentMixed0 {
+
+        @InjectSavedState int mInt1;
+        @InjectSavedState double mDouble1;
+        @InjectSavedState String mString1;
+        @InjectSavedState ArrayList<String> mStringList1;
+        @InjectSavedState BenchParcelable mParcelable1;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList1;
+        @InjectSavedState BenchSerializable mSerializable1;
+        @InjectSavedState HashMap<String, Integer> mMap1;
+    }
+
+    static class FragmentMixed2 extends FragmentMixed1 {
+
+        @InjectSavedState int mInt2;
+        @InjectSavedState double mDouble2;
+        @InjectSavedState String mString2;
+        @InjectSavedState ArrayList<String> mStringList2;
+        @InjectSavedState BenchParcelable mParcelable2;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList2;
+        @InjectSavedState BenchSerializable mSerializable2;
+        @InjectSavedState HashMap<String, Integer> mMap2;
+    }
+
+    static class FragmentMixed3 extends FragmentMixed2 {
+
+        @InjectSavedState int mInt3;
+        @InjectSavedState double mDouble3;
+        @InjectSavedState String mString3;
+        @InjectSavedState ArrayList<String> mStringList3;
+        @InjectSavedState BenchParcelable mParcelable3;
+        @InjectSavedState ArrayList<BenchParcelable> mParcelableList3;
+        @InjectSavedState BenchSerializable mSerializable3;
+        @InjectSavedState HashMap<String, Integer> mMap3;
+    }
+}
@@ -0,0 +1,44 @@
+package com.azoft.injectorlib.benchmarks;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+final class BenchParcelable implements Parcelable {
+
+    private final int mId;
+    private final String mName;
+
+    BenchParcelable(final int id) {
+        mId = id;
+        mName = "parcelable" + id;
+    }
+
+    private BenchParcelable(final Parcel source) {
+        mId = source.readInt();
+        mName = source.readString();
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(final Parcel dest, final int flags) {
+        dest.writeInt(mId);
+        dest.writeString(mName);
+    }
+
+    public static final Parcelable.Creator<BenchParcelable> CREATOR = new Parcelable.Creator<BenchParcelable>() {
+
+        @Override
+        public BenchParcelable createFromParcel(final Parcel source) {
+            return new BenchParcelable(source);
+        }
+
+        @Override
+        public BenchParcelable[] newArray(final int size) {
+            return new BenchParcelable[size];
+        }
+    };
+}
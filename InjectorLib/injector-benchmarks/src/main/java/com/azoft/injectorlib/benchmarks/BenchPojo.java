@@ -0,0 +1,30 @@
+package com.azoft.injectorlib.benchmarks;
+
+import java.io.Serializable;
+
+/**
+ * Plain Serializable class with the same fields as BenchValueType.
+ */
+final class BenchPojo implements Serializable {
+
+    private static final long serialVersionUID = 6034417528461096715L;
+
+    private int mId;
+    private long mCreated;
+    private boolean mRead;
+    private String mTitle;
+    private String[] mTags;
+    private int[] mCounts;
+
+    BenchPojo() {
+    }
+
+    BenchPojo(final int id, final int itemCount) {
+        mId = id;
+        mCreated = 1000L * id;
+        mRead = 0 == id % 2;
+        mTitle = "title" + id;
+        mTags = BenchValues.stringArray(id, itemCount);
+        mCounts = BenchValues.intArray(id, itemCount);
+    }
+}
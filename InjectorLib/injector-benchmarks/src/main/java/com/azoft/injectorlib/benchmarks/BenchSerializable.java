@@ -0,0 +1,19 @@
+package com.azoft.injectorlib.benchmarks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+final class BenchSerializable implements Serializable {
+
+    private static final long serialVersionUID = 2981640213396717712L;
+
+    private final int mId;
+    private final String mName;
+    private final ArrayList<String> mItems;
+
+    BenchSerializable(final int id, final int itemCount) {
+        mId = id;
+        mName = "serializable" + id;
+        mItems = BenchValues.stringList(id, itemCount);
+    }
+}
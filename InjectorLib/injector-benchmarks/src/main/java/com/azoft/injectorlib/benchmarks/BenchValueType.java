@@ -0,0 +1,29 @@
+package com.azoft.injectorlib.benchmarks;
+
+import com.azoft.injectorlib.InjectValueType;
+
+/**
+ * Plain class saved field by field, compare with BenchPojo.
+ */
+@InjectValueType
+final class BenchValueType {
+
+    private int mId;
+    private long mCreated;
+    private boolean mRead;
+    private String mTitle;
+    private String[] mTags;
+    private int[] mCounts;
+
+    BenchValueType() {
+    }
+
+    BenchValueType(final int id, final int itemCount) {
+        mId = id;
+        mCreated = 1000L * id;
+        mRead = 0 == id % 2;
+        mTitle = "title" + id;
+        mTags = BenchValues.stringArray(id, itemCount);
+        mCounts = BenchValues.intArray(id, itemCount);
+    }
+}
@@ -0,0 +1,96 @@
+package com.azoft.injectorlib.benchmarks;
+
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+final class BenchValues {
+
+    private BenchValues() {
+    }
+
+    static ArrayList<String> stringList(final int seed, final int size) {
+        final ArrayList<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add("item" + (seed + i));
+        }
+        return list;
+    }
+
+    static String[] stringArray(final int seed, final int size) {
+        return stringList(seed, size).toArray(new String[size]);
+    }
+
+    static int[] intArray(final int seed, final int size) {
+        final int[] array = new int[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = seed + i;
+        }
+        return array;
+    }
+
+    static ArrayList<BenchParcelable> parcelableList(final int seed, final int size) {
+        final ArrayList<BenchParcelable> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new BenchParcelable(seed + i));
+        }
+        return list;
+    }
+
+    static HashMap<String, Integer> map(final int seed, final int size) {
+        final HashMap<String, Integer> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put("key" + (seed + i), seed + i);
+        }
+        return map;
+    }
+
+    static ArrayList<Long> longList(final int seed, final int size) {
+        final ArrayList<Long> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((long) seed * 1000 + i);
+        }
+        return list;
+    }
+
+    static LinkedHashSet<String> linkedHashSet(final int seed, final int size) {
+        return new LinkedHashSet<>(stringList(seed, size));
+    }
+
+    static SparseIntArray sparseIntArray(final int seed, final int size) {
+        final SparseIntArray array = new SparseIntArray(size);
+        for (int i = 0; i < size; i++) {
+            array.put(i * 3, seed + i);
+        }
+        return array;
+    }
+
+    static SparseBooleanArray sparseBooleanArray(final int seed, final int size) {
+        final SparseBooleanArray array = new SparseBooleanArray(size);
+        for (int i = 0; i < size; i++) {
+            array.put(i * 3, 0 == (seed + i) % 2);
+        }
+        return array;
+    }
+
+    static SparseLongArray sparseLongArray(final int seed, final int size) {
+        final SparseLongArray array = new SparseLongArray(size);
+        for (int i = 0; i < size; i++) {
+            array.put(i * 3, (long) seed * 1000 + i);
+        }
+        return array;
+    }
+
+    static LongSparseArray<String> longSparseArray(final int seed, final int size) {
+        final LongSparseArray<String> array = new LongSparseArray<>(size);
+        for (int i = 0; i < size; i++) {
+            array.put((long) seed * 1000 + i, "title" + (seed + i));
+        }
+        return array;
+    }
+}
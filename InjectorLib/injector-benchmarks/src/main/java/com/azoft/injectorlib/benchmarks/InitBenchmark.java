@@ -0,0 +1,54 @@
+package com.azoft.injectorlib.benchmarks;
+
+import com.azoft.injectorlib.Injector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injector.init with empty metadata cache (first screen creation) and with filled cache (next instances of the same class).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitBenchmark {
+
+    @Param({"Primitives", "Collections", "Pojos", "ValueTypes", "Mixed", "FragmentMixed"})
+    public String model;
+
+    @Param({"1", "2", "4"})
+    public int depth;
+
+    private Class<?> mModelClass;
+
+    @Setup
+    public void setUp() {
+        mModelClass = BenchModels.getModelClass(model, depth);
+    }
+
+    @Benchmark
+    public Injector initCold() {
+        Injector.clearCache();
+
+        return Injector.init(mModelClass);
+    }
+
+    @Benchmark
+    public Injector initWarm() {
+        return Injector.init(mModelClass);
+    }
+}
@@ -0,0 +1,93 @@
+package com.azoft.injectorlib.benchmarks;
+
+import android.app.Fragment;
+import android.os.Bundle;
+
+import com.azoft.injectorlib.Injector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injector.applyOnSaveInstanceState and applyRestoreInstanceState on a model with filled fields.
+ * Stand-in Bundle does not parcel values, so only Injector's own work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveRestoreBenchmark {
+
+    @Param({"Primitives", "Collections", "Pojos", "ValueTypes", "Mixed", "FragmentMixed"})
+    public String model;
+
+    @Param({"1", "2", "4"})
+    public int depth;
+
+    @Param({"false", "true"})
+    public boolean flat;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private Injector mInjector;
+    private Object mModel;
+    private Object mRestoredModel;
+    private Bundle mSavedState;
+
+    @Setup
+    public void setUp() throws Exception {
+        final Class<?> modelClass = BenchModels.getModelClass(model, depth);
+
+        Injector.setFlatState(flat);
+        Injector.setCompactKeys(compact);
+
+        mInjector = Injector.init(modelClass);
+        mModel = createModel(modelClass);
+        mRestoredModel = createModel(modelClass);
+
+        BenchModels.fill(mModel, 42);
+
+        mSavedState = new Bundle();
+        mInjector.applyOnSaveInstanceState(mModel, mSavedState);
+    }
+
+    @Benchmark
+    public Bundle save() {
+        final Bundle outState = new Bundle();
+
+        mInjector.applyOnSaveInstanceState(mModel, outState);
+
+        return outState;
+    }
+
+    @Benchmark
+    public Object restore() {
+        mInjector.applyRestoreInstanceState(mRestoredModel, mSavedState);
+
+        return mRestoredModel;
+    }
+
+    private static Object createModel(final Class<?> modelClass) throws Exception {
+        final Object model = modelClass.newInstance();
+
+        if (model instanceof Fragment) {
+            ((Fragment) model).setTagAndId("bench_fragment", 0x7f0a0001);
+        }
+
+        return model;
+    }
+}
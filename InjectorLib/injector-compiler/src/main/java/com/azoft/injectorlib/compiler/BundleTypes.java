@@ -0,0 +1,266 @@
+package com.azoft.injectorlib.compiler;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Maps declared field type to Bundle put/get methods in the same order as Injector.SavedStateProcessor checks values at runtime.
+ */
+final class BundleTypes {
+
+    /**
+     * Declared types saved by runtime CompactCodecs, written as erased type with erased type arguments.
+     */
+    private static final Set<String> COMPACT_TYPES = new HashSet<>(Arrays.asList(
+            "java.util.HashMap<java.lang.String,java.lang.Integer>",
+            "java.util.ArrayList<java.lang.Long>",
+            "java.util.LinkedHashSet<java.lang.String>",
+            "android.util.SparseIntArray",
+            "android.util.SparseBooleanArray",
+            "android.util.SparseLongArray",
+            "android.util.LongSparseArray<java.lang.String>",
+            "android.util.LongSparseArray<java.lang.Integer>",
+            "android.util.LongSparseArray<java.lang.Long>"));
+
+    private final Types mTypes;
+
+    private final TypeMirror mString;
+    private final TypeMirror mCharSequence;
+    private final TypeMirror mInteger;
+    private final TypeMirror mBundle;
+    private final TypeMirror mParcelable;
+    private final TypeMirror mSerializable;
+    private final TypeMirror mArrayList;
+    private final TypeMirror mSparseArray;
+
+    BundleTypes(final Elements elements, final Types types) {
+        mTypes = types;
+
+        mString = erasure(elements, "java.lang.String");
+        mCharSequence = erasure(elements, "java.lang.CharSequence");
+        mInteger = erasure(elements, "java.lang.Integer");
+        mBundle = erasure(elements, "android.os.Bundle");
+        mParcelable = erasure(elements, "android.os.Parcelable");
+        mSerializable = erasure(elements, "java.io.Serializable");
+        mArrayList = erasure(elements, "java.util.ArrayList");
+        mSparseArray = erasure(elements, "android.util.SparseArray");
+    }
+
+    /**
+     * @return Bundle methods to use or null if type can't be resolved at compile time
+     */
+    BundleType resolve(final TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            final String name = primitiveName(type.getKind());
+
+            return new BundleType("put" + name, "get" + name, type.toString(), true);
+        }
+
+        final String erasedName = getErasedName(type);
+
+        if (TypeKind.ARRAY == type.getKind()) {
+            final TypeMirror componentType = ((ArrayType) type).getComponentType();
+
+            if (componentType.getKind().isPrimitive()) {
+                return new BundleType("put" + primitiveName(componentType.getKind()) + "Array", null, erasedName, false);
+            } else if (isSame(componentType, mString)) {
+                return new BundleType("putStringArray", null, erasedName, false);
+            } else if (isAssignable(componentType, mCharSequence)) {
+                return new BundleType("putCharSequenceArray", null, erasedName, false);
+            } else if (isAssignable(componentType, mParcelable)) {
+                return new BundleType("putParcelableArray", null, erasedName, false);
+            }
+
+            return new BundleType("putSerializable", null, erasedName, false);
+        }
+
+        if (TypeKind.DECLARED != type.getKind() || isAbstract((DeclaredType) type)) {
+            // runtime picks Bundle method of interface, abstract and Object fields by class of the value
+            return null;
+        }
+
+        try {
+            final String unboxedName = primitiveName(mTypes.unboxedType(type).getKind());
+
+            return new BundleType("put" + unboxedName, null, erasedName, false);
+        } catch (final IllegalArgumentException ignored) {
+            // not a boxed primitive
+        }
+
+        if (isSame(type, mString)) {
+            return new BundleType("putString", null, erasedName, false);
+        } else if (isAssignable(type, mCharSequence)) {
+            return new BundleType("putCharSequence", null, erasedName, false);
+        } else if (isSame(type, mBundle)) {
+            return new BundleType("putBundle", null, erasedName, false);
+        } else if (isAssignable(type, mParcelable)) {
+            return new BundleType("putParcelable", null, erasedName, false);
+        } else if (isSame(type, mArrayList)) {
+            final TypeMirror argument = getSingleTypeArgument((DeclaredType) type);
+
+            if (null != argument) {
+                if (isSame(argument, mString)) {
+                    return new BundleType("putStringArrayList", null, erasedName, false);
+                } else if (isAssignable(argument, mCharSequence)) {
+                    return new BundleType("putCharSequenceArrayList", null, erasedName, false);
+                } else if (isSame(argument, mInteger)) {
+                    return new BundleType("putIntegerArrayList", null, erasedName, false);
+                } else if (isAssignable(argument, mParcelable)) {
+                    return new BundleType("putParcelableArrayList", null, erasedName, false);
+                }
+            }
+        } else if (isSame(type, mSparseArray)) {
+            final TypeMirror argument = getSingleTypeArgument((DeclaredType) type);
+
+            if (null != argument && isAssignable(argument, mParcelable)) {
+                return new BundleType("putSparseParcelableArray", null, erasedName, false);
+            }
+
+            return null;
+        }
+
+        if (isAssignable(type, mSerializable)) {
+            return new BundleType("putSerializable", null, erasedName, false);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if type is saved by runtime compact codec that has no generated counterpart
+     */
+    boolean isCompact(final TypeMirror type) {
+        if (TypeKind.DECLARED != type.getKind()) {
+            return false;
+        }
+
+        final StringBuilder name = new StringBuilder(getErasedName(type));
+        final List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+
+        if (!arguments.isEmpty()) {
+            name.append('<');
+
+            for (int i = 0; i < arguments.size(); i++) {
+                if (0 != i) {
+                    name.append(',');
+                }
+
+                name.append(TypeKind.DECLARED == arguments.get(i).getKind() ? getErasedName(arguments.get(i)) : "?");
+            }
+
+            name.append('>');
+        }
+
+        return COMPACT_TYPES.contains(name.toString());
+    }
+
+    /**
+     * @return Bundle methods for value saved with InjectCodec
+     */
+    BundleType resolveCodec(final TypeMirror type) {
+        return new BundleType("putByteArray", null, type.getKind().isPrimitive() ? type.toString() : getErasedName(type),
+                type.getKind().isPrimitive());
+    }
+
+    String getErasedName(final TypeMirror type) {
+        return mTypes.erasure(type).toString();
+    }
+
+    private TypeMirror getSingleTypeArgument(final DeclaredType type) {
+        final List<? extends TypeMirror> arguments = type.getTypeArguments();
+
+        if (1 != arguments.size()) {
+            return null;
+        }
+
+        final TypeMirror argument = arguments.get(0);
+
+        if (TypeKind.WILDCARD == argument.getKind()) {
+            final WildcardType wildcardType = (WildcardType) argument;
+
+            return null == wildcardType.getSuperBound() ? wildcardType.getExtendsBound() : null;
+        } else if (TypeKind.DECLARED == argument.getKind()) {
+            return argument;
+        }
+
+        return null;
+    }
+
+    private static boolean isAbstract(final DeclaredType type) {
+        final Element element = type.asElement();
+
+        return ElementKind.INTERFACE == element.getKind() || element.getModifiers().contains(Modifier.ABSTRACT)
+                || ((TypeElement) element).getQualifiedName().contentEquals("java.lang.Object");
+    }
+
+    private boolean isSame(final TypeMirror type, final TypeMirror erasedType) {
+        return null != erasedType && mTypes.isSameType(mTypes.erasure(type), erasedType);
+    }
+
+    private boolean isAssignable(final TypeMirror type, final TypeMirror erasedType) {
+        return null != erasedType && mTypes.isAssignable(mTypes.erasure(type), erasedType);
+    }
+
+    private TypeMirror erasure(final Elements elements, final String className) {
+        final TypeElement typeElement = elements.getTypeElement(className);
+
+        return null == typeElement ? null : mTypes.erasure(typeElement.asType());
+    }
+
+    private static String primitiveName(final TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "Boolean";
+            case BYTE:
+                return "Byte";
+            case CHAR:
+                return "Char";
+            case SHORT:
+                return "Short";
+            case INT:
+                return "Int";
+            case LONG:
+                return "Long";
+            case FLOAT:
+                return "Float";
+            case DOUBLE:
+                return "Double";
+            default:
+                throw new IllegalArgumentException("Not a primitive type: " + kind);
+        }
+    }
+
+    static final class BundleType {
+
+        final String mPutMethod;
+        final String mGetMethod;
+        final String mTypeName;
+        final boolean mPrimitive;
+        /**
+         * Reflection may save such value encoded, so it is read with StateSavers.
+         */
+        final boolean mSerializable;
+
+        BundleType(final String putMethod, final String getMethod, final String typeName, final boolean primitive) {
+            mPutMethod = putMethod;
+            mGetMethod = getMethod;
+            mTypeName = typeName;
+            mPrimitive = primitive;
+            mSerializable = "putSerializable".equals(putMethod);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.azoft.injectorlib.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates {@code ClassName$$StateSaver} for every class with InjectSavedState-fields.
+ * Class is skipped (and Injector falls back to reflection) if any of its fields can't be accessed or typed at compile time,
+ * or uses a feature that is implemented only by reflection.
+ */
+public final class InjectSavedStateProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION_NAME = "com.azoft.injectorlib.InjectSavedState";
+    static final String INJECT_CODEC_NAME = "com.azoft.injectorlib.InjectCodec";
+    static final String INJECT_PACKED_NAME = "com.azoft.injectorlib.InjectPacked";
+    static final String INJECT_VALUE_TYPE_NAME = "com.azoft.injectorlib.InjectValueType";
+    static final String INJECT_VERSIONED_NAME = "com.azoft.injectorlib.InjectVersioned";
+    static final String STATE_SAVER_SUFFIX = "$$StateSaver";
+
+    private Elements mElements;
+    private Types mTypes;
+    private Messager mMessager;
+    private BundleTypes mBundleTypes;
+
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+        mMessager = processingEnv.getMessager();
+        mBundleTypes = new BundleTypes(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION_NAME);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final TypeElement annotationElement = mElements.getTypeElement(ANNOTATION_NAME);
+
+        if (null == annotationElement) {
+            return false;
+        }
+
+        final Map<TypeElement, List<VariableElement>> classFields = new LinkedHashMap<>();
+
+        for (final Element element : roundEnv.getElementsAnnotatedWith(annotationElement)) {
+            if (ElementKind.FIELD != element.getKind()) {
+                continue;
+            }
+
+            final TypeElement classElement = (TypeElement) element.getEnclosingElement();
+
+            List<VariableElement> fields = classFields.get(classElement);
+            if (null == fields) {
+                fields = new ArrayList<>();
+                classFields.put(classElement, fields);
+            }
+            fields.add((VariableElement) element);
+        }
+
+        for (final Map.Entry<TypeElement, List<VariableElement>> entry : classFields.entrySet()) {
+            processClass(entry.getKey(), entry.getValue());
+        }
+
+        return false;
+    }
+
+    private void processClass(final TypeElement classElement, final List<VariableElement> fields) {
+        if (!isAccessibleFromPackage(classElement)) {
+            note(classElement, "is private, reflection will be used");
+            return;
+        } else if (hasAnnotation(classElement, INJECT_PACKED_NAME)) {
+            note(classElement, "is packed, reflection will be used");
+            return;
+        }
+
+        final List<SaverField> saverFields = new ArrayList<>();
+        final String className = mElements.getBinaryName(classElement).toString();
+
+        for (final VariableElement field : fields) {
+            final Set<Modifier> modifiers = field.getModifiers();
+
+            if (modifiers.contains(Modifier.STATIC)) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR, "InjectSavedState-field may not be static.", field);
+                return;
+            } else if (modifiers.contains(Modifier.FINAL)) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR, "InjectSavedState-field may not be final.", field);
+                return;
+            } else if (modifiers.contains(Modifier.PRIVATE)) {
+                note(classElement, "has private field " + field.getSimpleName() + ", reflection will be used");
+                return;
+            }
+
+            if (Boolean.TRUE.equals(getAnnotationValue(field, "compress"))) {
+                note(classElement, "has compressed field " + field.getSimpleName() + ", reflection will be used");
+                return;
+            }
+
+            if (Boolean.TRUE.equals(getAnnotationValue(field, "shared"))) {
+                note(classElement, "has shared field " + field.getSimpleName() + ", reflection will be used");
+                return;
+            }
+
+            if (Boolean.TRUE.equals(getAnnotationValue(field, "reuseEncoded")) || isVersioned(field)) {
+                note(classElement, "has field " + field.getSimpleName() + " with reused encoded value, reflection will be used");
+                return;
+            }
+
+            final Object codec = getAnnotationValue(field, "codec");
+            final String codecName = null == codec || INJECT_CODEC_NAME.equals(codec.toString()) ? null : codec.toString();
+
+            if (null == codecName && mBundleTypes.isCompact(field.asType())) {
+                note(classElement, "has field " + field.getSimpleName() + " with compact codec type, reflection will be used");
+                return;
+            }
+
+            if (null == codecName && TypeKind.DECLARED == field.asType().getKind()
+                    && hasAnnotation(((DeclaredType) field.asType()).asElement(), INJECT_VALUE_TYPE_NAME)) {
+                note(classElement, "has field " + field.getSimpleName() + " with InjectValueType type, reflection will be used");
+                return;
+            }
+
+            final BundleTypes.BundleType bundleType = null == codecName
+                    ? mBundleTypes.resolve(field.asType()) : mBundleTypes.resolveCodec(field.asType());
+            if (null == bundleType) {
+                note(classElement, "has field " + field.getSimpleName() + " with type that can't be resolved at compile time, reflection will be used");
+                return;
+            }
+
+            final Object value = getAnnotationValue(field, "value");
+            final String customTag = null == value ? "" : value.toString();
+            final String key = 0 == customTag.length() ? className + '#' + field.getSimpleName() : customTag;
+
+            saverFields.add(new SaverField(field.getSimpleName().toString(), key, 0 != customTag.length(), bundleType, codecName));
+        }
+
+        writeSaver(classElement, saverFields);
+    }
+
+    private void writeSaver(final TypeElement classElement, final List<SaverField> saverFields) {
+        final PackageElement packageElement = mElements.getPackageOf(classElement);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = mElements.getBinaryName(classElement).toString();
+        final String saverSimpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + STATE_SAVER_SUFFIX;
+
+        final StateSaverWriter saverWriter = new StateSaverWriter(packageName, saverSimpleName,
+                mBundleTypes.getErasedName(classElement.asType()), saverFields);
+
+        try {
+            final JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(binaryName + STATE_SAVER_SUFFIX, classElement);
+
+            try (Writer writer = sourceFile.openWriter()) {
+                saverWriter.write(writer);
+            }
+        } catch (final IOException e) {
+            mMessager.printMessage(Diagnostic.Kind.ERROR, "Could not write StateSaver: " + e.getMessage(), classElement);
+        }
+    }
+
+    private boolean isVersioned(final VariableElement field) {
+        final TypeElement versionedElement = mElements.getTypeElement(INJECT_VERSIONED_NAME);
+
+        return null != versionedElement && TypeKind.DECLARED == field.asType().getKind()
+                && mTypes.isAssignable(mTypes.erasure(field.asType()), mTypes.erasure(versionedElement.asType()));
+    }
+
+    private static Object getAnnotationValue(final VariableElement field, final String name) {
+        for (final AnnotationMirror annotationMirror : field.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) annotationMirror.getAnnotationType().asElement();
+
+            if (ANNOTATION_NAME.contentEquals(annotationType.getQualifiedName())) {
+                for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotationMirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals(name)) {
+                        return entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean hasAnnotation(final Element element, final String annotationName) {
+        for (final AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) annotationMirror.getAnnotationType().asElement();
+
+            if (annotationName.contentEquals(annotationType.getQualifiedName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isAccessibleFromPackage(final Element element) {
+        Element current = element;
+
+        while (null != current && ElementKind.PACKAGE != current.getKind()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+
+        return true;
+    }
+
+    private void note(final Element element, final String message) {
+        mMessager.printMessage(Diagnostic.Kind.NOTE, "StateSaver is not generated: " + element + ' ' + message, element);
+    }
+
+    static final class SaverField {
+
+        final String mName;
+        final String mKey;
+        final boolean mCustomTag;
+        final BundleTypes.BundleType mBundleType;
+        final String mCodecName;
+
+        SaverField(final String name, final String key, final boolean customTag, final BundleTypes.BundleType bundleType,
+                   final String codecName) {
+            mName = name;
+            mKey = key;
+            mCustomTag = customTag;
+            mBundleType = bundleType;
+            mCodecName = codecName;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.azoft.injectorlib.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes source of one {@code ClassName$$StateSaver}. Keys are the same as Injector.SavedStateProcessor generates,
+ * so state saved with reflection can be restored with generated code and vice versa. Values that reflection may save
+ * encoded are read with StateSavers.
+ */
+final class StateSaverWriter {
+
+    private final String mPackageName;
+    private final String mSaverName;
+    private final String mModelName;
+    private final List<InjectSavedStateProcessor.SaverField> mFields;
+
+    StateSaverWriter(final String packageName, final String saverName, final String modelName,
+                     final List<InjectSavedStateProcessor.SaverField> fields) {
+        mPackageName = packageName;
+        mSaverName = saverName;
+        mModelName = modelName;
+        mFields = fields;
+    }
+
+    void write(final Writer writer) throws IOException {
+        final StringBuilder source = new StringBuilder();
+
+        source.append("// Generated code from InjectorLib. Do not modify!\n");
+        if (!mPackageName.isEmpty()) {
+            source.append("package ").append(mPackageName).append(";\n\n");
+        }
+        source.append("import com.azoft.injectorlib.StateContainer;\n");
+        source.append("import com.azoft.injectorlib.StateSaver;\n");
+        source.append("import com.azoft.injectorlib.StateSavers;\n\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(mSaverName).append(" implements StateSaver<").append(mModelName).append("> {\n\n");
+
+        writeCodecs(source);
+
+        writeRestore(source);
+        source.append('\n');
+        writeSave(source);
+
+        source.append("}\n");
+
+        writer.write(source.toString());
+    }
+
+    private void writeRestore(final StringBuilder source) {
+        source.append("    @Override\n");
+        source.append("    public void restore(final ").append(mModelName).append(" model, final StateContainer savedState, final String tagSuffix) {\n");
+        source.append("        String key;\n");
+
+        for (final InjectSavedStateProcessor.SaverField field : mFields) {
+            final BundleTypes.BundleType bundleType = field.mBundleType;
+
+            source.append('\n');
+            writeKey(source, field);
+            source.append("        if (savedState.containsKey(key)) {\n");
+            if (null != field.mCodecName) {
+                source.append("            final byte[] data = StateSavers.getEncoded(savedState, key);\n\n");
+                source.append("            if (null != data) {\n");
+                source.append("                model.").append(field.mName).append(" = (").append(bundleType.mTypeName).append(") ")
+                        .append(codecFieldName(field)).append(".decode(data);\n");
+                source.append("            }\n");
+            } else if (bundleType.mSerializable) {
+                source.append("            final Object value = StateSavers.getSerializable(savedState, key, model.getClass().getClassLoader());\n\n");
+                source.append("            if (null != value) {\n");
+                source.append("                model.").append(field.mName).append(" = (").append(bundleType.mTypeName).append(") value;\n");
+                source.append("            }\n");
+            } else if (null != bundleType.mGetMethod) {
+                source.append("            model.").append(field.mName).append(" = savedState.").append(bundleType.mGetMethod).append("(key);\n");
+            } else {
+                source.append("            model.").append(field.mName).append(" = (").append(bundleType.mTypeName).append(") savedState.get(key);\n");
+            }
+            source.append("        }\n");
+        }
+
+        source.append("    }\n");
+    }
+
+    private void writeSave(final StringBuilder source) {
+        source.append("    @Override\n");
+        source.append("    public void save(final ").append(mModelName).append(" model, final StateContainer outState, final String tagSuffix) {\n");
+        source.append("        String key;\n");
+
+        for (final InjectSavedStateProcessor.SaverField field : mFields) {
+            final BundleTypes.BundleType bundleType = field.mBundleType;
+            final String indent = bundleType.mPrimitive ? "        " : "            ";
+
+            source.append('\n');
+            writeKey(source, field);
+            if (!bundleType.mPrimitive) {
+                source.append("        if (null != model.").append(field.mName).append(") {\n");
+            }
+            source.append(indent).append("outState.").append(bundleType.mPutMethod).append("(key, ");
+            if (null != field.mCodecName) {
+                source.append(codecFieldName(field)).append(".encode(model.").append(field.mName).append("));\n");
+            } else {
+                source.append("model.").append(field.mName).append(");\n");
+            }
+            if (!bundleType.mPrimitive) {
+                source.append("        }\n");
+            }
+        }
+
+        source.append("    }\n");
+    }
+
+    private void writeCodecs(final StringBuilder source) {
+        boolean hasCodecs = false;
+
+        for (final InjectSavedStateProcessor.SaverField field : mFields) {
+            if (null != field.mCodecName) {
+                source.append("    private static final ").append(field.mCodecName).append(' ').append(codecFieldName(field))
+                        .append(" = new ").append(field.mCodecName).append("();\n");
+                hasCodecs = true;
+            }
+        }
+
+        if (hasCodecs) {
+            source.append('\n');
+        }
+    }
+
+    private static String codecFieldName(final InjectSavedStateProcessor.SaverField field) {
+        return "CODEC_" + field.mName;
+    }
+
+    private static void writeKey(final StringBuilder source, final InjectSavedStateProcessor.SaverField field) {
+        source.append("        key = ").append(quote(field.mKey));
+        if (!field.mCustomTag) {
+            source.append(" + tagSuffix");
+        }
+        source.append(";\n");
+    }
+
+    private static String quote(final String value) {
+        final StringBuilder quoted = new StringBuilder(value.length() + 2);
+
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                    break;
+            }
+        }
+        quoted.append('"');
+
+        return quoted.toString();
+    }
+}
@@ -0,0 +1,231 @@
+package com.azoft.injectorlib.compiler;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InjectSavedStateProcessorTest {
+
+    /**
+     * Parts of injector runtime that processor and generated code refer to.
+     */
+    private static final String[][] RUNTIME_SOURCES = {
+            {"com.azoft.injectorlib.InjectSavedState", "package com.azoft.injectorlib;\n"
+                    + "public @interface InjectSavedState {\n"
+                    + "    String value() default \"\";\n"
+                    + "    Class<? extends InjectCodec> codec() default InjectCodec.class;\n"
+                    + "    boolean reuseEncoded() default false;\n"
+                    + "    boolean compress() default false;\n"
+                    + "    boolean shared() default false;\n"
+                    + "}\n"},
+            {"com.azoft.injectorlib.InjectCodec", "package com.azoft.injectorlib;\n"
+                    + "public interface InjectCodec<T> {\n"
+                    + "    byte[] encode(T value);\n"
+                    + "    T decode(byte[] data);\n"
+                    + "}\n"},
+            {"com.azoft.injectorlib.InjectVersioned", "package com.azoft.injectorlib;\n"
+                    + "public interface InjectVersioned {\n"
+                    + "    long getStateVersion();\n"
+                    + "}\n"},
+            {"com.azoft.injectorlib.StateContainer", "package com.azoft.injectorlib;\n"
+                    + "public interface StateContainer {\n"
+                    + "    boolean containsKey(String key);\n"
+                    + "    Object get(String key);\n"
+                    + "    int getInt(String key);\n"
+                    + "    void putInt(String key, int value);\n"
+                    + "    void putString(String key, String value);\n"
+                    + "    void putSerializable(String key, java.io.Serializable value);\n"
+                    + "    void putByteArray(String key, byte[] value);\n"
+                    + "}\n"},
+            {"com.azoft.injectorlib.StateSaver", "package com.azoft.injectorlib;\n"
+                    + "public interface StateSaver<T> {\n"
+                    + "    void restore(T model, StateContainer savedState, String tagSuffix);\n"
+                    + "    void save(T model, StateContainer outState, String tagSuffix);\n"
+                    + "}\n"},
+            {"com.azoft.injectorlib.StateSavers", "package com.azoft.injectorlib;\n"
+                    + "public final class StateSavers {\n"
+                    + "    public static byte[] getEncoded(StateContainer state, String key) { return null; }\n"
+                    + "    public static Object getSerializable(StateContainer state, String key, ClassLoader classLoader) { return null; }\n"
+                    + "}\n"},
+    };
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mSourceDir;
+    private final List<String> mNotes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        mSourceDir = mTemporaryFolder.newFolder("generated");
+    }
+
+    @Test
+    public void generatesSaverForBundleTypes() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState int mCount;\n"
+                + "    @InjectSavedState String mText;\n"
+                + "}\n");
+
+        final String saver = readSaver();
+
+        assertTrue(saver, saver.contains("outState.putInt(key, model.mCount);"));
+        assertTrue(saver, saver.contains("model.mCount = savedState.getInt(key);"));
+        assertTrue(saver, saver.contains("outState.putString(key, model.mText);"));
+    }
+
+    @Test
+    public void readsCodecFieldWithStateSavers() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState(codec = DateCodec.class) java.util.Date mDate;\n"
+                + "    public static class DateCodec implements InjectCodec<java.util.Date> {\n"
+                + "        public byte[] encode(java.util.Date value) { return new byte[0]; }\n"
+                + "        public java.util.Date decode(byte[] data) { return new java.util.Date(); }\n"
+                + "    }\n"
+                + "}\n");
+
+        final String saver = readSaver();
+
+        assertTrue(saver, saver.contains("final byte[] data = StateSavers.getEncoded(savedState, key);"));
+        assertFalse(saver, saver.contains("getByteArray"));
+    }
+
+    @Test
+    public void readsSerializableFieldWithStateSavers() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState java.util.Date mDate;\n"
+                + "}\n");
+
+        final String saver = readSaver();
+
+        assertTrue(saver, saver.contains("outState.putSerializable(key, model.mDate);"));
+        assertTrue(saver, saver.contains("StateSavers.getSerializable(savedState, key, model.getClass().getClassLoader())"));
+    }
+
+    @Test
+    public void skipsFieldOfAbstractType() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState Number mNumber;\n"
+                + "}\n");
+
+        assertSkipped("mNumber");
+    }
+
+    @Test
+    public void skipsFieldOfInterfaceType() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState java.io.Serializable mValue;\n"
+                + "}\n");
+
+        assertSkipped("mValue");
+    }
+
+    @Test
+    public void skipsFieldWithReusedEncodedValue() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState(reuseEncoded = true) java.util.Date mDate;\n"
+                + "}\n");
+
+        assertSkipped("mDate");
+    }
+
+    @Test
+    public void skipsFieldOfVersionedType() throws IOException {
+        compile("public class Model {\n"
+                + "    @InjectSavedState Value mValue;\n"
+                + "    public static class Value implements java.io.Serializable, InjectVersioned {\n"
+                + "        public long getStateVersion() { return 0; }\n"
+                + "    }\n"
+                + "}\n");
+
+        assertSkipped("mValue");
+    }
+
+    private void assertSkipped(final String fieldName) {
+        assertFalse(getSaverFile().exists());
+
+        for (final String note : mNotes) {
+            if (note.contains(fieldName)) {
+                return;
+            }
+        }
+
+        throw new AssertionError("No note about " + fieldName + " in " + mNotes);
+    }
+
+    private void compile(final String modelSource) throws IOException {
+        final List<JavaFileObject> sources = new ArrayList<>();
+
+        for (final String[] runtimeSource : RUNTIME_SOURCES) {
+            sources.add(new StringSource(runtimeSource[0], runtimeSource[1]));
+        }
+        sources.add(new StringSource("test.Model", "package test;\nimport com.azoft.injectorlib.*;\n" + modelSource));
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.US, null)) {
+            final List<String> options = Arrays.asList("-d", mTemporaryFolder.newFolder().getPath(), "-s", mSourceDir.getPath());
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+
+            task.setProcessors(Collections.singletonList(new InjectSavedStateProcessor()));
+
+            final boolean success = task.call();
+
+            for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (Diagnostic.Kind.NOTE == diagnostic.getKind()) {
+                    mNotes.add(diagnostic.getMessage(Locale.US));
+                }
+            }
+
+            assertTrue(diagnostics.getDiagnostics().toString(), success);
+        }
+    }
+
+    private File getSaverFile() {
+        return new File(mSourceDir, "test/Model$$StateSaver.java");
+    }
+
+    private String readSaver() throws IOException {
+        return new String(Files.readAllBytes(getSaverFile().toPath()), Charset.forName("UTF-8"));
+    }
+
+    private static final class StringSource extends SimpleJavaFileObject {
+
+        private final String mSource;
+
+        StringSource(final String className, final String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+
+            mSource = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return mSource;
+        }
+    }
+}
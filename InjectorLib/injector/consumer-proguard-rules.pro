@@ -0,0 +1,9 @@
+# Rules applied to applications that use injector.
+
+# Generated savers are found by model class name.
+-keep class **$$StateSaver { <init>(); }
+-keepclasseswithmembernames class * { @com.azoft.injectorlib.InjectSavedState <fields>; }
+
+# Reflection fallback reads annotations and field names.
+-keepattributes *Annotation*,Signature
+-keepclassmembernames class * { @com.azoft.injectorlib.InjectSavedState <fields>; }
@@ -0,0 +1,7 @@
+package android.app;
+
+/**
+ * Plain JVM stand-in for android.app.Activity.
+ */
+public class Activity {
+}
@@ -0,0 +1,24 @@
+package android.app;
+
+/**
+ * Plain JVM stand-in for android.app.Fragment with tag and id.
+ */
+@SuppressWarnings("unused")
+public class Fragment {
+
+    private String mTag;
+    private int mFragmentId;
+
+    public final String getTag() {
+        return mTag;
+    }
+
+    public final int getId() {
+        return mFragmentId;
+    }
+
+    public final void setTagAndId(final String tag, final int id) {
+        mTag = tag;
+        mFragmentId = id;
+    }
+}
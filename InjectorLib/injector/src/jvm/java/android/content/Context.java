@@ -0,0 +1,52 @@
+package android.content;
+
+import android.content.pm.ApplicationInfo;
+
+import java.io.File;
+
+/**
+ * Plain JVM stand-in for android.content.Context with app-private directories under given root.
+ */
+@SuppressWarnings("unused")
+public class Context {
+
+    public static final int MODE_PRIVATE = 0;
+
+    private final File mRoot;
+
+    public Context(final File root) {
+        mRoot = root;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    /**
+     * Root directory stands for the installed APK.
+     */
+    public ApplicationInfo getApplicationInfo() {
+        final ApplicationInfo applicationInfo = new ApplicationInfo();
+
+        applicationInfo.sourceDir = mRoot.getPath();
+
+        return applicationInfo;
+    }
+
+    public File getDir(final String name, final int mode) {
+        final File dir = new File(mRoot, "app_" + name);
+
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+
+        return dir;
+    }
+
+    public File getFilesDir() {
+        return getDir("files", MODE_PRIVATE);
+    }
+
+    public File getCacheDir() {
+        return getDir("cache", MODE_PRIVATE);
+    }
+}
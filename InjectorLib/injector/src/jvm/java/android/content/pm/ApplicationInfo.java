@@ -0,0 +1,10 @@
+package android.content.pm;
+
+/**
+ * Plain JVM stand-in for android.content.pm.ApplicationInfo.
+ */
+@SuppressWarnings("unused")
+public class ApplicationInfo {
+
+    public String sourceDir;
+}
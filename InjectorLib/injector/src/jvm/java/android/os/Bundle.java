@@ -0,0 +1,350 @@
+package android.os;
+
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Plain JVM stand-in for android.os.Bundle: a map without parceling.
+ */
+@SuppressWarnings({"unused", "unchecked"})
+public final class Bundle implements Parcelable {
+
+    private final HashMap<String, Object> mMap;
+
+    public Bundle() {
+        mMap = new HashMap<>();
+    }
+
+    public Bundle(final int capacity) {
+        mMap = new HashMap<>(capacity);
+    }
+
+    public Bundle(final ClassLoader loader) {
+        this();
+    }
+
+    public Bundle(final Bundle bundle) {
+        mMap = new HashMap<>(bundle.mMap);
+    }
+
+    public void setClassLoader(final ClassLoader loader) {
+    }
+
+    public int size() {
+        return mMap.size();
+    }
+
+    public boolean isEmpty() {
+        return mMap.isEmpty();
+    }
+
+    public void clear() {
+        mMap.clear();
+    }
+
+    public boolean containsKey(final String key) {
+        return mMap.containsKey(key);
+    }
+
+    public Object get(final String key) {
+        return mMap.get(key);
+    }
+
+    public void remove(final String key) {
+        mMap.remove(key);
+    }
+
+    public Set<String> keySet() {
+        return mMap.keySet();
+    }
+
+    public void putAll(final Bundle bundle) {
+        mMap.putAll(bundle.mMap);
+    }
+
+    public void putBoolean(final String key, final boolean value) {
+        mMap.put(key, value);
+    }
+
+    public void putByte(final String key, final byte value) {
+        mMap.put(key, value);
+    }
+
+    public void putChar(final String key, final char value) {
+        mMap.put(key, value);
+    }
+
+    public void putShort(final String key, final short value) {
+        mMap.put(key, value);
+    }
+
+    public void putInt(final String key, final int value) {
+        mMap.put(key, value);
+    }
+
+    public void putLong(final String key, final long value) {
+        mMap.put(key, value);
+    }
+
+    public void putFloat(final String key, final float value) {
+        mMap.put(key, value);
+    }
+
+    public void putDouble(final String key, final double value) {
+        mMap.put(key, value);
+    }
+
+    public void putString(final String key, final String value) {
+        mMap.put(key, value);
+    }
+
+    public void putCharSequence(final String key, final CharSequence value) {
+        mMap.put(key, value);
+    }
+
+    public void putParcelable(final String key, final Parcelable value) {
+        mMap.put(key, value);
+    }
+
+    public void putParcelableArray(final String key, final Parcelable[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putParcelableArrayList(final String key, final ArrayList<? extends Parcelable> value) {
+        mMap.put(key, value);
+    }
+
+    public void putSparseParcelableArray(final String key, final SparseArray<? extends Parcelable> value) {
+        mMap.put(key, value);
+    }
+
+    public void putIntegerArrayList(final String key, final ArrayList<Integer> value) {
+        mMap.put(key, value);
+    }
+
+    public void putStringArrayList(final String key, final ArrayList<String> value) {
+        mMap.put(key, value);
+    }
+
+    public void putCharSequenceArrayList(final String key, final ArrayList<CharSequence> value) {
+        mMap.put(key, value);
+    }
+
+    public void putSerializable(final String key, final Serializable value) {
+        mMap.put(key, value);
+    }
+
+    public void putBooleanArray(final String key, final boolean[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putByteArray(final String key, final byte[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putShortArray(final String key, final short[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putCharArray(final String key, final char[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putIntArray(final String key, final int[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putLongArray(final String key, final long[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putFloatArray(final String key, final float[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putDoubleArray(final String key, final double[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putStringArray(final String key, final String[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putCharSequenceArray(final String key, final CharSequence[] value) {
+        mMap.put(key, value);
+    }
+
+    public void putBundle(final String key, final Bundle value) {
+        mMap.put(key, value);
+    }
+
+    public boolean getBoolean(final String key) {
+        return getBoolean(key, false);
+    }
+
+    public boolean getBoolean(final String key, final boolean defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    public byte getByte(final String key) {
+        return getByte(key, (byte) 0);
+    }
+
+    public Byte getByte(final String key, final byte defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Byte ? (Byte) value : defaultValue;
+    }
+
+    public char getChar(final String key) {
+        return getChar(key, (char) 0);
+    }
+
+    public char getChar(final String key, final char defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Character ? (Character) value : defaultValue;
+    }
+
+    public short getShort(final String key) {
+        return getShort(key, (short) 0);
+    }
+
+    public short getShort(final String key, final short defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Short ? (Short) value : defaultValue;
+    }
+
+    public int getInt(final String key) {
+        return getInt(key, 0);
+    }
+
+    public int getInt(final String key, final int defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public long getLong(final String key) {
+        return getLong(key, 0L);
+    }
+
+    public long getLong(final String key, final long defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    public float getFloat(final String key) {
+        return getFloat(key, 0f);
+    }
+
+    public float getFloat(final String key, final float defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+
+    public double getDouble(final String key) {
+        return getDouble(key, 0d);
+    }
+
+    public double getDouble(final String key, final double defaultValue) {
+        final Object value = mMap.get(key);
+        return value instanceof Double ? (Double) value : defaultValue;
+    }
+
+    public String getString(final String key) {
+        return (String) mMap.get(key);
+    }
+
+    public CharSequence getCharSequence(final String key) {
+        return (CharSequence) mMap.get(key);
+    }
+
+    public Bundle getBundle(final String key) {
+        return (Bundle) mMap.get(key);
+    }
+
+    public <T extends Parcelable> T getParcelable(final String key) {
+        return (T) mMap.get(key);
+    }
+
+    public Parcelable[] getParcelableArray(final String key) {
+        return (Parcelable[]) mMap.get(key);
+    }
+
+    public <T extends Parcelable> ArrayList<T> getParcelableArrayList(final String key) {
+        return (ArrayList<T>) mMap.get(key);
+    }
+
+    public <T extends Parcelable> SparseArray<T> getSparseParcelableArray(final String key) {
+        return (SparseArray<T>) mMap.get(key);
+    }
+
+    public Serializable getSerializable(final String key) {
+        return (Serializable) mMap.get(key);
+    }
+
+    public ArrayList<Integer> getIntegerArrayList(final String key) {
+        return (ArrayList<Integer>) mMap.get(key);
+    }
+
+    public ArrayList<String> getStringArrayList(final String key) {
+        return (ArrayList<String>) mMap.get(key);
+    }
+
+    public ArrayList<CharSequence> getCharSequenceArrayList(final String key) {
+        return (ArrayList<CharSequence>) mMap.get(key);
+    }
+
+    public boolean[] getBooleanArray(final String key) {
+        return (boolean[]) mMap.get(key);
+    }
+
+    public byte[] getByteArray(final String key) {
+        return (byte[]) mMap.get(key);
+    }
+
+    public short[] getShortArray(final String key) {
+        return (short[]) mMap.get(key);
+    }
+
+    public char[] getCharArray(final String key) {
+        return (char[]) mMap.get(key);
+    }
+
+    public int[] getIntArray(final String key) {
+        return (int[]) mMap.get(key);
+    }
+
+    public long[] getLongArray(final String key) {
+        return (long[]) mMap.get(key);
+    }
+
+    public float[] getFloatArray(final String key) {
+        return (float[]) mMap.get(key);
+    }
+
+    public double[] getDoubleArray(final String key) {
+        return (double[]) mMap.get(key);
+    }
+
+    public String[] getStringArray(final String key) {
+        return (String[]) mMap.get(key);
+    }
+
+    public CharSequence[] getCharSequenceArray(final String key) {
+        return (CharSequence[]) mMap.get(key);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(final Parcel dest, final int flags) {
+        dest.writeValue(this);
+    }
+}
@@ -0,0 +1,125 @@
+package android.os;
+
+import java.util.ArrayList;
+
+/**
+ * Plain JVM stand-in for android.os.Parcel: values are kept as objects in write order, every value takes 4 bytes of position.
+ */
+@SuppressWarnings({"unused", "unchecked"})
+public final class Parcel {
+
+    private final ArrayList<Object> mValues = new ArrayList<>();
+    private int mPosition;
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        mValues.clear();
+        mPosition = 0;
+    }
+
+    /**
+     * Rough estimate: every written value is counted as 4 bytes.
+     */
+    public int dataSize() {
+        return mValues.size() * 4;
+    }
+
+    public int dataPosition() {
+        return mPosition * 4;
+    }
+
+    public void setDataPosition(final int position) {
+        mPosition = position / 4;
+    }
+
+    public void appendFrom(final Parcel parcel, final int offset, final int length) {
+        mValues.addAll(parcel.mValues.subList(offset / 4, (offset + length) / 4));
+    }
+
+    public void writeInt(final int value) {
+        mValues.add(value);
+    }
+
+    public int readInt() {
+        return (Integer) read();
+    }
+
+    public void writeLong(final long value) {
+        mValues.add(value);
+    }
+
+    public long readLong() {
+        return (Long) read();
+    }
+
+    public void writeFloat(final float value) {
+        mValues.add(value);
+    }
+
+    public float readFloat() {
+        return (Float) read();
+    }
+
+    public void writeDouble(final double value) {
+        mValues.add(value);
+    }
+
+    public double readDouble() {
+        return (Double) read();
+    }
+
+    public void writeByte(final byte value) {
+        mValues.add(value);
+    }
+
+    public byte readByte() {
+        return (Byte) read();
+    }
+
+    public void writeString(final String value) {
+        mValues.add(value);
+    }
+
+    public String readString() {
+        return (String) read();
+    }
+
+    public void writeByteArray(final byte[] value) {
+        mValues.add(value);
+    }
+
+    public byte[] createByteArray() {
+        return (byte[]) read();
+    }
+
+    public void writeBundle(final Bundle value) {
+        mValues.add(value);
+    }
+
+    public Bundle readBundle(final ClassLoader loader) {
+        return (Bundle) read();
+    }
+
+    public void writeValue(final Object value) {
+        mValues.add(value);
+    }
+
+    public Object readValue(final ClassLoader loader) {
+        return read();
+    }
+
+    public void writeParcelable(final Parcelable value, final int flags) {
+        mValues.add(value);
+    }
+
+    public <T extends Parcelable> T readParcelable(final ClassLoader loader) {
+        return (T) read();
+    }
+
+    private Object read() {
+        return mValues.get(mPosition++);
+    }
+}
@@ -0,0 +1,27 @@
+package android.util;
+
+/**
+ * Plain JVM stand-in for android.util.Log, messages are dropped.
+ */
+@SuppressWarnings("unused")
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(final String tag, final String msg) {
+        return 0;
+    }
+
+    public static int d(final String tag, final String msg, final Throwable tr) {
+        return 0;
+    }
+
+    public static int w(final String tag, final String msg) {
+        return 0;
+    }
+
+    public static int w(final String tag, final String msg, final Throwable tr) {
+        return 0;
+    }
+}
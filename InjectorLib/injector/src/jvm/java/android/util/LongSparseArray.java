@@ -0,0 +1,53 @@
+package android.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Plain JVM stand-in for android.util.LongSparseArray: sorted keys with values at the same indexes.
+ */
+@SuppressWarnings("unused")
+public class LongSparseArray<E> {
+
+    private final ArrayList<Long> mKeys = new ArrayList<>();
+    private final ArrayList<E> mValues = new ArrayList<>();
+
+    public LongSparseArray() {
+    }
+
+    public LongSparseArray(final int initialCapacity) {
+    }
+
+    public int size() {
+        return mKeys.size();
+    }
+
+    public E get(final long key) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        return index < 0 ? null : mValues.get(index);
+    }
+
+    public void put(final long key, final E value) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        if (index >= 0) {
+            mValues.set(index, value);
+        } else {
+            mKeys.add(-index - 1, key);
+            mValues.add(-index - 1, value);
+        }
+    }
+
+    public void append(final long key, final E value) {
+        put(key, value);
+    }
+
+    public long keyAt(final int index) {
+        return mKeys.get(index);
+    }
+
+    public E valueAt(final int index) {
+        return mValues.get(index);
+    }
+}
@@ -0,0 +1,34 @@
+package android.util;
+
+import java.util.TreeMap;
+
+/**
+ * Plain JVM stand-in for android.util.SparseArray.
+ */
+@SuppressWarnings("unused")
+public class SparseArray<E> {
+
+    private final TreeMap<Integer, E> mMap = new TreeMap<>();
+
+    public SparseArray() {
+    }
+
+    public SparseArray(final int initialCapacity) {
+    }
+
+    public int size() {
+        return mMap.size();
+    }
+
+    public E get(final int key) {
+        return mMap.get(key);
+    }
+
+    public void put(final int key, final E value) {
+        mMap.put(key, value);
+    }
+
+    public void append(final int key, final E value) {
+        mMap.put(key, value);
+    }
+}
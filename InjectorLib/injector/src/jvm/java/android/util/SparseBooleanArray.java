@@ -0,0 +1,53 @@
+package android.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Plain JVM stand-in for android.util.SparseBooleanArray: sorted keys with values at the same indexes.
+ */
+@SuppressWarnings("unused")
+public class SparseBooleanArray {
+
+    private final ArrayList<Integer> mKeys = new ArrayList<>();
+    private final ArrayList<Boolean> mValues = new ArrayList<>();
+
+    public SparseBooleanArray() {
+    }
+
+    public SparseBooleanArray(final int initialCapacity) {
+    }
+
+    public int size() {
+        return mKeys.size();
+    }
+
+    public boolean get(final int key) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        return index < 0 ? false : mValues.get(index);
+    }
+
+    public void put(final int key, final boolean value) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        if (index >= 0) {
+            mValues.set(index, value);
+        } else {
+            mKeys.add(-index - 1, key);
+            mValues.add(-index - 1, value);
+        }
+    }
+
+    public void append(final int key, final boolean value) {
+        put(key, value);
+    }
+
+    public int keyAt(final int index) {
+        return mKeys.get(index);
+    }
+
+    public boolean valueAt(final int index) {
+        return mValues.get(index);
+    }
+}
@@ -0,0 +1,53 @@
+package android.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Plain JVM stand-in for android.util.SparseIntArray: sorted keys with values at the same indexes.
+ */
+@SuppressWarnings("unused")
+public class SparseIntArray {
+
+    private final ArrayList<Integer> mKeys = new ArrayList<>();
+    private final ArrayList<Integer> mValues = new ArrayList<>();
+
+    public SparseIntArray() {
+    }
+
+    public SparseIntArray(final int initialCapacity) {
+    }
+
+    public int size() {
+        return mKeys.size();
+    }
+
+    public int get(final int key) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        return index < 0 ? 0 : mValues.get(index);
+    }
+
+    public void put(final int key, final int value) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        if (index >= 0) {
+            mValues.set(index, value);
+        } else {
+            mKeys.add(-index - 1, key);
+            mValues.add(-index - 1, value);
+        }
+    }
+
+    public void append(final int key, final int value) {
+        put(key, value);
+    }
+
+    public int keyAt(final int index) {
+        return mKeys.get(index);
+    }
+
+    public int valueAt(final int index) {
+        return mValues.get(index);
+    }
+}
@@ -0,0 +1,53 @@
+package android.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Plain JVM stand-in for android.util.SparseLongArray: sorted keys with values at the same indexes.
+ */
+@SuppressWarnings("unused")
+public class SparseLongArray {
+
+    private final ArrayList<Integer> mKeys = new ArrayList<>();
+    private final ArrayList<Long> mValues = new ArrayList<>();
+
+    public SparseLongArray() {
+    }
+
+    public SparseLongArray(final int initialCapacity) {
+    }
+
+    public int size() {
+        return mKeys.size();
+    }
+
+    public long get(final int key) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        return index < 0 ? 0 : mValues.get(index);
+    }
+
+    public void put(final int key, final long value) {
+        final int index = Collections.binarySearch(mKeys, key);
+
+        if (index >= 0) {
+            mValues.set(index, value);
+        } else {
+            mKeys.add(-index - 1, key);
+            mValues.add(-index - 1, value);
+        }
+    }
+
+    public void append(final int key, final long value) {
+        put(key, value);
+    }
+
+    public int keyAt(final int index) {
+        return mKeys.get(index);
+    }
+
+    public long valueAt(final int index) {
+        return mValues.get(index);
+    }
+}
@@ -0,0 +1,34 @@
+package android.view;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Plain JVM stand-in for android.view.AbsSavedState.
+ */
+public abstract class AbsSavedState implements Parcelable {
+
+    private final Parcelable mSuperState;
+
+    protected AbsSavedState(final Parcelable superState) {
+        mSuperState = superState;
+    }
+
+    protected AbsSavedState(final Parcel source) {
+        mSuperState = source.readParcelable(null);
+    }
+
+    public final Parcelable getSuperState() {
+        return mSuperState;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(final Parcel dest, final int flags) {
+        dest.writeParcelable(mSuperState, flags);
+    }
+}
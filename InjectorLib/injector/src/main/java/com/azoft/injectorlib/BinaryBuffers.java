@@ -0,0 +1,144 @@
+package com.azoft.injectorlib;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Reading and writing of strings and primitive arrays shared by binary formats of the library. Lengths are written by
+ * callers, each format has its own way to mark null.
+ */
+final class BinaryBuffers {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BinaryBuffers() {
+    }
+
+    /**
+     * @return size of one value of primitive type in bytes
+     */
+    static int sizeOf(final Class<?> primitiveType) {
+        if (boolean.class.equals(primitiveType) || byte.class.equals(primitiveType)) {
+            return 1;
+        } else if (char.class.equals(primitiveType) || short.class.equals(primitiveType)) {
+            return 2;
+        } else if (int.class.equals(primitiveType) || float.class.equals(primitiveType)) {
+            return 4;
+        }
+
+        return 8;
+    }
+
+    /**
+     * Puts elements of primitive array without length.
+     */
+    static void putArray(final ByteBuffer buffer, final Object array) {
+        if (array instanceof boolean[]) {
+            for (final boolean value : (boolean[]) array) {
+                buffer.put((byte) (value ? 1 : 0));
+            }
+        } else if (array instanceof byte[]) {
+            buffer.put((byte[]) array);
+        } else if (array instanceof char[]) {
+            buffer.asCharBuffer().put((char[]) array);
+            buffer.position(buffer.position() + ((char[]) array).length * 2);
+        } else if (array instanceof short[]) {
+            buffer.asShortBuffer().put((short[]) array);
+            buffer.position(buffer.position() + ((short[]) array).length * 2);
+        } else if (array instanceof int[]) {
+            buffer.asIntBuffer().put((int[]) array);
+            buffer.position(buffer.position() + ((int[]) array).length * 4);
+        } else if (array instanceof long[]) {
+            buffer.asLongBuffer().put((long[]) array);
+            buffer.position(buffer.position() + ((long[]) array).length * 8);
+        } else if (array instanceof float[]) {
+            buffer.asFloatBuffer().put((float[]) array);
+            buffer.position(buffer.position() + ((float[]) array).length * 4);
+        } else {
+            buffer.asDoubleBuffer().put((double[]) array);
+            buffer.position(buffer.position() + ((double[]) array).length * 8);
+        }
+    }
+
+    /**
+     * @return primitive array of length elements read from buffer
+     */
+    static Object getArray(final ByteBuffer buffer, final Class<?> componentType, final int length) {
+        if (length < 0 || length > buffer.remaining() / sizeOf(componentType)) {
+            // corrupted length, fail before allocating the array
+            throw new BufferUnderflowException();
+        }
+
+        if (boolean.class.equals(componentType)) {
+            final boolean[] values = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = 0 != buffer.get();
+            }
+            return values;
+        } else if (byte.class.equals(componentType)) {
+            final byte[] values = new byte[length];
+            buffer.get(values);
+            return values;
+        } else if (char.class.equals(componentType)) {
+            final char[] values = new char[length];
+            buffer.asCharBuffer().get(values);
+            buffer.position(buffer.position() + length * 2);
+            return values;
+        } else if (short.class.equals(componentType)) {
+            final short[] values = new short[length];
+            buffer.asShortBuffer().get(values);
+            buffer.position(buffer.position() + length * 2);
+            return values;
+        } else if (int.class.equals(componentType)) {
+            return getInts(buffer, length);
+        } else if (long.class.equals(componentType)) {
+            final long[] values = new long[length];
+            buffer.asLongBuffer().get(values);
+            buffer.position(buffer.position() + length * 8);
+            return values;
+        } else if (float.class.equals(componentType)) {
+            final float[] values = new float[length];
+            buffer.asFloatBuffer().get(values);
+            buffer.position(buffer.position() + length * 4);
+            return values;
+        }
+
+        final double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + length * 8);
+        return values;
+    }
+
+    static int[] getInts(final ByteBuffer buffer, final int length) {
+        if (length < 0 || length > buffer.remaining() / 4) {
+            throw new BufferUnderflowException();
+        }
+
+        final int[] values = new int[length];
+
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * 4);
+
+        return values;
+    }
+
+    /**
+     * @return string of length UTF-8 bytes read from buffer, heap buffer is decoded without copy
+     */
+    static String getString(final ByteBuffer buffer, final int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        if (!buffer.hasArray()) {
+            return new String((byte[]) getArray(buffer, byte.class, length), UTF_8);
+        }
+
+        final String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+
+        buffer.position(buffer.position() + length);
+
+        return value;
+    }
+}
@@ -0,0 +1,93 @@
+package com.azoft.injectorlib;
+
+import android.os.Parcel;
+
+/**
+ * Writes and reads one value kind to StateContainer. Codecs are resolved once per field when class is scanned.
+ */
+abstract class BundleCodec {
+
+    /**
+     * @return false if value is not supported by this codec
+     */
+    abstract boolean put(StateContainer state, String key, Object value);
+
+    /**
+     * @param classLoader class loader of the model, used for values that are decoded from container
+     */
+    Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+        return state.get(key);
+    }
+
+    /**
+     * @return true if some values may be encoded to bytes with {@link #encode(Object)}
+     */
+    boolean isEncoding() {
+        return false;
+    }
+
+    /**
+     * @return value encoded to bytes or null if codec puts value to container as is
+     */
+    byte[] encode(final Object value) {
+        return null;
+    }
+
+    Object decode(final byte[] data, final ClassLoader classLoader) {
+        throw new IllegalStateException("Codec does not support encoding");
+    }
+
+    /**
+     * @param stored value found in container
+     * @return data if value is stored in container in encoded form of this codec, null otherwise
+     */
+    byte[] getEncoded(final Object stored) {
+        if (!isEncoding()) {
+            return null;
+        }
+
+        if (isPuttingByteArrays()) {
+            return InjectorBlobStore.getInline(stored);
+        }
+
+        return stored instanceof byte[] ? (byte[]) stored : null;
+    }
+
+    /**
+     * @return true if {@link #put(StateContainer, String, Object)} may write the value itself as byte array, encoded data is
+     * then put in inline envelope to tell them apart
+     */
+    boolean isPuttingByteArrays() {
+        return false;
+    }
+
+    /**
+     * @param value value to save or restored value, null for value that is still encoded
+     * @return how value is written, used only for InjectorMetrics
+     */
+    InjectorMetrics.CodecPath getPath(final Object value) {
+        return InjectorMetrics.CodecPath.BUNDLE;
+    }
+
+    /**
+     * Puts value encoded with {@link #encode(Object)} to container.
+     */
+    void putEncoded(final StateContainer state, final String key, final byte[] data) {
+        if (isPuttingByteArrays()) {
+            state.putBundle(key, InjectorBlobStore.inline(data));
+        } else {
+            state.putByteArray(key, data);
+        }
+    }
+
+    /**
+     * Writes value that is not encoded by this codec to Parcel of InjectorViewSaveState.
+     */
+    void writeValue(final Parcel dest, final Object value) {
+        dest.writeValue(value);
+    }
+
+    Object readValue(final Parcel source, final ClassLoader classLoader) {
+        return source.readValue(classLoader);
+    }
+}
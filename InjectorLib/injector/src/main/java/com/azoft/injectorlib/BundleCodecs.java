@@ -0,0 +1,496 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+
+@SuppressWarnings("unchecked")
+final class BundleCodecs {
+
+    static final BundleCodec BOOLEAN = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putBoolean(key, (Boolean) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec BOOLEAN_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putBooleanArray(key, (boolean[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec BYTE = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putByte(key, (Byte) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec BYTE_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putByteArray(key, (byte[]) value);
+            return true;
+        }
+
+        @Override
+        boolean isPuttingByteArrays() {
+            return true;
+        }
+    };
+
+    static final BundleCodec CHAR = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putChar(key, (Character) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec CHAR_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putCharArray(key, (char[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec DOUBLE = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putDouble(key, (Double) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec DOUBLE_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putDoubleArray(key, (double[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec FLOAT = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putFloat(key, (Float) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec FLOAT_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putFloatArray(key, (float[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec INT = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putInt(key, (Integer) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec INT_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putIntArray(key, (int[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec LONG = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putLong(key, (Long) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec LONG_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putLongArray(key, (long[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec SHORT = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putShort(key, (Short) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec SHORT_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putShortArray(key, (short[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec STRING = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putString(key, (String) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec STRING_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putStringArray(key, (String[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec CHAR_SEQUENCE = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putCharSequence(key, (CharSequence) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec CHAR_SEQUENCE_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putCharSequenceArray(key, (CharSequence[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec BUNDLE = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putBundle(key, (Bundle) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec PARCELABLE = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putParcelable(key, (Parcelable) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec PARCELABLE_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putParcelableArray(key, (Parcelable[]) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec STRING_ARRAY_LIST = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putStringArrayList(key, (ArrayList<String>) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec CHAR_SEQUENCE_ARRAY_LIST = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putCharSequenceArrayList(key, (ArrayList<CharSequence>) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec INTEGER_ARRAY_LIST = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putIntegerArrayList(key, (ArrayList<Integer>) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec PARCELABLE_ARRAY_LIST = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putParcelableArrayList(key, (ArrayList<? extends Parcelable>) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec SPARSE_PARCELABLE_ARRAY = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putSparseParcelableArray(key, (SparseArray<? extends Parcelable>) value);
+            return true;
+        }
+    };
+
+    static final BundleCodec SERIALIZABLE = new BundleCodec() {
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putSerializable(key, (Serializable) value);
+            return true;
+        }
+
+        @Override
+        Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+            final Object stored = state.get(key);
+
+            return stored instanceof byte[] ? decode((byte[]) stored, classLoader) : stored;
+        }
+
+        @Override
+        boolean isEncoding() {
+            return true;
+        }
+
+        @Override
+        byte[] encode(final Object value) {
+            return Serialization.serialize((Serializable) value);
+        }
+
+        @Override
+        Object decode(final byte[] data, final ClassLoader classLoader) {
+            return Serialization.deserialize(data, classLoader);
+        }
+
+        @Override
+        InjectorMetrics.CodecPath getPath(final Object value) {
+            return InjectorMetrics.CodecPath.SERIALIZABLE;
+        }
+    };
+
+    private BundleCodecs() {
+    }
+
+    /**
+     * Resolves codec from declared field type. Values of Object, interface and abstract class fields are checked on every save.
+     */
+    static BundleCodec forType(final Class<?> type, final Type genericType) {
+        final BundleCodec elementCodec = forElementType(genericType);
+
+        if (type.isInterface() || Object.class.equals(type) || isAbstractClass(type)) {
+            return new DynamicCodec(elementCodec);
+        }
+
+        if (type.isAnnotationPresent(InjectValueType.class)) {
+            return ValueTypeCodec.forClass(type);
+        }
+
+        final BundleCodec compactCodec = CompactCodecs.forType(type, genericType);
+
+        if (null != compactCodec) {
+            return compactCodec;
+        }
+
+        final BundleCodec codec = forClass(type, elementCodec);
+
+        return null == codec ? new DynamicCodec(elementCodec) : codec;
+    }
+
+    /**
+     * Primitive and array classes are abstract too, but their values have exactly the declared type.
+     */
+    private static boolean isAbstractClass(final Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && Modifier.isAbstract(type.getModifiers());
+    }
+
+    /**
+     * Runtime check of value. Order is important: more specific types are checked first.
+     *
+     * @param elementCodec codec resolved from field's type argument for ArrayList and SparseArray values, may be null
+     * @return codec or null if value is not supported
+     */
+    static BundleCodec forValue(final Object value, final BundleCodec elementCodec) {
+        return forClass(value.getClass(), elementCodec);
+    }
+
+    private static BundleCodec forClass(final Class<?> type, final BundleCodec elementCodec) {
+        if (Boolean.class.equals(type) || boolean.class.equals(type)) {
+            return BOOLEAN;
+        } else if (boolean[].class.equals(type)) {
+            return BOOLEAN_ARRAY;
+        } else if (Byte.class.equals(type) || byte.class.equals(type)) {
+            return BYTE;
+        } else if (byte[].class.equals(type)) {
+            return BYTE_ARRAY;
+        } else if (Character.class.equals(type) || char.class.equals(type)) {
+            return CHAR;
+        } else if (char[].class.equals(type)) {
+            return CHAR_ARRAY;
+        } else if (Double.class.equals(type) || double.class.equals(type)) {
+            return DOUBLE;
+        } else if (double[].class.equals(type)) {
+            return DOUBLE_ARRAY;
+        } else if (Float.class.equals(type) || float.class.equals(type)) {
+            return FLOAT;
+        } else if (float[].class.equals(type)) {
+            return FLOAT_ARRAY;
+        } else if (Integer.class.equals(type) || int.class.equals(type)) {
+            return INT;
+        } else if (int[].class.equals(type)) {
+            return INT_ARRAY;
+        } else if (Long.class.equals(type) || long.class.equals(type)) {
+            return LONG;
+        } else if (long[].class.equals(type)) {
+            return LONG_ARRAY;
+        } else if (Short.class.equals(type) || short.class.equals(type)) {
+            return SHORT;
+        } else if (short[].class.equals(type)) {
+            return SHORT_ARRAY;
+        } else if (String.class.equals(type)) {
+            return STRING;
+        } else if (String[].class.equals(type)) {
+            return STRING_ARRAY;
+        } else if (CharSequence.class.isAssignableFrom(type)) {
+            return CHAR_SEQUENCE;
+        } else if (CharSequence[].class.isAssignableFrom(type)) {
+            return CHAR_SEQUENCE_ARRAY;
+        } else if (Bundle.class.equals(type)) {
+            return BUNDLE;
+        } else if (Parcelable.class.isAssignableFrom(type)) {
+            return PARCELABLE;
+        } else if (Parcelable[].class.isAssignableFrom(type)) {
+            return PARCELABLE_ARRAY;
+        } else if (ArrayList.class.isAssignableFrom(type)) {
+            if (null != elementCodec) {
+                return elementCodec;
+            }
+        } else if (SparseArray.class.isAssignableFrom(type)) {
+            if (elementCodec == PARCELABLE_ARRAY_LIST) {
+                return SPARSE_PARCELABLE_ARRAY;
+            }
+            return null;
+        }
+
+        if (Serializable.class.isAssignableFrom(type)) {
+            return SERIALIZABLE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Codec for ArrayList with the single type argument of generic type. For Parcelable argument PARCELABLE_ARRAY_LIST is returned,
+     * it is also used as a marker for SparseArray of Parcelable.
+     */
+    private static BundleCodec forElementType(final Type genericType) {
+        if (!(genericType instanceof ParameterizedType)) {
+            return null;
+        }
+
+        final Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+
+        if (1 != typeArguments.length) {
+            return null;
+        }
+
+        Type oneType = typeArguments[0];
+
+        if (oneType instanceof WildcardType) {
+            final WildcardType wildType = (WildcardType) oneType;
+            final Type[] upperBounds = wildType.getUpperBounds();
+
+            if (0 != wildType.getLowerBounds().length || 1 != upperBounds.length) {
+                return null;
+            }
+
+            oneType = upperBounds[0];
+        }
+
+        if (!(oneType instanceof Class)) {
+            return null;
+        }
+
+        final Class<?> oneClass = (Class<?>) oneType;
+
+        if (String.class.isAssignableFrom(oneClass)) {
+            return STRING_ARRAY_LIST;
+        } else if (CharSequence.class.isAssignableFrom(oneClass)) {
+            return CHAR_SEQUENCE_ARRAY_LIST;
+        } else if (Integer.class.isAssignableFrom(oneClass)) {
+            return INTEGER_ARRAY_LIST;
+        } else if (Parcelable.class.isAssignableFrom(oneClass)) {
+            return PARCELABLE_ARRAY_LIST;
+        }
+
+        return null;
+    }
+
+    private static final class DynamicCodec extends BundleCodec {
+
+        private final BundleCodec mElementCodec;
+
+        DynamicCodec(final BundleCodec elementCodec) {
+            mElementCodec = elementCodec;
+        }
+
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            final BundleCodec codec = forValue(value, mElementCodec);
+
+            return null != codec && codec.put(state, key, value);
+        }
+
+        @Override
+        Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+            final Object stored = state.get(key);
+            final byte[] data = getEncoded(stored);
+
+            return null == data ? stored : decode(data, classLoader);
+        }
+
+        @Override
+        boolean isEncoding() {
+            return true;
+        }
+
+        @Override
+        boolean isPuttingByteArrays() {
+            // byte array values are put as is
+            return true;
+        }
+
+        @Override
+        byte[] encode(final Object value) {
+            final BundleCodec codec = forValue(value, mElementCodec);
+
+            // only Serializable values are encoded, their bytes describe the type themselves
+            return codec == SERIALIZABLE ? codec.encode(value) : null;
+        }
+
+        @Override
+        Object decode(final byte[] data, final ClassLoader classLoader) {
+            return SERIALIZABLE.decode(data, classLoader);
+        }
+
+        @Override
+        InjectorMetrics.CodecPath getPath(final Object value) {
+            if (null == value) {
+                return InjectorMetrics.CodecPath.SERIALIZABLE;
+            }
+
+            final BundleCodec codec = forValue(value, mElementCodec);
+
+            return null == codec ? InjectorMetrics.CodecPath.BUNDLE : codec.getPath(value);
+        }
+    }
+}
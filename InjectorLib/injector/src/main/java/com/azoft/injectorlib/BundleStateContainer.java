@@ -0,0 +1,237 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * StateContainer that writes every field as a separate Bundle entry.
+ */
+public final class BundleStateContainer implements StateContainer {
+
+    private final Bundle mBundle;
+
+    public BundleStateContainer(@NonNull final Bundle bundle) {
+        mBundle = bundle;
+    }
+
+    @NonNull
+    public Bundle getBundle() {
+        return mBundle;
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        return mBundle.containsKey(key);
+    }
+
+    @Override
+    public Object get(final String key) {
+        return mBundle.get(key);
+    }
+
+    @Override
+    public void remove(final String key) {
+        mBundle.remove(key);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return mBundle.keySet();
+    }
+
+    @Override
+    public void putBoolean(final String key, final boolean value) {
+        mBundle.putBoolean(key, value);
+    }
+
+    @Override
+    public void putByte(final String key, final byte value) {
+        mBundle.putByte(key, value);
+    }
+
+    @Override
+    public void putChar(final String key, final char value) {
+        mBundle.putChar(key, value);
+    }
+
+    @Override
+    public void putShort(final String key, final short value) {
+        mBundle.putShort(key, value);
+    }
+
+    @Override
+    public void putInt(final String key, final int value) {
+        mBundle.putInt(key, value);
+    }
+
+    @Override
+    public void putLong(final String key, final long value) {
+        mBundle.putLong(key, value);
+    }
+
+    @Override
+    public void putFloat(final String key, final float value) {
+        mBundle.putFloat(key, value);
+    }
+
+    @Override
+    public void putDouble(final String key, final double value) {
+        mBundle.putDouble(key, value);
+    }
+
+    @Override
+    public boolean getBoolean(final String key) {
+        return mBundle.getBoolean(key);
+    }
+
+    @Override
+    public byte getByte(final String key) {
+        return mBundle.getByte(key);
+    }
+
+    @Override
+    public char getChar(final String key) {
+        return mBundle.getChar(key);
+    }
+
+    @Override
+    public short getShort(final String key) {
+        return mBundle.getShort(key);
+    }
+
+    @Override
+    public int getInt(final String key) {
+        return mBundle.getInt(key);
+    }
+
+    @Override
+    public long getLong(final String key) {
+        return mBundle.getLong(key);
+    }
+
+    @Override
+    public float getFloat(final String key) {
+        return mBundle.getFloat(key);
+    }
+
+    @Override
+    public double getDouble(final String key) {
+        return mBundle.getDouble(key);
+    }
+
+    @Override
+    public void putBooleanArray(final String key, final boolean[] value) {
+        mBundle.putBooleanArray(key, value);
+    }
+
+    @Override
+    public void putByteArray(final String key, final byte[] value) {
+        mBundle.putByteArray(key, value);
+    }
+
+    @Override
+    public void putCharArray(final String key, final char[] value) {
+        mBundle.putCharArray(key, value);
+    }
+
+    @Override
+    public void putShortArray(final String key, final short[] value) {
+        mBundle.putShortArray(key, value);
+    }
+
+    @Override
+    public void putIntArray(final String key, final int[] value) {
+        mBundle.putIntArray(key, value);
+    }
+
+    @Override
+    public void putLongArray(final String key, final long[] value) {
+        mBundle.putLongArray(key, value);
+    }
+
+    @Override
+    public void putFloatArray(final String key, final float[] value) {
+        mBundle.putFloatArray(key, value);
+    }
+
+    @Override
+    public void putDoubleArray(final String key, final double[] value) {
+        mBundle.putDoubleArray(key, value);
+    }
+
+    @Override
+    public byte[] getByteArray(final String key) {
+        return mBundle.getByteArray(key);
+    }
+
+    @Override
+    public void putString(final String key, final String value) {
+        mBundle.putString(key, value);
+    }
+
+    @Override
+    public void putStringArray(final String key, final String[] value) {
+        mBundle.putStringArray(key, value);
+    }
+
+    @Override
+    public void putCharSequence(final String key, final CharSequence value) {
+        mBundle.putCharSequence(key, value);
+    }
+
+    @Override
+    public void putCharSequenceArray(final String key, final CharSequence[] value) {
+        mBundle.putCharSequenceArray(key, value);
+    }
+
+    @Override
+    public void putBundle(final String key, final Bundle value) {
+        mBundle.putBundle(key, value);
+    }
+
+    @Override
+    public void putParcelable(final String key, final Parcelable value) {
+        mBundle.putParcelable(key, value);
+    }
+
+    @Override
+    public void putParcelableArray(final String key, final Parcelable[] value) {
+        mBundle.putParcelableArray(key, value);
+    }
+
+    @Override
+    public void putStringArrayList(final String key, final ArrayList<String> value) {
+        mBundle.putStringArrayList(key, value);
+    }
+
+    @Override
+    public void putCharSequenceArrayList(final String key, final ArrayList<CharSequence> value) {
+        mBundle.putCharSequenceArrayList(key, value);
+    }
+
+    @Override
+    public void putIntegerArrayList(final String key, final ArrayList<Integer> value) {
+        mBundle.putIntegerArrayList(key, value);
+    }
+
+    @Override
+    public void putParcelableArrayList(final String key, final ArrayList<? extends Parcelable> value) {
+        mBundle.putParcelableArrayList(key, value);
+    }
+
+    @Override
+    public void putSparseParcelableArray(final String key, final SparseArray<? extends Parcelable> value) {
+        mBundle.putSparseParcelableArray(key, value);
+    }
+
+    @Override
+    public void putSerializable(final String key, final Serializable value) {
+        mBundle.putSerializable(key, value);
+    }
+}
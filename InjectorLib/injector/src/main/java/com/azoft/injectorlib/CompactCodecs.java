@@ -0,0 +1,529 @@
+package com.azoft.injectorlib;
+
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+
+import java.io.Serializable;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Codecs of collections that Bundle can't put as is. Value is written as byte array: format byte, size and arrays of keys
+ * and values. Collections that don't fit the format (subclass, null or mistyped element) are saved as Serializable.
+ * Sparse arrays are not Serializable, so saving their subclasses fails with "Could not save value".
+ */
+@SuppressWarnings("unchecked")
+final class CompactCodecs {
+
+    private static final byte FORMAT_COMPACT = 1;
+
+    static final BundleCodec STRING_INTEGER_HASH_MAP = new CompactCodec() {
+        @Override
+        boolean isCompact(final Object value) {
+            if (HashMap.class != value.getClass()) {
+                return false;
+            }
+
+            for (final Map.Entry<?, ?> entry : ((HashMap<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof Integer)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final HashMap<String, Integer> map = (HashMap<String, Integer>) value;
+            final byte[][] keys = new byte[map.size()][];
+            final int[] values = new int[map.size()];
+            int size = 5 + 8 * keys.length;
+            int index = 0;
+
+            for (final Map.Entry<String, Integer> entry : map.entrySet()) {
+                keys[index] = entry.getKey().getBytes(BinaryBuffers.UTF_8);
+                values[index] = entry.getValue();
+                size += keys[index].length;
+                index++;
+            }
+
+            final ByteBuffer buffer = allocate(size, keys.length);
+
+            putStrings(buffer, keys);
+            BinaryBuffers.putArray(buffer, values);
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final String[] keys = getStrings(buffer, size);
+            final HashMap<String, Integer> map = new HashMap<>(Math.max(4, size * 4 / 3 + 1));
+
+            for (final String key : keys) {
+                map.put(key, buffer.getInt());
+            }
+
+            return map;
+        }
+    };
+
+    static final BundleCodec LONG_ARRAY_LIST = new CompactCodec() {
+        @Override
+        boolean isCompact(final Object value) {
+            if (ArrayList.class != value.getClass()) {
+                return false;
+            }
+
+            for (final Object element : (ArrayList<?>) value) {
+                if (!(element instanceof Long)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final ArrayList<Long> list = (ArrayList<Long>) value;
+            final ByteBuffer buffer = allocate(5 + 8 * list.size(), list.size());
+
+            for (final Long element : list) {
+                buffer.putLong(element);
+            }
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final ArrayList<Long> list = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                list.add(buffer.getLong());
+            }
+
+            return list;
+        }
+    };
+
+    static final BundleCodec STRING_LINKED_HASH_SET = new CompactCodec() {
+        @Override
+        boolean isCompact(final Object value) {
+            if (LinkedHashSet.class != value.getClass()) {
+                return false;
+            }
+
+            for (final Object element : (LinkedHashSet<?>) value) {
+                if (!(element instanceof String)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final LinkedHashSet<String> set = (LinkedHashSet<String>) value;
+            final byte[][] elements = new byte[set.size()][];
+            int size = 5 + 4 * elements.length;
+            int index = 0;
+
+            for (final String element : set) {
+                elements[index] = element.getBytes(BinaryBuffers.UTF_8);
+                size += elements[index].length;
+                index++;
+            }
+
+            final ByteBuffer buffer = allocate(size, elements.length);
+
+            putStrings(buffer, elements);
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final LinkedHashSet<String> set = new LinkedHashSet<>(Math.max(4, size * 4 / 3 + 1));
+
+            for (final String element : getStrings(buffer, size)) {
+                set.add(element);
+            }
+
+            return set;
+        }
+    };
+
+    static final BundleCodec SPARSE_INT_ARRAY = new CompactCodec() {
+        @Override
+        boolean isCompact(final Object value) {
+            return SparseIntArray.class == value.getClass();
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final SparseIntArray array = (SparseIntArray) value;
+            final int size = array.size();
+            final ByteBuffer buffer = allocate(5 + 8 * size, size);
+
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(array.keyAt(i));
+            }
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(array.valueAt(i));
+            }
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final int[] keys = BinaryBuffers.getInts(buffer, size);
+            final SparseIntArray array = new SparseIntArray(size);
+
+            for (final int key : keys) {
+                array.append(key, buffer.getInt());
+            }
+
+            return array;
+        }
+    };
+
+    static final BundleCodec SPARSE_BOOLEAN_ARRAY = new CompactCodec() {
+        @Override
+        boolean isCompact(final Object value) {
+            return SparseBooleanArray.class == value.getClass();
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final SparseBooleanArray array = (SparseBooleanArray) value;
+            final int size = array.size();
+            final ByteBuffer buffer = allocate(5 + 5 * size, size);
+
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(array.keyAt(i));
+            }
+            for (int i = 0; i < size; i++) {
+                buffer.put((byte) (array.valueAt(i) ? 1 : 0));
+            }
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final int[] keys = BinaryBuffers.getInts(buffer, size);
+            final SparseBooleanArray array = new SparseBooleanArray(size);
+
+            for (final int key : keys) {
+                array.append(key, 0 != buffer.get());
+            }
+
+            return array;
+        }
+    };
+
+    /**
+     * Used only when android.util.SparseLongArray exists, API 18.
+     */
+    static final BundleCodec SPARSE_LONG_ARRAY = new CompactCodec() {
+        @Override
+        boolean isCompact(final Object value) {
+            return SparseLongArray.class == value.getClass();
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final SparseLongArray array = (SparseLongArray) value;
+            final int size = array.size();
+            final ByteBuffer buffer = allocate(5 + 12 * size, size);
+
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(array.keyAt(i));
+            }
+            for (int i = 0; i < size; i++) {
+                buffer.putLong(array.valueAt(i));
+            }
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final int[] keys = BinaryBuffers.getInts(buffer, size);
+            final SparseLongArray array = new SparseLongArray(size);
+
+            for (final int key : keys) {
+                array.append(key, buffer.getLong());
+            }
+
+            return array;
+        }
+    };
+
+    private CompactCodecs() {
+    }
+
+    /**
+     * @return compact codec for exactly this declared type or null
+     */
+    static BundleCodec forType(final Class<?> type, final Type genericType) {
+        if (SparseIntArray.class.equals(type)) {
+            return SPARSE_INT_ARRAY;
+        } else if (SparseBooleanArray.class.equals(type)) {
+            return SPARSE_BOOLEAN_ARRAY;
+        } else if ("android.util.SparseLongArray".equals(type.getName())) {
+            // compared by name, class is missing before API 18
+            return SPARSE_LONG_ARRAY;
+        }
+
+        final Type[] typeArguments = genericType instanceof ParameterizedType
+                ? ((ParameterizedType) genericType).getActualTypeArguments() : null;
+
+        if (null == typeArguments) {
+            return null;
+        } else if (HashMap.class.equals(type)) {
+            return String.class.equals(typeArguments[0]) && Integer.class.equals(typeArguments[1]) ? STRING_INTEGER_HASH_MAP : null;
+        } else if (ArrayList.class.equals(type)) {
+            return Long.class.equals(typeArguments[0]) ? LONG_ARRAY_LIST : null;
+        } else if (LinkedHashSet.class.equals(type)) {
+            return String.class.equals(typeArguments[0]) ? STRING_LINKED_HASH_SET : null;
+        } else if ("android.util.LongSparseArray".equals(type.getName())) {
+            // compared by name, class is missing before API 16
+            final Type valueType = typeArguments[0];
+
+            return String.class.equals(valueType) || Integer.class.equals(valueType) || Long.class.equals(valueType)
+                    ? new LongSparseArrayCodec((Class<?>) valueType) : null;
+        }
+
+        return null;
+    }
+
+    private static ByteBuffer allocate(final int capacity, final int size) {
+        final ByteBuffer buffer = ByteBuffer.allocate(capacity);
+
+        buffer.put(FORMAT_COMPACT);
+        buffer.putInt(size);
+
+        return buffer;
+    }
+
+    /**
+     * Writes lengths of all strings first, then their bytes.
+     */
+    private static void putStrings(final ByteBuffer buffer, final byte[][] strings) {
+        for (final byte[] string : strings) {
+            buffer.putInt(string.length);
+        }
+        for (final byte[] string : strings) {
+            buffer.put(string);
+        }
+    }
+
+    private static String[] getStrings(final ByteBuffer buffer, final int size) {
+        final int[] lengths = BinaryBuffers.getInts(buffer, size);
+        final String[] strings = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            strings[i] = BinaryBuffers.getString(buffer, lengths[i]);
+        }
+
+        return strings;
+    }
+
+    /**
+     * Compact form is always a byte array in container, other values are put as Serializable, or rejected when they are not.
+     */
+    private abstract static class CompactCodec extends BundleCodec {
+
+        /**
+         * @return false if value must be saved as Serializable
+         */
+        boolean isCompact(final Object value) {
+            return true;
+        }
+
+        abstract byte[] encodeCompact(Object value);
+
+        abstract Object decodeCompact(ByteBuffer buffer, int size);
+
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            if (isCompact(value)) {
+                state.putByteArray(key, encodeCompact(value));
+                return true;
+            }
+
+            return value instanceof Serializable && BundleCodecs.SERIALIZABLE.put(state, key, value);
+        }
+
+        @Override
+        Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+            final Object stored = state.get(key);
+
+            // Serializable fallback and state saved before compact codecs are restored as is
+            return stored instanceof byte[] ? decode((byte[]) stored, classLoader) : stored;
+        }
+
+        @Override
+        boolean isEncoding() {
+            return true;
+        }
+
+        @Override
+        byte[] encode(final Object value) {
+            if (isCompact(value)) {
+                return encodeCompact(value);
+            }
+
+            return value instanceof Serializable ? BundleCodecs.SERIALIZABLE.encode(value) : null;
+        }
+
+        @Override
+        Object decode(final byte[] data, final ClassLoader classLoader) {
+            if (FORMAT_COMPACT != data[0]) {
+                // java serialization stream starts with 0xACED
+                return BundleCodecs.SERIALIZABLE.decode(data, classLoader);
+            }
+
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+
+            buffer.get();
+
+            try {
+                final int size = buffer.getInt();
+
+                // every element takes at least one byte, so corrupted size fails before allocation
+                if (size < 0 || size > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+
+                return decodeCompact(buffer, size);
+            } catch (final BufferUnderflowException e) {
+                throw new IllegalStateException("Compact state is corrupted", e);
+            }
+        }
+
+        @Override
+        InjectorMetrics.CodecPath getPath(final Object value) {
+            return null == value || isCompact(value) ? InjectorMetrics.CodecPath.CODEC : InjectorMetrics.CodecPath.SERIALIZABLE;
+        }
+    }
+
+    /**
+     * Used only when android.util.LongSparseArray exists, API 16. Values are String, Integer or Long, each prefixed with
+     * null flag.
+     */
+    private static final class LongSparseArrayCodec extends CompactCodec {
+
+        private final Class<?> mValueType;
+
+        LongSparseArrayCodec(final Class<?> valueType) {
+            mValueType = valueType;
+        }
+
+        @Override
+        boolean isCompact(final Object value) {
+            if (LongSparseArray.class != value.getClass()) {
+                return false;
+            }
+
+            final LongSparseArray<?> array = (LongSparseArray<?>) value;
+
+            for (int i = 0; i < array.size(); i++) {
+                final Object element = array.valueAt(i);
+
+                if (null != element && !mValueType.isInstance(element)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        byte[] encodeCompact(final Object value) {
+            final LongSparseArray<?> array = (LongSparseArray<?>) value;
+            final int count = array.size();
+            final byte[][] strings = String.class.equals(mValueType) ? new byte[count][] : null;
+            int size = 5 + 9 * count;
+
+            for (int i = 0; i < count; i++) {
+                final Object element = array.valueAt(i);
+
+                if (null == element) {
+                    continue;
+                }
+
+                if (null != strings) {
+                    strings[i] = ((String) element).getBytes(BinaryBuffers.UTF_8);
+                    size += 4 + strings[i].length;
+                } else {
+                    size += Long.class.equals(mValueType) ? 8 : 4;
+                }
+            }
+
+            final ByteBuffer buffer = allocate(size, count);
+
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(array.keyAt(i));
+            }
+            for (int i = 0; i < count; i++) {
+                final Object element = array.valueAt(i);
+
+                buffer.put((byte) (null == element ? 0 : 1));
+
+                if (null == element) {
+                    continue;
+                }
+
+                if (null != strings) {
+                    buffer.putInt(strings[i].length);
+                    buffer.put(strings[i]);
+                } else if (Long.class.equals(mValueType)) {
+                    buffer.putLong((Long) element);
+                } else {
+                    buffer.putInt((Integer) element);
+                }
+            }
+
+            return buffer.array();
+        }
+
+        @Override
+        Object decodeCompact(final ByteBuffer buffer, final int size) {
+            final long[] keys = (long[]) BinaryBuffers.getArray(buffer, long.class, size);
+            final LongSparseArray<Object> array = new LongSparseArray<>(size);
+
+            for (final long key : keys) {
+                Object element = null;
+
+                if (0 != buffer.get()) {
+                    if (String.class.equals(mValueType)) {
+                        element = BinaryBuffers.getString(buffer, buffer.getInt());
+                    } else if (Long.class.equals(mValueType)) {
+                        element = buffer.getLong();
+                    } else {
+                        element = buffer.getInt();
+                    }
+                }
+
+                array.append(key, element);
+            }
+
+            return array;
+        }
+    }
+}
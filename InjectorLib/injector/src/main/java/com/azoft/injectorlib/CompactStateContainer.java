@@ -0,0 +1,290 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StateContainer that writes fields of one model instance to its own Bundle under key hashes instead of full keys. Only keys
+ * given to the constructor get hashed ids, and only if no other given key has the same hash. Other keys are written under
+ * full key, so a value is never read for another key.
+ */
+public final class CompactStateContainer implements StateContainer {
+
+    private static final String FULL_KEY_PREFIX = "=";
+
+    private final Bundle mBundle;
+    private final Map<String, String> mIds;
+
+    /**
+     * @param keys all keys the model may be saved with, state must be restored with the same keys
+     */
+    public CompactStateContainer(@NonNull final Bundle bundle, @NonNull final Collection<String> keys) {
+        this(bundle, createIds(keys));
+    }
+
+    CompactStateContainer(final Bundle bundle, final Map<String, String> ids) {
+        mBundle = bundle;
+        mIds = ids;
+    }
+
+    /**
+     * @return hashed ids of keys whose hash is not shared with other key
+     */
+    static Map<String, String> createIds(final Collection<String> keys) {
+        final Map<String, String> owners = new HashMap<>();
+        final Set<String> sharedIds = new HashSet<>();
+
+        for (final String key : keys) {
+            final String id = Integer.toHexString(key.hashCode());
+            final String owner = owners.put(id, key);
+
+            if (null != owner && !owner.equals(key)) {
+                sharedIds.add(id);
+            }
+        }
+
+        final Map<String, String> ids = new HashMap<>(owners.size());
+
+        for (final Map.Entry<String, String> entry : owners.entrySet()) {
+            if (!sharedIds.contains(entry.getKey())) {
+                ids.put(entry.getValue(), entry.getKey());
+            }
+        }
+
+        return ids;
+    }
+
+    @NonNull
+    public Bundle getBundle() {
+        return mBundle;
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        return mBundle.containsKey(id(key));
+    }
+
+    @Override
+    public Object get(final String key) {
+        return mBundle.get(id(key));
+    }
+
+    @Override
+    public void remove(final String key) {
+        mBundle.remove(id(key));
+    }
+
+    /**
+     * @return ids the values are saved under, not keys passed to put methods
+     */
+    @Override
+    public Set<String> keySet() {
+        return mBundle.keySet();
+    }
+
+    @Override
+    public void putBoolean(final String key, final boolean value) {
+        mBundle.putBoolean(id(key), value);
+    }
+
+    @Override
+    public void putByte(final String key, final byte value) {
+        mBundle.putByte(id(key), value);
+    }
+
+    @Override
+    public void putChar(final String key, final char value) {
+        mBundle.putChar(id(key), value);
+    }
+
+    @Override
+    public void putShort(final String key, final short value) {
+        mBundle.putShort(id(key), value);
+    }
+
+    @Override
+    public void putInt(final String key, final int value) {
+        mBundle.putInt(id(key), value);
+    }
+
+    @Override
+    public void putLong(final String key, final long value) {
+        mBundle.putLong(id(key), value);
+    }
+
+    @Override
+    public void putFloat(final String key, final float value) {
+        mBundle.putFloat(id(key), value);
+    }
+
+    @Override
+    public void putDouble(final String key, final double value) {
+        mBundle.putDouble(id(key), value);
+    }
+
+    @Override
+    public boolean getBoolean(final String key) {
+        return mBundle.getBoolean(id(key));
+    }
+
+    @Override
+    public byte getByte(final String key) {
+        return mBundle.getByte(id(key));
+    }
+
+    @Override
+    public char getChar(final String key) {
+        return mBundle.getChar(id(key));
+    }
+
+    @Override
+    public short getShort(final String key) {
+        return mBundle.getShort(id(key));
+    }
+
+    @Override
+    public int getInt(final String key) {
+        return mBundle.getInt(id(key));
+    }
+
+    @Override
+    public long getLong(final String key) {
+        return mBundle.getLong(id(key));
+    }
+
+    @Override
+    public float getFloat(final String key) {
+        return mBundle.getFloat(id(key));
+    }
+
+    @Override
+    public double getDouble(final String key) {
+        return mBundle.getDouble(id(key));
+    }
+
+    @Override
+    public void putBooleanArray(final String key, final boolean[] value) {
+        mBundle.putBooleanArray(id(key), value);
+    }
+
+    @Override
+    public void putByteArray(final String key, final byte[] value) {
+        mBundle.putByteArray(id(key), value);
+    }
+
+    @Override
+    public void putCharArray(final String key, final char[] value) {
+        mBundle.putCharArray(id(key), value);
+    }
+
+    @Override
+    public void putShortArray(final String key, final short[] value) {
+        mBundle.putShortArray(id(key), value);
+    }
+
+    @Override
+    public void putIntArray(final String key, final int[] value) {
+        mBundle.putIntArray(id(key), value);
+    }
+
+    @Override
+    public void putLongArray(final String key, final long[] value) {
+        mBundle.putLongArray(id(key), value);
+    }
+
+    @Override
+    public void putFloatArray(final String key, final float[] value) {
+        mBundle.putFloatArray(id(key), value);
+    }
+
+    @Override
+    public void putDoubleArray(final String key, final double[] value) {
+        mBundle.putDoubleArray(id(key), value);
+    }
+
+    @Override
+    public byte[] getByteArray(final String key) {
+        return mBundle.getByteArray(id(key));
+    }
+
+    @Override
+    public void putString(final String key, final String value) {
+        mBundle.putString(id(key), value);
+    }
+
+    @Override
+    public void putStringArray(final String key, final String[] value) {
+        mBundle.putStringArray(id(key), value);
+    }
+
+    @Override
+    public void putCharSequence(final String key, final CharSequence value) {
+        mBundle.putCharSequence(id(key), value);
+    }
+
+    @Override
+    public void putCharSequenceArray(final String key, final CharSequence[] value) {
+        mBundle.putCharSequenceArray(id(key), value);
+    }
+
+    @Override
+    public void putBundle(final String key, final Bundle value) {
+        mBundle.putBundle(id(key), value);
+    }
+
+    @Override
+    public void putParcelable(final String key, final Parcelable value) {
+        mBundle.putParcelable(id(key), value);
+    }
+
+    @Override
+    public void putParcelableArray(final String key, final Parcelable[] value) {
+        mBundle.putParcelableArray(id(key), value);
+    }
+
+    @Override
+    public void putStringArrayList(final String key, final ArrayList<String> value) {
+        mBundle.putStringArrayList(id(key), value);
+    }
+
+    @Override
+    public void putCharSequenceArrayList(final String key, final ArrayList<CharSequence> value) {
+        mBundle.putCharSequenceArrayList(id(key), value);
+    }
+
+    @Override
+    public void putIntegerArrayList(final String key, final ArrayList<Integer> value) {
+        mBundle.putIntegerArrayList(id(key), value);
+    }
+
+    @Override
+    public void putParcelableArrayList(final String key, final ArrayList<? extends Parcelable> value) {
+        mBundle.putParcelableArrayList(id(key), value);
+    }
+
+    @Override
+    public void putSparseParcelableArray(final String key, final SparseArray<? extends Parcelable> value) {
+        mBundle.putSparseParcelableArray(id(key), value);
+    }
+
+    @Override
+    public void putSerializable(final String key, final Serializable value) {
+        mBundle.putSerializable(id(key), value);
+    }
+
+    private String id(final String key) {
+        final String id = mIds.get(key);
+
+        return null == id ? FULL_KEY_PREFIX + key : id;
+    }
+}
@@ -0,0 +1,191 @@
+package com.azoft.injectorlib;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec of field with InjectSavedState.compress. Encoded value gets a header byte and is deflated if it is larger than
+ * threshold, Strings are encoded as UTF-8.
+ */
+final class CompressingCodec extends BundleCodec {
+
+    private static final int FLAG_DEFLATED = 1;
+    private static final int FLAG_STRING = 2;
+
+    private static final int HEADER_SIZE = 1;
+    private static final int LENGTH_SIZE = 4;
+    /**
+     * Deflate can't compress data more than 1032 times, larger original length means corrupted state.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private final BundleCodec mCodec;
+    private final int mThreshold;
+
+    CompressingCodec(final BundleCodec codec, final int threshold) {
+        mCodec = codec;
+        mThreshold = threshold;
+    }
+
+    @Override
+    boolean put(final StateContainer state, final String key, final Object value) {
+        final byte[] data = encode(value);
+
+        if (null == data) {
+            return mCodec.put(state, key, value);
+        }
+
+        putEncoded(state, key, data);
+
+        return true;
+    }
+
+    @Override
+    Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+        final byte[] data = getEncoded(state.get(key));
+
+        // values put as is and values saved before compression was enabled are restored by wrapped codec
+        return null == data ? mCodec.get(state, key, classLoader) : decode(data, classLoader);
+    }
+
+    @Override
+    boolean isEncoding() {
+        return true;
+    }
+
+    @Override
+    boolean isPuttingByteArrays() {
+        return mCodec.isPuttingByteArrays();
+    }
+
+    @Override
+    byte[] encode(final Object value) {
+        final byte[] data;
+        int flags = 0;
+
+        if (mCodec.isEncoding()) {
+            data = mCodec.encode(value);
+        } else if (value instanceof String && ((String) value).length() > mThreshold / 3) {
+            // short strings are put to container as is
+            data = ((String) value).getBytes(BinaryBuffers.UTF_8);
+            flags |= FLAG_STRING;
+        } else {
+            data = null;
+        }
+
+        if (null == data) {
+            return null;
+        }
+
+        if (data.length > mThreshold) {
+            final byte[] deflated = deflate(data);
+
+            if (deflated.length < data.length) {
+                return withHeader(flags | FLAG_DEFLATED, deflated);
+            }
+        }
+
+        return withHeader(flags, data);
+    }
+
+    @Override
+    Object decode(final byte[] data, final ClassLoader classLoader) {
+        if (data.length < HEADER_SIZE) {
+            throw new IllegalStateException("Compressed state is corrupted");
+        }
+
+        final int flags = data[0];
+        final byte[] payload = 0 == (flags & FLAG_DEFLATED) ? copyPayload(data) : inflate(data);
+
+        if (0 != (flags & FLAG_STRING)) {
+            return new String(payload, BinaryBuffers.UTF_8);
+        }
+
+        return mCodec.decode(payload, classLoader);
+    }
+
+    @Override
+    InjectorMetrics.CodecPath getPath(final Object value) {
+        return mCodec.getPath(value);
+    }
+
+    private static byte[] withHeader(final int flags, final byte[] data) {
+        final byte[] result = new byte[data.length + 1];
+
+        result[0] = (byte) flags;
+        System.arraycopy(data, 0, result, 1, data.length);
+
+        return result;
+    }
+
+    private static byte[] copyPayload(final byte[] data) {
+        final byte[] payload = new byte[data.length - 1];
+
+        System.arraycopy(data, 1, payload, 0, payload.length);
+
+        return payload;
+    }
+
+    /**
+     * @return original length as 4 bytes followed by deflated data
+     */
+    private static byte[] deflate(final byte[] data) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            final byte[] buffer = new byte[8192];
+
+            out.write(data.length >>> 24);
+            out.write(data.length >>> 16);
+            out.write(data.length >>> 8);
+            out.write(data.length);
+
+            while (!deflater.finished()) {
+                final int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] data) {
+        final int offset = HEADER_SIZE + LENGTH_SIZE;
+
+        if (data.length < offset) {
+            throw new IllegalStateException("Compressed state is corrupted");
+        }
+
+        final int length = (data[1] & 0xff) << 24 | (data[2] & 0xff) << 16 | (data[3] & 0xff) << 8 | data[4] & 0xff;
+
+        // length comes from state, check it before allocating
+        if (length < 0 || length > (long) (data.length - offset) * MAX_DEFLATE_RATIO) {
+            throw new IllegalStateException("Compressed state is corrupted");
+        }
+
+        final byte[] result = new byte[length];
+        final Inflater inflater = new Inflater();
+
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+
+            if (length != inflater.inflate(result) || !inflater.finished()) {
+                throw new IllegalStateException("Compressed state is corrupted");
+            }
+
+            return result;
+        } catch (final DataFormatException e) {
+            throw new IllegalStateException("Compressed state is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
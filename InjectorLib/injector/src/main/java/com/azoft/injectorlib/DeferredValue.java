@@ -0,0 +1,78 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Value of an encoded field saved while InjectorRetainedStore is enabled. Field codec runs only when the Bundle is parceled,
+ * so state that never leaves the process is not encoded at all. Value is encoded as it is at the moment of parceling.
+ */
+public final class DeferredValue implements Parcelable {
+
+    private static final String KEY_VALUE = "injector__deferred_value";
+
+    private final BundleCodec mCodec;
+    private final Object mValue;
+    private final Bundle mParceled;
+
+    DeferredValue(final BundleCodec codec, final Object value) {
+        mCodec = codec;
+        mValue = value;
+        mParceled = null;
+    }
+
+    private DeferredValue(final Bundle parceled) {
+        mCodec = null;
+        mValue = null;
+        mParceled = parceled;
+    }
+
+    /**
+     * @param codec codec of the field the value was saved for
+     * @return live value if it was not parceled, decoded value otherwise
+     */
+    Object get(final BundleCodec codec, final ClassLoader classLoader) {
+        if (null == mParceled) {
+            return mValue;
+        }
+
+        mParceled.setClassLoader(classLoader);
+
+        return codec.get(new BundleStateContainer(mParceled), KEY_VALUE, classLoader);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(final Parcel dest, final int flags) {
+        if (null != mParceled) {
+            dest.writeBundle(mParceled);
+            return;
+        }
+
+        final Bundle bundle = new Bundle(1);
+
+        if (!mCodec.put(new BundleStateContainer(bundle), KEY_VALUE, mValue)) {
+            throw new IllegalStateException("Could not save deferred value: " + mValue);
+        }
+
+        dest.writeBundle(bundle);
+    }
+
+    public static final Parcelable.Creator<DeferredValue> CREATOR = new Parcelable.Creator<DeferredValue>() {
+
+        @Override
+        public DeferredValue createFromParcel(final Parcel source) {
+            return new DeferredValue(source.readBundle(DeferredValue.class.getClassLoader()));
+        }
+
+        @Override
+        public DeferredValue[] newArray(final int size) {
+            return new DeferredValue[size];
+        }
+    };
+}
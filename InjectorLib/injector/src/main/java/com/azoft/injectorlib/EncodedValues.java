@@ -0,0 +1,89 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Encoded forms of field values from previous saves of one model. Used only from the thread that saves model state.
+ */
+final class EncodedValues {
+
+    private Map<SavedField, Entry> mEntries;
+
+    /**
+     * @return true if encoded form of value may be reused while field holds the same instance
+     */
+    static boolean isTracked(final SavedField savedField, final Object value) {
+        return savedField.isEncoded() && (savedField.isReuseEncoded() || value instanceof InjectVersioned);
+    }
+
+    /**
+     * @return entry saved for the same instance and version of value or null
+     */
+    Entry get(final SavedField savedField, final Object value) {
+        if (null == mEntries) {
+            return null;
+        }
+
+        final Entry entry = mEntries.get(savedField);
+
+        if (null != entry && entry.mValue == value && entry.mVersion == getVersion(value)) {
+            return entry;
+        }
+
+        return null;
+    }
+
+    Entry put(final SavedField savedField, final Object value, final byte[] data) {
+        if (null == mEntries) {
+            mEntries = new IdentityHashMap<>();
+        }
+
+        final Entry entry = new Entry(value, getVersion(value), data);
+        mEntries.put(savedField, entry);
+
+        return entry;
+    }
+
+    void remove(final SavedField savedField) {
+        if (null != mEntries) {
+            mEntries.remove(savedField);
+        }
+    }
+
+    private static long getVersion(final Object value) {
+        if (value instanceof InjectLazy) {
+            return ((InjectLazy<?>) value).getVersion();
+        }
+
+        return value instanceof InjectVersioned ? ((InjectVersioned) value).getStateVersion() : 0;
+    }
+
+    static final class Entry {
+
+        private final Object mValue;
+        private final long mVersion;
+        private final byte[] mData;
+        private Bundle mBlobHandle;
+
+        Entry(final Object value, final long version, final byte[] data) {
+            mValue = value;
+            mVersion = version;
+            mData = data;
+        }
+
+        byte[] getData() {
+            return mData;
+        }
+
+        Bundle getBlobHandle() {
+            return mBlobHandle;
+        }
+
+        void setBlobHandle(final Bundle blobHandle) {
+            mBlobHandle = blobHandle;
+        }
+    }
+}
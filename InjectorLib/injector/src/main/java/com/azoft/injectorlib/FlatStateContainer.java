@@ -0,0 +1,619 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StateContainer that writes fields of a model to one byte array entry. Parcelable, Bundle and CharSequence values are put
+ * to fallback container as is.
+ */
+@SuppressWarnings("unused")
+public final class FlatStateContainer implements StateContainer {
+
+    private static final int MAGIC = 0x494e4a46;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_BYTE = 2;
+    private static final byte TYPE_CHAR = 3;
+    private static final byte TYPE_SHORT = 4;
+    private static final byte TYPE_INT = 5;
+    private static final byte TYPE_LONG = 6;
+    private static final byte TYPE_FLOAT = 7;
+    private static final byte TYPE_DOUBLE = 8;
+    private static final byte TYPE_BOOLEAN_ARRAY = 9;
+    private static final byte TYPE_BYTE_ARRAY = 10;
+    private static final byte TYPE_CHAR_ARRAY = 11;
+    private static final byte TYPE_SHORT_ARRAY = 12;
+    private static final byte TYPE_INT_ARRAY = 13;
+    private static final byte TYPE_LONG_ARRAY = 14;
+    private static final byte TYPE_FLOAT_ARRAY = 15;
+    private static final byte TYPE_DOUBLE_ARRAY = 16;
+    private static final byte TYPE_STRING = 17;
+    private static final byte TYPE_STRING_ARRAY = 18;
+    private static final byte TYPE_STRING_ARRAY_LIST = 19;
+    private static final byte TYPE_INTEGER_ARRAY_LIST = 20;
+    private static final byte TYPE_SERIALIZABLE = 21;
+
+    private final Map<String, Value> mValues = new LinkedHashMap<>();
+    private final StateContainer mFallback;
+    private final ClassLoader mClassLoader;
+
+    /**
+     * @param fallback    container for values that can't be flattened, may be null if model has no such fields
+     * @param classLoader class loader for Serializable values
+     */
+    public FlatStateContainer(@Nullable final StateContainer fallback, @Nullable final ClassLoader classLoader) {
+        mFallback = fallback;
+        mClassLoader = classLoader;
+    }
+
+    /**
+     * Reads container written with {@link #toByteArray()}.
+     */
+    @NonNull
+    public static FlatStateContainer read(@NonNull final byte[] data, @Nullable final StateContainer fallback,
+                                          @Nullable final ClassLoader classLoader) {
+        final FlatStateContainer container = new FlatStateContainer(fallback, classLoader);
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        try {
+            if (MAGIC != buffer.getInt()) {
+                throw new IllegalStateException("Not a flat state");
+            }
+
+            final int count = buffer.getInt();
+
+            for (int i = 0; i < count; i++) {
+                final String key = readString(buffer);
+                final byte type = buffer.get();
+
+                container.mValues.put(key, new Value(type, readValue(buffer, type)));
+            }
+        } catch (final BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalStateException("Flat state is corrupted", e);
+        }
+
+        return container;
+    }
+
+    @NonNull
+    public byte[] toByteArray() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(mValues.size());
+
+            for (final Map.Entry<String, Value> entry : mValues.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeByte(entry.getValue().mType);
+                writeValue(out, entry.getValue());
+            }
+
+            out.flush();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not write flat state", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return true if no values were written to the array, values of fallback container are not counted
+     */
+    public boolean isEmpty() {
+        return mValues.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        return mValues.containsKey(key) || null != mFallback && mFallback.containsKey(key);
+    }
+
+    @Override
+    public Object get(final String key) {
+        final Value value = mValues.get(key);
+
+        if (null == value) {
+            return null == mFallback ? null : mFallback.get(key);
+        }
+
+        if (TYPE_SERIALIZABLE == value.mType) {
+            return Serialization.deserialize((byte[]) value.mValue, mClassLoader);
+        }
+
+        return value.mValue;
+    }
+
+    @Override
+    public void remove(final String key) {
+        mValues.remove(key);
+
+        if (null != mFallback) {
+            mFallback.remove(key);
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        final Set<String> keys = new LinkedHashSet<>(mValues.keySet());
+
+        if (null != mFallback) {
+            keys.addAll(mFallback.keySet());
+        }
+
+        return keys;
+    }
+
+    @Override
+    public void putBoolean(final String key, final boolean value) {
+        put(key, TYPE_BOOLEAN, value);
+    }
+
+    @Override
+    public void putByte(final String key, final byte value) {
+        put(key, TYPE_BYTE, value);
+    }
+
+    @Override
+    public void putChar(final String key, final char value) {
+        put(key, TYPE_CHAR, value);
+    }
+
+    @Override
+    public void putShort(final String key, final short value) {
+        put(key, TYPE_SHORT, value);
+    }
+
+    @Override
+    public void putInt(final String key, final int value) {
+        put(key, TYPE_INT, value);
+    }
+
+    @Override
+    public void putLong(final String key, final long value) {
+        put(key, TYPE_LONG, value);
+    }
+
+    @Override
+    public void putFloat(final String key, final float value) {
+        put(key, TYPE_FLOAT, value);
+    }
+
+    @Override
+    public void putDouble(final String key, final double value) {
+        put(key, TYPE_DOUBLE, value);
+    }
+
+    @Override
+    public boolean getBoolean(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    @Override
+    public byte getByte(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Byte ? (Byte) value : 0;
+    }
+
+    @Override
+    public char getChar(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Character ? (Character) value : 0;
+    }
+
+    @Override
+    public short getShort(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Short ? (Short) value : 0;
+    }
+
+    @Override
+    public int getInt(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Integer ? (Integer) value : 0;
+    }
+
+    @Override
+    public long getLong(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Long ? (Long) value : 0L;
+    }
+
+    @Override
+    public float getFloat(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Float ? (Float) value : 0f;
+    }
+
+    @Override
+    public double getDouble(final String key) {
+        final Object value = get(key);
+
+        return value instanceof Double ? (Double) value : 0d;
+    }
+
+    @Override
+    public void putBooleanArray(final String key, final boolean[] value) {
+        put(key, TYPE_BOOLEAN_ARRAY, value);
+    }
+
+    @Override
+    public void putByteArray(final String key, final byte[] value) {
+        put(key, TYPE_BYTE_ARRAY, value);
+    }
+
+    @Override
+    public void putCharArray(final String key, final char[] value) {
+        put(key, TYPE_CHAR_ARRAY, value);
+    }
+
+    @Override
+    public void putShortArray(final String key, final short[] value) {
+        put(key, TYPE_SHORT_ARRAY, value);
+    }
+
+    @Override
+    public void putIntArray(final String key, final int[] value) {
+        put(key, TYPE_INT_ARRAY, value);
+    }
+
+    @Override
+    public void putLongArray(final String key, final long[] value) {
+        put(key, TYPE_LONG_ARRAY, value);
+    }
+
+    @Override
+    public void putFloatArray(final String key, final float[] value) {
+        put(key, TYPE_FLOAT_ARRAY, value);
+    }
+
+    @Override
+    public void putDoubleArray(final String key, final double[] value) {
+        put(key, TYPE_DOUBLE_ARRAY, value);
+    }
+
+    @Override
+    public byte[] getByteArray(final String key) {
+        final Object value = get(key);
+
+        return value instanceof byte[] ? (byte[]) value : null;
+    }
+
+    @Override
+    public void putString(final String key, final String value) {
+        put(key, TYPE_STRING, value);
+    }
+
+    @Override
+    public void putStringArray(final String key, final String[] value) {
+        put(key, TYPE_STRING_ARRAY, value);
+    }
+
+    @Override
+    public void putCharSequence(final String key, final CharSequence value) {
+        if (null == value || value instanceof String) {
+            put(key, TYPE_STRING, value);
+        } else {
+            // spans would be lost
+            getFallback(key).putCharSequence(key, value);
+        }
+    }
+
+    @Override
+    public void putCharSequenceArray(final String key, final CharSequence[] value) {
+        getFallback(key).putCharSequenceArray(key, value);
+    }
+
+    @Override
+    public void putBundle(final String key, final Bundle value) {
+        getFallback(key).putBundle(key, value);
+    }
+
+    @Override
+    public void putParcelable(final String key, final Parcelable value) {
+        getFallback(key).putParcelable(key, value);
+    }
+
+    @Override
+    public void putParcelableArray(final String key, final Parcelable[] value) {
+        getFallback(key).putParcelableArray(key, value);
+    }
+
+    @Override
+    public void putStringArrayList(final String key, final ArrayList<String> value) {
+        put(key, TYPE_STRING_ARRAY_LIST, value);
+    }
+
+    @Override
+    public void putCharSequenceArrayList(final String key, final ArrayList<CharSequence> value) {
+        getFallback(key).putCharSequenceArrayList(key, value);
+    }
+
+    @Override
+    public void putIntegerArrayList(final String key, final ArrayList<Integer> value) {
+        put(key, TYPE_INTEGER_ARRAY_LIST, value);
+    }
+
+    @Override
+    public void putParcelableArrayList(final String key, final ArrayList<? extends Parcelable> value) {
+        getFallback(key).putParcelableArrayList(key, value);
+    }
+
+    @Override
+    public void putSparseParcelableArray(final String key, final SparseArray<? extends Parcelable> value) {
+        getFallback(key).putSparseParcelableArray(key, value);
+    }
+
+    @Override
+    public void putSerializable(final String key, final Serializable value) {
+        // serialized right away, so later changes of the value are not saved, the same as with Bundle
+        put(key, TYPE_SERIALIZABLE, null == value ? null : Serialization.serialize(value));
+    }
+
+    private void put(final String key, final byte type, final Object value) {
+        mValues.put(key, null == value ? new Value(TYPE_NULL, null) : new Value(type, value));
+    }
+
+    private StateContainer getFallback(final String key) {
+        if (null == mFallback) {
+            throw new IllegalStateException("Value for " + key + " can't be flattened and there is no fallback container");
+        }
+
+        mValues.remove(key);
+
+        return mFallback;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(final DataOutputStream out, final Value value) throws IOException {
+        switch (value.mType) {
+            case TYPE_NULL:
+                break;
+            case TYPE_BOOLEAN:
+                out.writeBoolean((Boolean) value.mValue);
+                break;
+            case TYPE_BYTE:
+                out.writeByte((Byte) value.mValue);
+                break;
+            case TYPE_CHAR:
+                out.writeChar((Character) value.mValue);
+                break;
+            case TYPE_SHORT:
+                out.writeShort((Short) value.mValue);
+                break;
+            case TYPE_INT:
+                out.writeInt((Integer) value.mValue);
+                break;
+            case TYPE_LONG:
+                out.writeLong((Long) value.mValue);
+                break;
+            case TYPE_FLOAT:
+                out.writeFloat((Float) value.mValue);
+                break;
+            case TYPE_DOUBLE:
+                out.writeDouble((Double) value.mValue);
+                break;
+            case TYPE_BOOLEAN_ARRAY: {
+                final boolean[] array = (boolean[]) value.mValue;
+                out.writeInt(array.length);
+                for (final boolean element : array) {
+                    out.writeBoolean(element);
+                }
+                break;
+            }
+            case TYPE_BYTE_ARRAY:
+            case TYPE_SERIALIZABLE: {
+                final byte[] array = (byte[]) value.mValue;
+                out.writeInt(array.length);
+                out.write(array);
+                break;
+            }
+            case TYPE_CHAR_ARRAY: {
+                final char[] array = (char[]) value.mValue;
+                out.writeInt(array.length);
+                for (final char element : array) {
+                    out.writeChar(element);
+                }
+                break;
+            }
+            case TYPE_SHORT_ARRAY: {
+                final short[] array = (short[]) value.mValue;
+                out.writeInt(array.length);
+                for (final short element : array) {
+                    out.writeShort(element);
+                }
+                break;
+            }
+            case TYPE_INT_ARRAY: {
+                final int[] array = (int[]) value.mValue;
+                out.writeInt(array.length);
+                for (final int element : array) {
+                    out.writeInt(element);
+                }
+                break;
+            }
+            case TYPE_LONG_ARRAY: {
+                final long[] array = (long[]) value.mValue;
+                out.writeInt(array.length);
+                for (final long element : array) {
+                    out.writeLong(element);
+                }
+                break;
+            }
+            case TYPE_FLOAT_ARRAY: {
+                final float[] array = (float[]) value.mValue;
+                out.writeInt(array.length);
+                for (final float element : array) {
+                    out.writeFloat(element);
+                }
+                break;
+            }
+            case TYPE_DOUBLE_ARRAY: {
+                final double[] array = (double[]) value.mValue;
+                out.writeInt(array.length);
+                for (final double element : array) {
+                    out.writeDouble(element);
+                }
+                break;
+            }
+            case TYPE_STRING:
+                writeString(out, (String) value.mValue);
+                break;
+            case TYPE_STRING_ARRAY: {
+                final String[] array = (String[]) value.mValue;
+                out.writeInt(array.length);
+                for (final String element : array) {
+                    writeString(out, element);
+                }
+                break;
+            }
+            case TYPE_STRING_ARRAY_LIST: {
+                final ArrayList<String> list = (ArrayList<String>) value.mValue;
+                out.writeInt(list.size());
+                for (final String element : list) {
+                    writeString(out, element);
+                }
+                break;
+            }
+            case TYPE_INTEGER_ARRAY_LIST: {
+                final ArrayList<Integer> list = (ArrayList<Integer>) value.mValue;
+                out.writeInt(list.size());
+                for (final Integer element : list) {
+                    out.writeBoolean(null != element);
+                    out.writeInt(null == element ? 0 : element);
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown type: " + value.mType);
+        }
+    }
+
+    private static Object readValue(final ByteBuffer buffer, final byte type) {
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return 0 != buffer.get();
+            case TYPE_BYTE:
+                return buffer.get();
+            case TYPE_CHAR:
+                return buffer.getChar();
+            case TYPE_SHORT:
+                return buffer.getShort();
+            case TYPE_INT:
+                return buffer.getInt();
+            case TYPE_LONG:
+                return buffer.getLong();
+            case TYPE_FLOAT:
+                return buffer.getFloat();
+            case TYPE_DOUBLE:
+                return buffer.getDouble();
+            case TYPE_BOOLEAN_ARRAY:
+                return BinaryBuffers.getArray(buffer, boolean.class, buffer.getInt());
+            case TYPE_BYTE_ARRAY:
+            case TYPE_SERIALIZABLE:
+                return BinaryBuffers.getArray(buffer, byte.class, buffer.getInt());
+            case TYPE_CHAR_ARRAY:
+                return BinaryBuffers.getArray(buffer, char.class, buffer.getInt());
+            case TYPE_SHORT_ARRAY:
+                return BinaryBuffers.getArray(buffer, short.class, buffer.getInt());
+            case TYPE_INT_ARRAY:
+                return BinaryBuffers.getArray(buffer, int.class, buffer.getInt());
+            case TYPE_LONG_ARRAY:
+                return BinaryBuffers.getArray(buffer, long.class, buffer.getInt());
+            case TYPE_FLOAT_ARRAY:
+                return BinaryBuffers.getArray(buffer, float.class, buffer.getInt());
+            case TYPE_DOUBLE_ARRAY:
+                return BinaryBuffers.getArray(buffer, double.class, buffer.getInt());
+            case TYPE_STRING:
+                return readString(buffer);
+            case TYPE_STRING_ARRAY: {
+                final String[] array = new String[buffer.getInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString(buffer);
+                }
+                return array;
+            }
+            case TYPE_STRING_ARRAY_LIST: {
+                final int size = buffer.getInt();
+                final ArrayList<String> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readString(buffer));
+                }
+                return list;
+            }
+            case TYPE_INTEGER_ARRAY_LIST: {
+                final int size = buffer.getInt();
+                final ArrayList<Integer> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    final boolean present = 0 != buffer.get();
+                    final int element = buffer.getInt();
+                    list.add(present ? element : null);
+                }
+                return list;
+            }
+            default:
+                throw new IllegalStateException("Flat state is corrupted, unknown type: " + type);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(BinaryBuffers.UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        return BinaryBuffers.getString(buffer, length);
+    }
+
+    private static final class Value {
+
+        private final byte mType;
+        private final Object mValue;
+
+        Value(final byte type, final Object value) {
+            mType = type;
+            mValue = value;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.azoft.injectorlib;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Custom serialization of values to byte array instead of Serializable. Register it with Injector.registerCodec or set it
+ * with InjectSavedState.codec, then it needs public no-argument constructor.
+ *
+ * @param <T> type of the value
+ */
+public interface InjectCodec<T> {
+
+    @NonNull
+    byte[] encode(@NonNull T value);
+
+    @NonNull
+    T decode(@NonNull byte[] data);
+}
@@ -0,0 +1,113 @@
+package com.azoft.injectorlib;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of user InjectCodecs. Codecs are resolved from declared field type when class is scanned.
+ */
+final class InjectCodecs {
+
+    private static final List<Registration> REGISTRATIONS = new CopyOnWriteArrayList<>();
+
+    private InjectCodecs() {
+    }
+
+    static <T> void register(final Class<T> type, final InjectCodec<? super T> codec) {
+        REGISTRATIONS.add(0, new Registration(type, codec));
+    }
+
+    /**
+     * @param type declared value type: field type or InjectLazy type argument
+     * @return codec set on annotation or registered for value type, null if there is no such codec
+     */
+    @SuppressWarnings("rawtypes")
+    static BundleCodec forField(final Field field, final Class<?> type, final InjectSavedState injectSavedState) {
+        final Class<? extends InjectCodec> codecClass = injectSavedState.codec();
+
+        if (!InjectCodec.class.equals(codecClass)) {
+            try {
+                return new CustomCodec(codecClass.newInstance());
+            } catch (final InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException("Could not create InjectCodec " + codecClass.getName() + " for field " + field.getName(), e);
+            }
+        }
+
+        for (final Registration registration : REGISTRATIONS) {
+            if (registration.mType.isAssignableFrom(type)) {
+                return new CustomCodec(registration.mCodec);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if some codec is registered for value type
+     */
+    static boolean isRegistered(final Class<?> type) {
+        for (final Registration registration : REGISTRATIONS) {
+            if (registration.mType.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class Registration {
+
+        private final Class<?> mType;
+        private final InjectCodec<?> mCodec;
+
+        Registration(final Class<?> type, final InjectCodec<?> codec) {
+            mType = type;
+            mCodec = codec;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static final class CustomCodec extends BundleCodec {
+
+        private final InjectCodec<Object> mCodec;
+
+        CustomCodec(final InjectCodec<?> codec) {
+            mCodec = (InjectCodec<Object>) codec;
+        }
+
+        @Override
+        boolean put(final StateContainer state, final String key, final Object value) {
+            state.putByteArray(key, mCodec.encode(value));
+            return true;
+        }
+
+        @Override
+        Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+            final Object stored = state.get(key);
+
+            // state saved before codec was set is restored as is
+            return stored instanceof byte[] ? mCodec.decode((byte[]) stored) : stored;
+        }
+
+        @Override
+        boolean isEncoding() {
+            return true;
+        }
+
+        @Override
+        byte[] encode(final Object value) {
+            return mCodec.encode(value);
+        }
+
+        @Override
+        Object decode(final byte[] data, final ClassLoader classLoader) {
+            return mCodec.decode(data);
+        }
+
+        @Override
+        InjectorMetrics.CodecPath getPath(final Object value) {
+            return InjectorMetrics.CodecPath.CODEC;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.azoft.injectorlib;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Holder of InjectSavedState-value that is decoded on first {@link #get()}. Only InjectCodec and Serializable values are
+ * kept encoded.
+ *
+ * <pre>
+ * &#64;InjectSavedState
+ * private InjectLazy&lt;Feed&gt; mFeed = new InjectLazy&lt;&gt;();
+ * </pre>
+ *
+ * @param <T> type of the value
+ */
+public final class InjectLazy<T> {
+
+    private final Object mLock = new Object();
+
+    private volatile boolean mDecoded;
+    private T mValue;
+    private long mVersion;
+
+    private byte[] mData;
+    private BundleCodec mCodec;
+    private ClassLoader mClassLoader;
+
+    public InjectLazy() {
+        mDecoded = true;
+    }
+
+    public InjectLazy(@Nullable final T value) {
+        mValue = value;
+        mDecoded = true;
+    }
+
+    InjectLazy(final byte[] data, final BundleCodec codec, final ClassLoader classLoader) {
+        mData = data;
+        mCodec = codec;
+        mClassLoader = classLoader;
+    }
+
+    /**
+     * Decodes value on the first call. May be called from any thread.
+     *
+     * @return value
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T get() {
+        if (!mDecoded) {
+            synchronized (mLock) {
+                if (!mDecoded) {
+                    mValue = (T) mCodec.decode(mData, mClassLoader);
+
+                    mData = null;
+                    mCodec = null;
+                    mClassLoader = null;
+                    mDecoded = true;
+                }
+            }
+        }
+
+        synchronized (mLock) {
+            return mValue;
+        }
+    }
+
+    public void set(@Nullable final T value) {
+        synchronized (mLock) {
+            mValue = value;
+            mVersion++;
+
+            mData = null;
+            mCodec = null;
+            mClassLoader = null;
+            mDecoded = true;
+        }
+    }
+
+    public boolean isDecoded() {
+        return mDecoded;
+    }
+
+    /**
+     * Decodes value on given executor, so {@link #get()} later returns it without delay.
+     */
+    public void prefetch(@NonNull final Executor executor) {
+        if (!mDecoded) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    get();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return number that changes on every {@link #set(Object)}, encoded form of the holder is reused while it is the same
+     */
+    long getVersion() {
+        synchronized (mLock) {
+            return mVersion;
+        }
+    }
+
+    /**
+     * @return encoded data if value was not decoded yet, null otherwise
+     */
+    byte[] getEncoded() {
+        synchronized (mLock) {
+            return mDecoded ? null : mData;
+        }
+    }
+}
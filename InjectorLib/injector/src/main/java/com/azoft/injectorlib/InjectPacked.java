@@ -0,0 +1,17 @@
+package com.azoft.injectorlib;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Saves primitive and primitive array InjectSavedState-fields of the class as one byte array entry. Fields with custom tag
+ * or codec are saved separately. Superclasses and subclasses are not affected, packed state saved with other set of packed
+ * fields is ignored on restore.
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface InjectPacked {
+}
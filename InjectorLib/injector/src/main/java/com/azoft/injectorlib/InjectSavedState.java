@@ -16,4 +16,40 @@ public @interface InjectSavedState {
      * @return name for store in bundle
      */
     String value() default "";
+
+    /**
+     * Optional codec to save value with instead of built-in Bundle types and Serializable.
+     *
+     * @return InjectCodec class with public no-argument constructor, InjectCodec.class means no codec
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends InjectCodec> codec() default InjectCodec.class;
+
+    /**
+     * Set to true if value is only replaced, never changed in place, to reuse its encoded form while field holds the same
+     * instance. InjectVersioned values are reused anyway.
+     *
+     * @return true to reuse encoded value
+     */
+    boolean reuseEncoded() default false;
+
+    /**
+     * Set to true to deflate encoded InjectCodec, Serializable or String value larger than {@link #compressAbove()} bytes.
+     *
+     * @return true to compress value
+     */
+    boolean compress() default false;
+
+    /**
+     * @return minimal encoded size in bytes to compress value with
+     */
+    int compressAbove() default 8192;
+
+    /**
+     * Set to true to save the instance held by several shared fields once per Bundle, restored fields hold one instance too.
+     * Not applied to View state written to Parcel.
+     *
+     * @return true to share value by reference
+     */
+    boolean shared() default false;
 }
@@ -0,0 +1,17 @@
+package com.azoft.injectorlib;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks plain class that is saved field by field instead of Serializable. Class needs constructor without arguments, its
+ * fields may be primitives, boxed primitives, Strings, enums, their arrays and other InjectValueType classes. Static and
+ * transient fields are skipped, values must not reference themselves. Values of subclasses are saved as Serializable.
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface InjectValueType {
+}
@@ -0,0 +1,13 @@
+package com.azoft.injectorlib;
+
+/**
+ * Value that reports changes of its content. Injector reuses encoded form of such value while its field holds the same
+ * instance with the same version, so unchanged InjectCodec and Serializable values are not encoded again on every save.
+ */
+public interface InjectVersioned {
+
+    /**
+     * @return number that changes every time content of this object changes
+     */
+    long getStateVersion();
+}
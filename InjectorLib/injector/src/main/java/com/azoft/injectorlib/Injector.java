@@ -2,36 +2,66 @@ package com.azoft.injectorlib;
 
 import android.app.Activity;
 import android.os.Bundle;
-import android.os.Parcelable;
+import android.os.Parcel;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
-import android.util.SparseArray;
 
-import java.io.Serializable;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 
 @SuppressWarnings("unused")
 public final class Injector {
 
     private static final List<Class<? extends AnnotationProcessor>> PROCS;
-    private List<AnnotationProcessor> mProcs;
+
+    private static final String STATE_SAVER_SUFFIX = "$$StateSaver";
+    private static final String FLAT_STATE_KEY_PREFIX = "injector__flat#";
+    private static final String COMPACT_STATE_KEY_PREFIX = "injector__compact#";
+    private static final String RETAINED_KEY_PREFIX = "injector__retained#";
+
+    private static final ConcurrentMap<Class<?>, List<BaseAnnotationProcessor>> CLASS_PROCS = new ConcurrentHashMap<>();
+    private static final Set<Class<?>> STOP_CLASSES = new CopyOnWriteArraySet<>();
+    private static final Set<String> STOP_PACKAGES = new CopyOnWriteArraySet<>();
+
+    private static volatile InjectorBlobStore sBlobStore;
+    private static volatile InjectorMetrics sMetrics;
+    private static volatile boolean sFlatState;
+    private static volatile boolean sCompactKeys;
+    private static volatile ParallelEncoder sParallelEncoder;
+    private static volatile InjectorMetadataIndex sMetadataIndex;
+    private static volatile InjectorRetainedStore sRetainedStore;
+
+    private final List<BaseAnnotationProcessor> mProcs;
+    private final EncodedValues mEncodedValues = new EncodedValues();
+    private volatile Map<String, String> mCompactIds;
 
     static {
         PROCS = new ArrayList<>();
 
         PROCS.add(SavedStateProcessor.class);
+
+        STOP_CLASSES.add(Activity.class);
+        STOP_CLASSES.add(Object.class);
+
+        STOP_PACKAGES.add("android.");
+        STOP_PACKAGES.add("androidx.");
+        STOP_PACKAGES.add("java.");
+        STOP_PACKAGES.add("javax.");
     }
 
-    private Injector() {
+    private Injector(final List<BaseAnnotationProcessor> procs) {
+        mProcs = procs;
     }
 
     public static Injector init(@NonNull final Object model) {
@@ -39,76 +69,630 @@ public final class Injector {
     }
 
     public static Injector init(@NonNull final Class<?> clazz) {
-        final Injector injector = new Injector();
+        final InjectorMetrics metrics = sMetrics;
 
-        injector.collectMembers(clazz);
+        if (null == metrics) {
+            return new Injector(getProcessors(clazz));
+        }
+
+        final long start = System.nanoTime();
+        final boolean cached = CLASS_PROCS.containsKey(clazz);
+
+        final Injector injector = new Injector(getProcessors(clazz));
+
+        metrics.onInit(clazz, cached, System.nanoTime() - start);
 
         return injector;
     }
 
-    private void collectMembers(final Class<?> clazz) {
-        mProcs = new ArrayList<>();
+    /**
+     * Stops hierarchy scan on given class. Neither this class nor its superclasses will be checked for InjectSavedState-fields.
+     *
+     * @param clazz class to stop on
+     */
+    public static void addHierarchyStopClass(@NonNull final Class<?> clazz) {
+        STOP_CLASSES.add(clazz);
+        CLASS_PROCS.clear();
+    }
 
-        Class<?> klass = clazz;
+    /**
+     * Stops hierarchy scan on any class from given package or its subpackages. "android.", "androidx.", "java." and "javax."
+     * are skipped by default.
+     *
+     * @param packagePrefix package name prefix, for example "com.example.base."
+     */
+    public static void addHierarchyStopPackage(@NonNull final String packagePrefix) {
+        STOP_PACKAGES.add(packagePrefix);
+        CLASS_PROCS.clear();
+    }
 
-        do {
-            final Field[] fields = klass.getDeclaredFields();
+    /**
+     * Registers codec for fields declared with given type or its subtypes. InjectSavedState.codec has priority, last
+     * registered codec wins if several match. Classes with generated StateSaver whose fields match a registered codec are
+     * saved with reflection.
+     *
+     * @param type  value type
+     * @param codec codec to save values with
+     */
+    public static <T> void registerCodec(@NonNull final Class<T> type, @NonNull final InjectCodec<? super T> codec) {
+        InjectCodecs.register(type, codec);
+        CLASS_PROCS.clear();
+    }
 
-            for (final Class<? extends AnnotationProcessor> annoProcClass : PROCS) {
-                AnnotationProcessor annoProc = null;
+    /**
+     * Collects metadata of given classes and their superclasses, so their first init does not scan them. May be called
+     * from any thread.
+     *
+     * @param classes model classes, for example Activities and Fragments opened from deep links
+     */
+    public static void preload(@NonNull final Class<?>... classes) {
+        for (final Class<?> clazz : classes) {
+            getProcessors(clazz);
+            TagSuffixes.preload(clazz);
+        }
+    }
 
-                try {
-                    annoProc = annoProcClass.newInstance();
-                } catch (final Exception e) {
-                    Log.d(getClass().getSimpleName(), "Could not create AnnotationProcessor", e);
+    /**
+     * Runs {@link #preload(Class[])} on given executor. Errors are logged and thrown again by init of the class.
+     *
+     * @param executor executor to scan classes on
+     * @param classes  model classes
+     */
+    public static void preloadAsync(@NonNull final Executor executor, @NonNull final Class<?>... classes) {
+        final Class<?>[] preloadClasses = classes.clone();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (final Class<?> clazz : preloadClasses) {
+                    try {
+                        preload(clazz);
+                    } catch (final RuntimeException e) {
+                        Log.d(Injector.class.getSimpleName(), "Could not preload " + clazz.getName(), e);
+                    }
                 }
+            }
+        });
+    }
 
-                if (null != annoProc) {
-                    boolean checked = false;
+    /**
+     * Enables spilling of large InjectCodec and Serializable values to blob files. Set it before any state is restored.
+     * Classes with generated StateSaver are saved with reflection while it is set.
+     *
+     * @param blobStore blob store or null to disable spilling, state saved to blobs before can still be restored while it is set
+     */
+    public static void setBlobStore(@Nullable final InjectorBlobStore blobStore) {
+        sBlobStore = blobStore;
+        CLASS_PROCS.clear();
+
+        if (null != blobStore) {
+            blobStore.collectGarbageAsync();
+        }
+    }
 
-                    for (final Field field : fields) {
-                        field.setAccessible(true);
+    /**
+     * Enables reporting of timings and sizes. Measuring sizes costs as much as parceling the state.
+     *
+     * @param metrics metrics to report to or null to disable reporting
+     */
+    public static void setMetrics(@Nullable final InjectorMetrics metrics) {
+        sMetrics = metrics;
+    }
 
-                        checked = annoProc.checkField(field) || checked;
-                    }
+    /**
+     * Enables writing all fields of a model to one byte array entry, see FlatStateContainer. State is restored in the format
+     * it was saved in.
+     *
+     * @param flatState true to write flat state
+     */
+    public static void setFlatState(final boolean flatState) {
+        sFlatState = flatState;
+    }
 
-                    if (checked) {
-                        mProcs.add(annoProc);
-                    }
+    /**
+     * Enables writing fields of each model instance to its own nested Bundle under short ids, see CompactStateContainer.
+     * Flat state takes precedence when both are enabled.
+     *
+     * @param compactKeys true to write compact keys
+     */
+    public static void setCompactKeys(final boolean compactKeys) {
+        sCompactKeys = compactKeys;
+    }
+
+    /**
+     * Enables encoding of heavy fields in background on default executor with 8 KB threshold, see
+     * {@link #setParallelSave(Executor, int)}.
+     *
+     * @param parallelSave true to encode heavy fields in background
+     */
+    public static void setParallelSave(final boolean parallelSave) {
+        sParallelEncoder = parallelSave ? new ParallelEncoder(ParallelEncoder.getDefaultExecutor(), ParallelEncoder.DEFAULT_THRESHOLD) : null;
+        CLASS_PROCS.clear();
+    }
+
+    /**
+     * Enables encoding of InjectCodec and Serializable fields whose last encoded size reached threshold on given executor.
+     * Save still waits for all of them, so codecs must be thread-safe. Classes with generated StateSaver are saved with
+     * reflection while it is set.
+     *
+     * @param executor  executor to encode on
+     * @param threshold minimal encoded size in bytes of heavy field
+     */
+    public static void setParallelSave(@NonNull final Executor executor, final int threshold) {
+        sParallelEncoder = new ParallelEncoder(executor, threshold);
+        CLASS_PROCS.clear();
+    }
+
+    /**
+     * Enables reading fields of classes from persisted index instead of scanning them. Set it before any Injector is created.
+     *
+     * @param index index or null to always scan classes
+     */
+    public static void setMetadataIndex(@Nullable final InjectorMetadataIndex index) {
+        sMetadataIndex = index;
+    }
+
+    /**
+     * Enables keeping live field values in memory on save, restore in the same process takes them from the store. Encoded
+     * fields are then encoded only if the Bundle is parceled. Classes with generated StateSaver are saved with reflection
+     * while it is set.
+     *
+     * @param retainedStore store or null to always restore from Bundle
+     */
+    public static void setRetainedStore(@Nullable final InjectorRetainedStore retainedStore) {
+        sRetainedStore = retainedStore;
+        CLASS_PROCS.clear();
+    }
+
+    /**
+     * Drops cached class metadata. Normally it is never needed as metadata can't change while process is alive.
+     */
+    public static void clearCache() {
+        CLASS_PROCS.clear();
+    }
+
+    /**
+     * Returns part of the Bundle key that separates instances of the same class: InjectSaveStateTag tag or Fragment tag and id.
+     *
+     * @param model object to save state for
+     * @return suffix to append to the field key, may be empty
+     */
+    @NonNull
+    public static String getSaveStateTagSuffix(@NonNull final Object model) {
+        return TagSuffixes.getSuffix(model);
+    }
+
+    private static List<BaseAnnotationProcessor> getProcessors(final Class<?> clazz) {
+        List<BaseAnnotationProcessor> procs = CLASS_PROCS.get(clazz);
+
+        if (null == procs) {
+            procs = collectMembers(clazz);
+
+            final List<BaseAnnotationProcessor> oldProcs = CLASS_PROCS.putIfAbsent(clazz, procs);
+            if (null != oldProcs) {
+                procs = oldProcs;
+            }
+        }
+
+        return procs;
+    }
+
+    private static boolean isStopClass(final Class<?> klass) {
+        if (STOP_CLASSES.contains(klass)) {
+            return true;
+        }
+
+        final String className = klass.getName();
+        for (final String packagePrefix : STOP_PACKAGES) {
+            if (className.startsWith(packagePrefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static List<BaseAnnotationProcessor> collectMembers(final Class<?> clazz) {
+        if (isStopClass(clazz)) {
+            return Collections.emptyList();
+        }
+
+        final InjectorMetrics metrics = sMetrics;
+        final long start = null == metrics ? 0 : System.nanoTime();
+
+        final List<BaseAnnotationProcessor> procs = new ArrayList<>();
+
+        final InjectorMetadataIndex index = sMetadataIndex;
+        final InjectorMetadataIndex.ClassEntry indexEntry = null == index ? null : index.get(clazz);
+
+        // indexed class without generated StateSaver doesn't need the failing Class.forName probe
+        final BaseAnnotationProcessor foundProc = null == indexEntry || indexEntry.hasGeneratedSaver()
+                ? findGeneratedProcessor(clazz) : null;
+        final BaseAnnotationProcessor generatedProc = null == foundProc || requiresReflection(clazz) ? null : foundProc;
+
+        if (null != generatedProc) {
+            // generated StateSaver handles all InjectSavedState-fields of this class, no reflection needed
+            procs.add(generatedProc);
+        } else if (null == indexEntry || indexEntry.hasGeneratedSaver() || !collectIndexedProcessors(clazz, indexEntry, procs)) {
+            collectReflectionProcessors(clazz, procs);
+        }
+
+        if (null != index && null == indexEntry) {
+            index.put(clazz, null != foundProc);
+        }
+
+        if (null != metrics) {
+            metrics.onClassCollected(clazz, null != generatedProc, System.nanoTime() - start);
+        }
+
+        final Class<?> superClass = clazz.getSuperclass();
+        if (null != superClass) {
+            // superclass metadata is shared between all its subclasses
+            procs.addAll(getProcessors(superClass));
+        }
+
+        return Collections.unmodifiableList(procs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BaseAnnotationProcessor findGeneratedProcessor(final Class<?> clazz) {
+        try {
+            final Class<?> saverClass = Class.forName(clazz.getName() + STATE_SAVER_SUFFIX, true, clazz.getClassLoader());
+
+            return new GeneratedStateProcessor(clazz, (StateSaver<Object>) saverClass.newInstance());
+        } catch (final ClassNotFoundException ignored) {
+            // pass
+        } catch (final InstantiationException | IllegalAccessException | ClassCastException e) {
+            Log.d(Injector.class.getSimpleName(), "Could not create StateSaver for " + clazz.getName(), e);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if the class uses features that generated StateSavers don't implement: blob store, retained store,
+     * parallel save or registered codecs
+     */
+    private static boolean requiresReflection(final Class<?> clazz) {
+        if (null != sBlobStore || null != sRetainedStore || null != sParallelEncoder) {
+            return true;
+        }
+
+        for (final Field field : clazz.getDeclaredFields()) {
+            final InjectSavedState injectSavedState = field.getAnnotation(InjectSavedState.class);
+
+            if (null != injectSavedState && InjectCodec.class.equals(injectSavedState.codec())
+                    && InjectCodecs.isRegistered(field.getType())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Used by StateSavers.
+     */
+    @Nullable
+    static InjectorBlobStore getBlobStore() {
+        return sBlobStore;
+    }
+
+    private static void collectReflectionProcessors(final Class<?> clazz, final List<BaseAnnotationProcessor> procs) {
+        final Field[] fields = clazz.getDeclaredFields();
+
+        for (final Class<? extends AnnotationProcessor> annoProcClass : PROCS) {
+            AnnotationProcessor annoProc = null;
+
+            try {
+                annoProc = annoProcClass.newInstance();
+            } catch (final Exception e) {
+                Log.d(Injector.class.getSimpleName(), "Could not create AnnotationProcessor", e);
+            }
+
+            if (null != annoProc) {
+                boolean checked = false;
+
+                for (final Field field : fields) {
+                    checked = annoProc.checkField(field) || checked;
+                }
+
+                if (checked && annoProc instanceof BaseAnnotationProcessor) {
+                    annoProc.onCollected();
+                    procs.add((BaseAnnotationProcessor) annoProc);
                 }
             }
+        }
+    }
 
-            klass = klass.getSuperclass();
+    /**
+     * @return false if index is stale and class should be scanned
+     */
+    private static boolean collectIndexedProcessors(final Class<?> clazz, final InjectorMetadataIndex.ClassEntry indexEntry,
+                                                    final List<BaseAnnotationProcessor> procs) {
+        if (indexEntry.getFields().isEmpty()) {
+            return true;
+        }
+
+        final SavedStateProcessor proc = new SavedStateProcessor();
 
-            if (Activity.class.equals(klass) || Object.class.equals(klass)) {
-                klass = null;
+        try {
+            for (final InjectorMetadataIndex.FieldEntry fieldEntry : indexEntry.getFields()) {
+                proc.addField(clazz.getDeclaredField(fieldEntry.getName()), fieldEntry.toAnnotation(clazz.getClassLoader()));
             }
-        } while (null != klass);
+        } catch (final NoSuchFieldException | ClassNotFoundException e) {
+            Log.d(Injector.class.getSimpleName(), "Metadata index of " + clazz.getName() + " is stale", e);
+
+            return false;
+        }
+
+        proc.onCollected();
+        procs.add(proc);
+
+        return true;
     }
 
     public void applyRestoreInstanceState(@NonNull final Object model, @Nullable final Bundle savedState) {
-        for (final AnnotationProcessor proc : mProcs) {
-            if (proc instanceof BaseAnnotationProcessor) {
-                ((BaseAnnotationProcessor) proc).applyOnCreate(model, savedState);
+        if (null == savedState || mProcs.isEmpty()) {
+            return;
+        }
+
+        // DeferredValue entries are unparceled with the class loader of the Bundle
+        savedState.setClassLoader(model.getClass().getClassLoader());
+
+        final String tagSuffix = getSaveStateTagSuffix(model);
+        final StateContainer bundleState = new BundleStateContainer(savedState);
+        final byte[] flatState = savedState.getByteArray(getFlatStateKey(model, tagSuffix));
+
+        if (null != flatState) {
+            restore(model, FlatStateContainer.read(flatState, bundleState, model.getClass().getClassLoader()), tagSuffix, tagSuffix);
+            return;
+        }
+
+        final Bundle compactState = savedState.getBundle(getCompactStateKey(model, tagSuffix));
+
+        if (null == compactState) {
+            restore(model, bundleState, tagSuffix, tagSuffix);
+        } else {
+            compactState.setClassLoader(model.getClass().getClassLoader());
+            restore(model, new CompactStateContainer(compactState, getCompactIds()), "", tagSuffix);
+        }
+    }
+
+    public void applyRestoreInstanceState(@NonNull final Object model, @Nullable final StateContainer savedState) {
+        if (null == savedState || mProcs.isEmpty()) {
+            return;
+        }
+
+        final String tagSuffix = getSaveStateTagSuffix(model);
+
+        restore(model, savedState, tagSuffix, tagSuffix);
+    }
+
+    /**
+     * @param keySuffix suffix of field keys, empty for container that holds only this instance
+     * @param tagSuffix suffix of the instance
+     */
+    private void restore(final Object model, final StateContainer savedState, final String keySuffix, final String tagSuffix) {
+        final InjectorMetrics metrics = sMetrics;
+        final long start = null == metrics ? 0 : System.nanoTime();
+
+        final Object[][] retained = getRetained(model, savedState, tagSuffix);
+
+        for (int i = 0; i < mProcs.size(); i++) {
+            final BaseAnnotationProcessor proc = mProcs.get(i);
+
+            if (null != retained && null != retained[i]) {
+                ((SavedStateProcessor) proc).restoreRetained(model, retained[i]);
+            } else {
+                proc.applyOnCreate(model, savedState, keySuffix);
             }
         }
+
+        if (null != metrics) {
+            metrics.onRestore(model.getClass(), System.nanoTime() - start);
+        }
     }
 
     public void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final Bundle outState) {
-        for (final AnnotationProcessor proc : mProcs) {
-            if (proc instanceof BaseAnnotationProcessor) {
-                ((BaseAnnotationProcessor) proc).applyOnSaveInstanceState(model, outState);
+        if (mProcs.isEmpty()) {
+            return;
+        }
+
+        final String tagSuffix = getSaveStateTagSuffix(model);
+        final StateContainer bundleState = new BundleStateContainer(outState);
+
+        if (sCompactKeys && !sFlatState) {
+            final Bundle compactState = new Bundle();
+
+            save(model, new CompactStateContainer(compactState, getCompactIds()), "", tagSuffix);
+
+            if (!compactState.isEmpty()) {
+                outState.putBundle(getCompactStateKey(model, tagSuffix), compactState);
+            }
+            return;
+        }
+
+        if (!sFlatState) {
+            save(model, bundleState, tagSuffix, tagSuffix);
+            return;
+        }
+
+        final FlatStateContainer flatState = new FlatStateContainer(bundleState, model.getClass().getClassLoader());
+
+        save(model, flatState, tagSuffix, tagSuffix);
+
+        if (!flatState.isEmpty()) {
+            outState.putByteArray(getFlatStateKey(model, tagSuffix), flatState.toByteArray());
+        }
+    }
+
+    public void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final StateContainer outState) {
+        if (mProcs.isEmpty()) {
+            return;
+        }
+
+        final String tagSuffix = getSaveStateTagSuffix(model);
+
+        save(model, outState, tagSuffix, tagSuffix);
+    }
+
+    /**
+     * @param keySuffix suffix of field keys, empty for container that holds only this instance
+     * @param tagSuffix suffix of the instance
+     */
+    private void save(final Object model, final StateContainer outState, final String keySuffix, final String tagSuffix) {
+        final InjectorMetrics metrics = sMetrics;
+        final long start = null == metrics ? 0 : System.nanoTime();
+
+        final InjectorRetainedStore retainedStore = sRetainedStore;
+        final boolean deferEncoding = null != retainedStore && null == sBlobStore
+                && (outState instanceof BundleStateContainer || outState instanceof CompactStateContainer);
+
+        final SavePass savePass = new SavePass(keySuffix, mEncodedValues, metrics, deferEncoding ? null : sParallelEncoder);
+
+        savePass.setDeferEncoding(deferEncoding);
+
+        if (null != retainedStore) {
+            retain(model, outState, tagSuffix, retainedStore);
+        }
+
+        for (final BaseAnnotationProcessor proc : mProcs) {
+            proc.applyOnSaveInstanceState(model, outState, savePass);
+        }
+
+        SavedStateProcessor.savePendingValues(model, outState, savePass);
+
+        if (null != metrics) {
+            metrics.onSave(model.getClass(), savePass.getSavedBytes(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes fields of the model to Parcel in the order of class scan, without keys. Fields of classes with generated
+     * StateSaver are written as Bundle. Used by InjectorViewSaveState.
+     */
+    void writeToParcel(final Object model, final Parcel dest) {
+        final InjectorMetrics metrics = sMetrics;
+        final long start = null == metrics ? 0 : System.nanoTime();
+        final int startSize = dest.dataSize();
+
+        final SavePass savePass = new SavePass("", mEncodedValues, null, null);
+
+        for (final BaseAnnotationProcessor proc : mProcs) {
+            if (proc instanceof SavedStateProcessor) {
+                ((SavedStateProcessor) proc).writeToParcel(model, dest, savePass);
+            } else {
+                final Bundle bundle = new Bundle();
+
+                proc.applyOnSaveInstanceState(model, new BundleStateContainer(bundle), savePass);
+                dest.writeBundle(bundle);
             }
         }
+
+        if (null != metrics) {
+            metrics.onSave(model.getClass(), dest.dataSize() - startSize, System.nanoTime() - start);
+        }
+    }
+
+    void readFromParcel(final Object model, final Parcel source) {
+        final InjectorMetrics metrics = sMetrics;
+        final long start = null == metrics ? 0 : System.nanoTime();
+
+        final ClassLoader classLoader = model.getClass().getClassLoader();
+
+        for (final BaseAnnotationProcessor proc : mProcs) {
+            if (proc instanceof SavedStateProcessor) {
+                ((SavedStateProcessor) proc).readFromParcel(model, source, classLoader);
+            } else {
+                proc.applyOnCreate(model, new BundleStateContainer(source.readBundle(classLoader)), "");
+            }
+        }
+
+        if (null != metrics) {
+            metrics.onRestore(model.getClass(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Puts live values of all reflection processors to the store and token of this save to the container.
+     */
+    private void retain(final Object model, final StateContainer outState, final String tagSuffix, final InjectorRetainedStore retainedStore) {
+        final Object[][] values = new Object[mProcs.size()][];
+
+        for (int i = 0; i < mProcs.size(); i++) {
+            if (mProcs.get(i) instanceof SavedStateProcessor) {
+                values[i] = ((SavedStateProcessor) mProcs.get(i)).retain(model);
+            }
+        }
+
+        final String key = getRetainedKey(model, tagSuffix);
+
+        outState.putLong(key, retainedStore.put(key, values));
+    }
+
+    /**
+     * @return values retained by the save this state was written by or null if they are not in the store
+     */
+    @Nullable
+    private static Object[][] getRetained(final Object model, final StateContainer savedState, final String tagSuffix) {
+        final InjectorRetainedStore retainedStore = sRetainedStore;
+
+        if (null == retainedStore) {
+            return null;
+        }
+
+        final String key = getRetainedKey(model, tagSuffix);
+
+        return savedState.containsKey(key) ? retainedStore.get(key, savedState.getLong(key)) : null;
+    }
+
+    /**
+     * @return ids of field keys in compact state, the same for every instance of the class
+     */
+    private Map<String, String> getCompactIds() {
+        Map<String, String> compactIds = mCompactIds;
+
+        if (null == compactIds) {
+            final List<String> keys = new ArrayList<>();
+
+            for (final BaseAnnotationProcessor proc : mProcs) {
+                proc.collectKeys(keys);
+            }
+
+            compactIds = CompactStateContainer.createIds(keys);
+            mCompactIds = compactIds;
+        }
+
+        return compactIds;
+    }
+
+    private static String getRetainedKey(final Object model, final String tagSuffix) {
+        return RETAINED_KEY_PREFIX + model.getClass().getName() + tagSuffix;
+    }
+
+    private static String getCompactStateKey(final Object model, final String tagSuffix) {
+        return COMPACT_STATE_KEY_PREFIX + model.getClass().getName() + tagSuffix;
+    }
+
+    private static String getFlatStateKey(final Object model, final String tagSuffix) {
+        return FLAT_STATE_KEY_PREFIX + model.getClass().getName() + tagSuffix;
     }
 
     abstract static class AnnotationProcessor {
 
-        private List<Field> mFields;
+        private List<SavedField> mFields;
 
         protected abstract boolean checkField(Field field);
 
-        protected List<Field> getFields() {
+        /**
+         * Called once after all fields were checked. After this call processor is shared between threads and must not change.
+         */
+        protected void onCollected() {
+            mFields = Collections.unmodifiableList(getFields());
+        }
+
+        protected List<SavedField> getFields() {
             if (null == mFields) {
                 mFields = new ArrayList<>();
             }
@@ -119,16 +703,21 @@ public final class Injector {
 
     public static class SavedStateProcessor extends AnnotationProcessor implements BaseAnnotationProcessor {
 
+        private static final Object MISSING_VALUE = new Object();
+
+        private static final int PARCEL_NULL = 0;
+        private static final int PARCEL_VALUE = 1;
+        private static final int PARCEL_ENCODED = 2;
+
+        private PackedFields mPackedFields;
+        private int mParcelSchemaHash;
+
         @Override
         protected boolean checkField(final Field field) {
-            if (field.isAnnotationPresent(InjectSavedState.class)) {
-                if (Modifier.isStatic(field.getModifiers())) {
-                    throw new IllegalStateException("InjectSavedState-field may not be static.");
-                } else if (Modifier.isFinal(field.getModifiers())) {
-                    throw new IllegalStateException("InjectSavedState-field may not be final.");
-                }
+            final InjectSavedState injectSavedState = field.getAnnotation(InjectSavedState.class);
 
-                getFields().add(field);
+            if (null != injectSavedState) {
+                addField(field, injectSavedState);
 
                 return true;
             }
@@ -136,18 +725,78 @@ public final class Injector {
             return false;
         }
 
+        void addField(final Field field, final InjectSavedState injectSavedState) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                throw new IllegalStateException("InjectSavedState-field may not be static.");
+            } else if (Modifier.isFinal(field.getModifiers())) {
+                throw new IllegalStateException("InjectSavedState-field may not be final.");
+            }
+
+            field.setAccessible(true);
+            getFields().add(new SavedField(field, injectSavedState));
+        }
+
         @Override
-        public void applyOnCreate(@NonNull final Object model, @Nullable final Bundle savedState) {
-            for (final Field field : getFields()) {
-                final InjectSavedState injectSavedState = field.getAnnotation(InjectSavedState.class);
+        protected void onCollected() {
+            final List<SavedField> fields = getFields();
 
-                final String tagString = generateTagString(model, field, injectSavedState);
+            if (!fields.isEmpty()) {
+                mPackedFields = PackedFields.collect(fields.get(0).getField().getDeclaringClass(), fields);
+            }
 
-                if (null == savedState || !savedState.containsKey(tagString)) {
+            super.onCollected();
+        }
+
+        @Override
+        public void collectKeys(@NonNull final Collection<String> keys) {
+            if (null != mPackedFields) {
+                keys.add(mPackedFields.getKey(""));
+            }
+
+            for (final SavedField savedField : getFields()) {
+                keys.add(savedField.getKey(""));
+            }
+        }
+
+        @Override
+        public void applyOnCreate(@NonNull final Object model, @NonNull final StateContainer savedState, @NonNull final String tagSuffix) {
+            final InjectorMetrics metrics = sMetrics;
+
+            if (null != mPackedFields) {
+                try {
+                    mPackedFields.restore(model, savedState, mPackedFields.getKey(tagSuffix));
+                } catch (final IllegalArgumentException | IllegalAccessException e) {
+                    throw new IllegalStateException("Could not restore packed state in " + model.getClass().getName(), e);
+                }
+            }
+
+            for (final SavedField savedField : getFields()) {
+                final Field field = savedField.getField();
+                final long start = null == metrics ? 0 : System.nanoTime();
+
+                final String tagString = savedField.getKey(tagSuffix);
+
+                if (!savedState.containsKey(tagString)) {
                     continue;
                 }
 
-                final Object object = savedState.get(tagString);
+                if (null != savedField.getPrimitiveAccessor()) {
+                    restorePrimitive(model, savedState, tagString, savedField);
+
+                    if (null != metrics) {
+                        metrics.onFieldRestored(model.getClass(), field, tagString, InjectorMetrics.CodecPath.BUNDLE, System.nanoTime() - start);
+                    }
+                    continue;
+                }
+
+                final Object stored = savedState.get(tagString);
+                final Object object = savedField.isShared() && SharedReferences.isReference(stored)
+                        ? restoreShared(model, savedState, (Bundle) stored, savedField)
+                        : restoreValue(model, savedState, tagString, stored, savedField);
+
+                if (MISSING_VALUE == object) {
+                    continue;
+                }
 
                 try {
                     field.set(model, object);
@@ -155,262 +804,496 @@ public final class Injector {
                     throw new IllegalStateException(
                             "Could not assing SavedState in " + model.getClass().getSimpleName() + " to Field: " + field.getName(), e);
                 }
+
+                if (null != metrics) {
+                    final InjectorMetrics.CodecPath path = InjectorBlobStore.isBlob(stored)
+                            ? InjectorMetrics.CodecPath.BLOB : savedField.getCodec().getPath(object);
+
+                    metrics.onFieldRestored(model.getClass(), field, tagString, path, System.nanoTime() - start);
+                }
             }
         }
 
         @Override
-        @SuppressWarnings("unchecked")
-        public void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final Bundle outState) {
-            for (final Field field : getFields()) {
-                final InjectSavedState injectSavedState = field.getAnnotation(InjectSavedState.class);
+        public void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final StateContainer outState, @NonNull final SavePass savePass) {
+            final InjectorBlobStore blobStore = sBlobStore;
+            final InjectorMetrics metrics = savePass.getMetrics();
+            final ParallelEncoder parallelEncoder = savePass.getParallelEncoder();
+
+            if (null != mPackedFields) {
+                final String packedKey = mPackedFields.getKey(savePass.getTagSuffix());
+
+                try {
+                    mPackedFields.save(model, outState, packedKey);
+                } catch (final IllegalArgumentException | IllegalAccessException e) {
+                    throw new IllegalStateException("Could not save packed state in " + model.getClass().getName(), e);
+                }
+
+                if (null != metrics) {
+                    savePass.addSavedBytes(InjectorMetrics.sizeOf(outState.get(packedKey)));
+                }
+            }
 
-                final String tagString = generateTagString(model, field, injectSavedState);
+            for (final SavedField savedField : getFields()) {
+                final Field field = savedField.getField();
+                final long start = null == metrics ? 0 : System.nanoTime();
 
-                boolean success = false;
+                final String tagString = savedField.getKey(savePass.getTagSuffix());
 
                 try {
+                    if (null != savedField.getPrimitiveAccessor()) {
+                        savedField.getPrimitiveAccessor().save(field, model, outState, tagString);
+
+                        if (null != metrics) {
+                            reportSaved(model, outState, tagString, savedField, null, savePass, System.nanoTime() - start);
+                        }
+                        continue;
+                    }
+
                     final Object value = field.get(model);
 
                     if (null == value) {
+                        savePass.getEncodedValues().remove(savedField);
                         continue;
                     }
 
-                    if (value instanceof Boolean) {
-                        outState.putBoolean(tagString, (Boolean) value);
-                        success = true;
-                    } else if (value instanceof boolean[]) {
-                        outState.putBooleanArray(tagString, (boolean[]) value);
-                        success = true;
-                    } else if (value instanceof Byte) {
-                        outState.putByte(tagString, (Byte) value);
-                        success = true;
-                    } else if (value instanceof byte[]) {
-                        outState.putByteArray(tagString, (byte[]) value);
-                        success = true;
-                    } else if (value instanceof Character) {
-                        outState.putChar(tagString, (Character) value);
-                        success = true;
-                    } else if (value instanceof char[]) {
-                        outState.putCharArray(tagString, (char[]) value);
-                        success = true;
-                    } else if (value instanceof Double) {
-                        outState.putDouble(tagString, (Double) value);
-                        success = true;
-                    } else if (value instanceof double[]) {
-                        outState.putDoubleArray(tagString, (double[]) value);
-                        success = true;
-                    } else if (value instanceof Float) {
-                        outState.putFloat(tagString, (Float) value);
-                        success = true;
-                    } else if (value instanceof float[]) {
-                        outState.putFloatArray(tagString, (float[]) value);
-                        success = true;
-                    } else if (value instanceof Integer) {
-                        outState.putInt(tagString, (Integer) value);
-                        success = true;
-                    } else if (value instanceof int[]) {
-                        outState.putIntArray(tagString, (int[]) value);
-                        success = true;
-                    } else if (value instanceof Long) {
-                        outState.putLong(tagString, (Long) value);
-                        success = true;
-                    } else if (value instanceof long[]) {
-                        outState.putLongArray(tagString, (long[]) value);
-                        success = true;
-                    } else if (value instanceof Short) {
-                        outState.putShort(tagString, (Short) value);
-                        success = true;
-                    } else if (value instanceof short[]) {
-                        outState.putShortArray(tagString, (short[]) value);
-                        success = true;
-                    } else if (value instanceof String) {
-                        outState.putString(tagString, (String) value);
-                        success = true;
-                    } else if (value instanceof String[]) {
-                        outState.putStringArray(tagString, (String[]) value);
-                        success = true;
-                    } else if (value instanceof CharSequence) {
-                        outState.putCharSequence(tagString, (CharSequence) value);
-                        success = true;
-                    } else if (value instanceof CharSequence[]) {
-                        outState.putCharSequenceArray(tagString, (CharSequence[]) value);
-                        success = true;
-                    } else if (value instanceof Bundle) {
-                        outState.putBundle(tagString, (Bundle) value);
-                        success = true;
-                    } else if (value instanceof Parcelable) {
-                        outState.putParcelable(tagString, (Parcelable) value);
-                        success = true;
-                    } else if (value instanceof Parcelable[]) {
-                        outState.putParcelableArray(tagString, (Parcelable[]) value);
-                        success = true;
-                    } else if (value instanceof ArrayList) {
-                        final Type type = field.getGenericType();
-
-                        if (type instanceof ParameterizedType) {
-                            final ParameterizedType paramType = (ParameterizedType) type;
-
-                            final Type[] typeArguments = paramType.getActualTypeArguments();
-
-                            if (1 == typeArguments.length) {
-                                final Type oneType = typeArguments[0];
-
-                                if (oneType instanceof Class) {
-                                    final Class<?> oneClass = (Class<?>) oneType;
-
-                                    if (String.class.isAssignableFrom(oneClass)) {
-                                        outState.putStringArrayList(tagString, (ArrayList<String>) value);
-                                        success = true;
-                                    } else if (CharSequence.class.isAssignableFrom(oneClass)) {
-                                        outState.putCharSequenceArrayList(tagString, (ArrayList<CharSequence>) value);
-                                        success = true;
-                                    } else if (Integer.class.isAssignableFrom(oneClass)) {
-                                        outState.putIntegerArrayList(tagString, (ArrayList<Integer>) value);
-                                        success = true;
-                                    } else if (Parcelable.class.isAssignableFrom(oneClass)) {
-                                        outState.putIntegerArrayList(tagString, (ArrayList<Integer>) value);
-                                        success = true;
-                                    }
-                                } else if (oneType instanceof WildcardType) {
-                                    final WildcardType wildType = (WildcardType) oneType;
-
-                                    final Type[] upperBounds = wildType.getUpperBounds();
-
-                                    if (0 == wildType.getLowerBounds().length && 1 == upperBounds.length) {
-                                        final Type oneInnerType = upperBounds[0];
-
-                                        if (oneInnerType instanceof Class) {
-                                            final Class<?> oneClass = (Class<?>) oneInnerType;
-
-                                            if (Parcelable.class.isAssignableFrom(oneClass)) {
-                                                outState.putParcelableArrayList(tagString, (ArrayList<? extends Parcelable>) value);
-                                                success = true;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    } else if (value instanceof SparseArray) {
-                        final Type type = field.getGenericType();
+                    if (null != parallelEncoder && !savedField.isShared() && parallelEncoder.isHeavy(savedField, value, savePass.getEncodedValues())) {
+                        savePass.addPendingValue(parallelEncoder.submit(savedField, value, tagString));
+                        continue;
+                    }
 
-                        if (type instanceof ParameterizedType) {
-                            final ParameterizedType paramType = (ParameterizedType) type;
+                    if (savedField.isShared()) {
+                        saveShared(model, outState, tagString, savedField, value, savePass, blobStore);
+                    } else {
+                        saveValue(model, outState, tagString, savedField, value, savePass, blobStore);
+                    }
 
-                            final Type[] typeArguments = paramType.getActualTypeArguments();
+                    if (null != metrics) {
+                        reportSaved(model, outState, tagString, savedField, value, savePass, System.nanoTime() - start);
+                    }
+                } catch (final IllegalArgumentException | IllegalAccessException | ClassCastException e) {
+                    throw new IllegalStateException("Could not save state for field " + field.getName() + " in " + model.getClass().getName(), e);
+                }
+            }
+        }
 
-                            if (1 == typeArguments.length) {
-                                final Type oneType = typeArguments[0];
+        /**
+         * @return packed block followed by values of all fields, primitives are boxed
+         */
+        Object[] retain(final Object model) {
+            final List<SavedField> fields = getFields();
+            final Object[] values = new Object[fields.size() + 1];
 
-                                if (oneType instanceof Class) {
-                                    final Class<?> oneClass = (Class<?>) oneType;
+            try {
+                values[0] = null == mPackedFields ? null : mPackedFields.pack(model);
 
-                                    if (Parcelable.class.isAssignableFrom(oneClass)) {
-                                        outState.putSparseParcelableArray(tagString, (SparseArray<? extends Parcelable>) value);
-                                        success = true;
-                                    }
-                                } else if (oneType instanceof WildcardType) {
-                                    final WildcardType wildType = (WildcardType) oneType;
+                for (int i = 0; i < fields.size(); i++) {
+                    values[i + 1] = fields.get(i).getField().get(model);
+                }
+            } catch (final IllegalArgumentException | IllegalAccessException e) {
+                throw new IllegalStateException("Could not retain state of " + model.getClass().getName(), e);
+            }
 
-                                    final Type[] upperBounds = wildType.getUpperBounds();
+            return values;
+        }
 
-                                    if (0 == wildType.getLowerBounds().length && 1 == upperBounds.length) {
-                                        final Type oneInnerType = upperBounds[0];
+        /**
+         * Assigns values of {@link #retain(Object)}, null values are skipped as they are not saved to Bundle either.
+         */
+        void restoreRetained(final Object model, final Object[] values) {
+            final List<SavedField> fields = getFields();
 
-                                        if (oneInnerType instanceof Class) {
-                                            final Class<?> oneClass = (Class<?>) oneInnerType;
+            try {
+                if (null != values[0]) {
+                    mPackedFields.unpack(model, (byte[]) values[0]);
+                }
 
-                                            if (Parcelable.class.isAssignableFrom(oneClass)) {
-                                                outState.putSparseParcelableArray(tagString, (SparseArray<? extends Parcelable>) value);
-                                                success = true;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                for (int i = 0; i < fields.size(); i++) {
+                    if (null != values[i + 1]) {
+                        fields.get(i).getField().set(model, values[i + 1]);
                     }
+                }
+            } catch (final IllegalArgumentException | IllegalAccessException e) {
+                throw new IllegalStateException("Could not restore retained state of " + model.getClass().getName(), e);
+            }
+        }
 
-                    if (!success && value instanceof Serializable) {
-                        outState.putSerializable(tagString, (Serializable) value);
-                        success = true;
+        /**
+         * Writes packed block, then every field as primitive or as marker followed by encoded or plain value.
+         */
+        void writeToParcel(final Object model, final Parcel dest, final SavePass savePass) {
+            dest.writeInt(getParcelSchemaHash());
+
+            try {
+                if (null != mPackedFields) {
+                    dest.writeByteArray(mPackedFields.pack(model));
+                }
+
+                for (final SavedField savedField : getFields()) {
+                    final Field field = savedField.getField();
+
+                    if (null != savedField.getPrimitiveAccessor()) {
+                        savedField.getPrimitiveAccessor().write(field, model, dest);
+                        continue;
                     }
 
-                    if (!success) {
-                        throw new IllegalStateException(
-                                "Could not save value: " + value + " for field " + field.getName() + " in " + model.getClass().getName());
+                    final Object value = field.get(model);
+
+                    if (null == value) {
+                        savePass.getEncodedValues().remove(savedField);
+                        dest.writeInt(PARCEL_NULL);
+                        continue;
+                    }
+
+                    final byte[] data = savedField.isEncoded() ? encodeForParcel(savedField, value, savePass.getEncodedValues()) : null;
+
+                    if (null == data) {
+                        dest.writeInt(PARCEL_VALUE);
+                        savedField.getCodec().writeValue(dest, value);
+                    } else {
+                        dest.writeInt(PARCEL_ENCODED);
+                        dest.writeByteArray(data);
                     }
-                } catch (final IllegalArgumentException | IllegalAccessException | ClassCastException e) {
-                    throw new IllegalStateException("Could not save state for field " + field.getName() + " in " + model.getClass().getName(), e);
                 }
+            } catch (final IllegalArgumentException | IllegalAccessException | ClassCastException e) {
+                throw new IllegalStateException("Could not save state to Parcel in " + model.getClass().getName(), e);
             }
         }
 
-        private String generateTagString(final Object model, final Field field, final InjectSavedState injectSavedState) {
-            final StringBuilder tag = new StringBuilder(injectSavedState.value());
+        void readFromParcel(final Object model, final Parcel source, final ClassLoader classLoader) {
+            if (source.readInt() != getParcelSchemaHash()) {
+                throw new IllegalStateException("Parcel state of " + model.getClass().getName() + " was written with other fields");
+            }
+
+            try {
+                if (null != mPackedFields) {
+                    mPackedFields.unpack(model, source.createByteArray());
+                }
+
+                for (final SavedField savedField : getFields()) {
+                    final Field field = savedField.getField();
+
+                    if (null != savedField.getPrimitiveAccessor()) {
+                        savedField.getPrimitiveAccessor().read(field, model, source);
+                        continue;
+                    }
 
-            if (0 == tag.length()) {
-                tag.append(field.getDeclaringClass().getName());
-                tag.append('#');
-                tag.append(field.getName());
+                    final int marker = source.readInt();
 
-                if (model instanceof InjectSaveStateTag) {
-                    tag.append(':');
-                    tag.append(((InjectSaveStateTag) model).getSaveStateTag());
-                } else {
-                    appendTagIfFragment(tag, model);
+                    if (PARCEL_ENCODED == marker) {
+                        field.set(model, savedField.getCodec().decode(source.createByteArray(), classLoader));
+                    } else if (PARCEL_VALUE == marker) {
+                        field.set(model, savedField.getCodec().readValue(source, classLoader));
+                    }
+                }
+            } catch (final IllegalArgumentException | IllegalAccessException e) {
+                throw new IllegalStateException("Could not restore state from Parcel in " + model.getClass().getName(), e);
+            }
+        }
+
+        /**
+         * Computed on first use, so classes that are never written to Parcel don't pay for it on init. Race only computes it twice.
+         */
+        private int getParcelSchemaHash() {
+            int hash = mParcelSchemaHash;
+
+            if (0 == hash) {
+                final StringBuilder schema = new StringBuilder();
+
+                for (final SavedField savedField : getFields()) {
+                    schema.append(savedField.getField().getName()).append(':').append(savedField.getField().getType().getName()).append(';');
                 }
+
+                hash = schema.toString().hashCode();
+                mParcelSchemaHash = hash;
             }
 
-            return tag.toString();
+            return hash;
         }
 
-        private void appendTagIfFragment(final StringBuilder tag, final Object model) {
-            //noinspection TryWithIdenticalCatches
-            try {
-                Class<?> fragmentClass = getFragmentClassIfHave(model, "android.app.Fragment");
-                if (null == fragmentClass) {
-                    fragmentClass = getFragmentClassIfHave(model, "android.support.v4.app.Fragment");
+        private static byte[] encodeForParcel(final SavedField savedField, final Object value, final EncodedValues encodedValues) {
+            final boolean tracked = EncodedValues.isTracked(savedField, value);
+            final EncodedValues.Entry entry = tracked ? encodedValues.get(savedField, value) : null;
+
+            if (null != entry) {
+                return entry.getData();
+            }
+
+            final byte[] data = savedField.getCodec().encode(value);
+
+            if (null != data) {
+                savedField.setEncodedSizeHint(data.length);
+
+                if (tracked) {
+                    encodedValues.put(savedField, value, data);
+                }
+            }
+
+            return data;
+        }
+
+        /**
+         * Writes values encoded in background in the order they were submitted.
+         */
+        static void savePendingValues(final Object model, final StateContainer outState, final SavePass savePass) {
+            final InjectorBlobStore blobStore = sBlobStore;
+
+            for (final ParallelEncoder.PendingValue pending : savePass.getPendingValues()) {
+                final SavedField savedField = pending.getSavedField();
+                final byte[] data = pending.getData();
+                final long start = null == savePass.getMetrics() ? 0 : System.nanoTime();
+
+                if ((null == data || !saveEncoded(outState, pending.getKey(), savedField, pending.getValue(), data, savePass, blobStore))
+                        && !savedField.getCodec().put(outState, pending.getKey(), pending.getValue())) {
+                    throw new IllegalStateException("Could not save value: " + pending.getValue() + " for field "
+                            + savedField.getField().getName() + " in " + model.getClass().getName());
                 }
-                if (null != fragmentClass) {
-                    final Method tagMethod = fragmentClass.getDeclaredMethod("getTag");
-                    final Object fragmentTag = tagMethod.invoke(model);
 
-                    if (null != fragmentTag) {
-                        tag.append(':');
-                        tag.append(fragmentTag);
+                if (null != savePass.getMetrics()) {
+                    reportSaved(model, outState, pending.getKey(), savedField, pending.getValue(), savePass,
+                            pending.getDurationNanos() + System.nanoTime() - start);
+                }
+            }
+        }
+
+        /**
+         * @return restored value or MISSING_VALUE if its blob is lost
+         */
+        private static Object restoreValue(final Object model, final StateContainer savedState, final String tagString,
+                                           final Object stored, final SavedField savedField) {
+            if (stored instanceof DeferredValue) {
+                return ((DeferredValue) stored).get(savedField.getCodec(), model.getClass().getClassLoader());
+            }
+
+            if (savedField.isEncoded()) {
+                final byte[] data;
+
+                if (InjectorBlobStore.isBlob(stored)) {
+                    data = InjectorBlobStore.read(sBlobStore, (Bundle) stored);
+
+                    if (null == data) {
+                        return MISSING_VALUE;
                     }
+                } else {
+                    data = savedField.getCodec().getEncoded(stored);
+                }
 
-                    final Method idMethod = fragmentClass.getDeclaredMethod("getId");
-                    tag.append(':');
-                    tag.append(idMethod.invoke(model));
+                if (null != data) {
+                    return savedField.getCodec().decode(data, model.getClass().getClassLoader());
                 }
-            } catch (final NoSuchMethodException ignored) {
-                // pass
-            } catch (final InvocationTargetException ignored) {
-                // pass
-            } catch (final IllegalAccessException ignored) {
-                // pass
             }
+
+            return savedField.getCodec().get(savedState, tagString, model.getClass().getClassLoader());
         }
 
-        private Class<?> getFragmentClassIfHave(final Object model, final String className) {
+        /**
+         * Decodes value of the reference once per table, other fields referencing it get the same instance.
+         */
+        private static Object restoreShared(final Object model, final StateContainer savedState, final Bundle reference,
+                                            final SavedField savedField) {
+            final Bundle table = SharedReferences.getTable(savedState);
+            final String id = SharedReferences.getId(reference);
+
+            if (null == table || !table.containsKey(id)) {
+                return MISSING_VALUE;
+            }
+
+            final Object restored = SharedReferences.getRestored(table, id);
+
+            if (null != restored) {
+                return restored;
+            }
+
+            final Object object = restoreValue(model, new BundleStateContainer(table), id, table.get(id), savedField);
+
+            if (MISSING_VALUE != object && null != object) {
+                SharedReferences.putRestored(table, id, object);
+            }
+
+            return object;
+        }
+
+        private static void saveValue(final Object model, final StateContainer outState, final String tagString, final SavedField savedField,
+                                      final Object value, final SavePass savePass, final InjectorBlobStore blobStore) {
+            if (savePass.isDeferEncoding() && savedField.isEncoded()) {
+                outState.putParcelable(tagString, new DeferredValue(savedField.getCodec(), value));
+                return;
+            }
+
+            if (!(null != blobStore || null != savePass.getParallelEncoder() || EncodedValues.isTracked(savedField, value))
+                    || !saveEncoded(outState, tagString, savedField, value, null, savePass, blobStore)) {
+                if (!savedField.getCodec().put(outState, tagString, value)) {
+                    throw new IllegalStateException("Could not save value: " + value + " for field " + savedField.getField().getName()
+                            + " in " + model.getClass().getName());
+                }
+            }
+        }
+
+        /**
+         * Saves value to the table of the container if this instance is not there yet, field gets reference to it.
+         */
+        private static void saveShared(final Object model, final StateContainer outState, final String tagString, final SavedField savedField,
+                                       final Object value, final SavePass savePass, final InjectorBlobStore blobStore) {
+            final Bundle table = SharedReferences.getOrCreateTable(outState);
+            String id = SharedReferences.getSavedId(table, value);
+
+            if (null == id) {
+                id = SharedReferences.addSavedId(table, value);
+                saveValue(model, new BundleStateContainer(table), id, savedField, value, savePass, blobStore);
+            }
+
+            outState.putBundle(tagString, SharedReferences.reference(id));
+        }
+
+        private static void restorePrimitive(final Object model, final StateContainer savedState, final String tagString,
+                                             final SavedField savedField) {
             try {
-                final Class<?> fragmentClass = Class.forName(className);
-                if (fragmentClass.isAssignableFrom(model.getClass())) {
-                    return fragmentClass;
+                savedField.getPrimitiveAccessor().restore(savedField.getField(), model, savedState, tagString);
+            } catch (final IllegalArgumentException | IllegalAccessException e) {
+                throw new IllegalStateException(
+                        "Could not assing SavedState in " + model.getClass().getSimpleName() + " to Field: " + savedField.getField().getName(), e);
+            }
+        }
+
+        private static void reportSaved(final Object model, final StateContainer outState, final String tagString, final SavedField savedField,
+                                        final Object value, final SavePass savePass, final long durationNanos) {
+            final Object stored = outState.get(tagString);
+            final InjectorMetrics.CodecPath path = InjectorBlobStore.isBlob(stored)
+                    ? InjectorMetrics.CodecPath.BLOB : savedField.getCodec().getPath(value);
+            final int size = InjectorMetrics.sizeOf(stored);
+
+            savePass.addSavedBytes(size);
+            savePass.getMetrics().onFieldSaved(model.getClass(), savedField.getField(), tagString, path, size, durationNanos);
+        }
+
+        /**
+         * Puts value encoded by its codec, reusing encoded form or blob of the previous save if value was not changed.
+         *
+         * @param encodedData value already encoded in background or null to encode it here
+         * @return false if codec does not encode this value
+         */
+        private static boolean saveEncoded(final StateContainer outState, final String tagString, final SavedField savedField,
+                                           final Object value, final byte[] encodedData, final SavePass savePass,
+                                           final InjectorBlobStore blobStore) {
+            final EncodedValues encodedValues = savePass.getEncodedValues();
+            final boolean tracked = EncodedValues.isTracked(savedField, value);
+
+            EncodedValues.Entry entry = tracked ? encodedValues.get(savedField, value) : null;
+
+            if (null != entry && null != blobStore && null != entry.getBlobHandle() && blobStore.reuse(entry.getBlobHandle(), savePass)) {
+                outState.putBundle(tagString, entry.getBlobHandle());
+                return true;
+            }
+
+            final byte[] data;
+
+            if (null != entry) {
+                data = entry.getData();
+            } else {
+                data = null == encodedData ? savedField.getCodec().encode(value) : encodedData;
+
+                if (null == data) {
+                    return false;
+                }
+
+                savedField.setEncodedSizeHint(data.length);
+
+                if (tracked) {
+                    entry = encodedValues.put(savedField, value, data);
                 }
-            } catch (final ClassNotFoundException ignored) {
-                // pass
             }
-            return null;
+
+            final Bundle blobHandle = null == blobStore ? null : blobStore.spill(data, savePass);
+
+            if (null != entry) {
+                entry.setBlobHandle(blobHandle);
+            }
+
+            if (null != blobHandle) {
+                outState.putBundle(tagString, blobHandle);
+            } else {
+                savedField.getCodec().putEncoded(outState, tagString, data);
+            }
+
+            return true;
+        }
+    }
+
+    static final class GeneratedStateProcessor implements BaseAnnotationProcessor {
+
+        private final Class<?> mClass;
+        private final StateSaver<Object> mStateSaver;
+        // collected on first save with metrics, generated code does not need them
+        private volatile List<SavedField> mSavedFields;
+
+        GeneratedStateProcessor(final Class<?> clazz, final StateSaver<Object> stateSaver) {
+            mClass = clazz;
+            mStateSaver = stateSaver;
+        }
+
+        @Override
+        public void applyOnCreate(@NonNull final Object model, @NonNull final StateContainer savedState, @NonNull final String tagSuffix) {
+            mStateSaver.restore(model, savedState, tagSuffix);
+        }
+
+        @Override
+        public void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final StateContainer outState, @NonNull final SavePass savePass) {
+            if (null == savePass.getMetrics()) {
+                mStateSaver.save(model, outState, savePass.getTagSuffix());
+                return;
+            }
+
+            mStateSaver.save(model, outState, savePass.getTagSuffix());
+
+            // generated code does not report fields and is not timed per field, entries are found by their keys
+            for (final SavedField savedField : getSavedFields()) {
+                final String key = savedField.getKey(savePass.getTagSuffix());
+
+                if (outState.containsKey(key)) {
+                    final int size = InjectorMetrics.sizeOf(outState.get(key));
+
+                    savePass.addSavedBytes(size);
+                    savePass.getMetrics().onFieldSaved(mClass, savedField.getField(), key, InjectorMetrics.CodecPath.GENERATED, size, 0);
+                }
+            }
+        }
+
+        @Override
+        public void collectKeys(@NonNull final Collection<String> keys) {
+            for (final SavedField savedField : getSavedFields()) {
+                keys.add(savedField.getKey(""));
+            }
+        }
+
+        private List<SavedField> getSavedFields() {
+            List<SavedField> savedFields = mSavedFields;
+
+            if (null == savedFields) {
+                savedFields = new ArrayList<>();
+
+                for (final Field field : mClass.getDeclaredFields()) {
+                    final InjectSavedState injectSavedState = field.getAnnotation(InjectSavedState.class);
+
+                    if (null != injectSavedState) {
+                        savedFields.add(new SavedField(field, injectSavedState));
+                    }
+                }
+                mSavedFields = savedFields;
+            }
+
+            return savedFields;
         }
     }
 
     interface BaseAnnotationProcessor {
 
-        void applyOnCreate(@NonNull final Object model, @Nullable final Bundle savedState);
+        void applyOnCreate(@NonNull final Object model, @NonNull final StateContainer savedState, @NonNull final String tagSuffix);
+
+        void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final StateContainer outState, @NonNull final SavePass savePass);
 
-        void applyOnSaveInstanceState(@NonNull final Object model, @NonNull final Bundle outState);
+        /**
+         * Adds keys this processor saves fields under in a container that holds only one instance.
+         */
+        void collectKeys(@NonNull final Collection<String> keys);
     }
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package com.azoft.injectorlib;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps large InjectCodec and Serializable values in memory-mapped files, Bundle gets only a small handle.
+ * Enable with Injector.setBlobStore.
+ */
+public final class InjectorBlobStore {
+
+    private static final String TAG = InjectorBlobStore.class.getSimpleName();
+
+    private static final String DIR_NAME = "injector__blobs";
+    private static final String FILE_EXTENSION = ".blob";
+
+    private static final String KEY_BLOB_ID = "injector__blob_id";
+    private static final String KEY_BLOB_LENGTH = "injector__blob_length";
+    private static final String KEY_BLOB_CHECKSUM = "injector__blob_checksum";
+    private static final String KEY_INLINE_DATA = "injector__inline_data";
+
+    private final File mDir;
+    private final Random mRandom = new Random();
+    private final AtomicLong mWrittenSinceGc = new AtomicLong();
+    private final AtomicBoolean mGcRunning = new AtomicBoolean();
+
+    private volatile int mFieldThreshold = 32 * 1024;
+    private volatile int mBundleThreshold = 256 * 1024;
+    private volatile long mMaxAge = TimeUnit.DAYS.toMillis(7);
+    private volatile long mMaxSize = 20 * 1024 * 1024;
+
+    public InjectorBlobStore(@NonNull final Context context) {
+        mDir = context.getApplicationContext().getDir(DIR_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @param fieldThreshold values of this size in bytes or larger are spilled
+     */
+    public InjectorBlobStore setFieldThreshold(final int fieldThreshold) {
+        mFieldThreshold = fieldThreshold;
+        return this;
+    }
+
+    /**
+     * @param bundleThreshold values are spilled once encoded values of one model exceed this size in bytes
+     */
+    public InjectorBlobStore setBundleThreshold(final int bundleThreshold) {
+        mBundleThreshold = bundleThreshold;
+        return this;
+    }
+
+    /**
+     * @param maxAge blobs older than this in milliseconds are deleted on garbage collection
+     */
+    public InjectorBlobStore setMaxAge(final long maxAge) {
+        mMaxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * @param maxSize oldest blobs are deleted on garbage collection until total size is below this value in bytes
+     */
+    public InjectorBlobStore setMaxSize(final long maxSize) {
+        mMaxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Deletes stale blobs. Called on a background thread automatically, may be called directly from any thread.
+     */
+    public void collectGarbage() {
+        final File[] files = mDir.listFiles();
+
+        if (null == files) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(final File lhs, final File rhs) {
+                final long lhsModified = lhs.lastModified();
+                final long rhsModified = rhs.lastModified();
+
+                return lhsModified < rhsModified ? 1 : (lhsModified == rhsModified ? 0 : -1);
+            }
+        });
+
+        final long minModified = System.currentTimeMillis() - mMaxAge;
+        long totalSize = 0;
+
+        for (final File file : files) {
+            totalSize += file.length();
+
+            if ((file.lastModified() < minModified || totalSize > mMaxSize) && !file.delete()) {
+                Log.d(TAG, "Could not delete " + file);
+            }
+        }
+    }
+
+    void collectGarbageAsync() {
+        if (mGcRunning.compareAndSet(false, true)) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        collectGarbage();
+                    } finally {
+                        mGcRunning.set(false);
+                    }
+                }
+            }, "injector-blob-gc");
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Writes encoded value to a blob file if it is large enough.
+     *
+     * @return handle to put to Bundle or null if value should stay in Bundle
+     */
+    Bundle spill(final byte[] data, final SavePass savePass) {
+        final int bundleBytes = savePass.addEncodedBytes(data.length);
+
+        if (data.length >= mFieldThreshold || bundleBytes > mBundleThreshold) {
+            return write(data);
+        }
+
+        return null;
+    }
+
+    /**
+     * Marks blob as used by a new save so it is not collected as stale.
+     *
+     * @return false if blob does not exist anymore
+     */
+    boolean reuse(final Bundle handle, final SavePass savePass) {
+        savePass.addEncodedBytes(handle.getInt(KEY_BLOB_LENGTH));
+
+        final File file = getFile(handle.getLong(KEY_BLOB_ID));
+
+        return file.setLastModified(System.currentTimeMillis()) && file.length() == handle.getInt(KEY_BLOB_LENGTH);
+    }
+
+    /**
+     * @return envelope of encoded data for codecs that may put byte arrays as is
+     */
+    static Bundle inline(final byte[] data) {
+        final Bundle envelope = new Bundle(1);
+
+        envelope.putByteArray(KEY_INLINE_DATA, data);
+
+        return envelope;
+    }
+
+    /**
+     * @return data of inline envelope or null if value is not one
+     */
+    @Nullable
+    static byte[] getInline(@Nullable final Object value) {
+        return value instanceof Bundle ? ((Bundle) value).getByteArray(KEY_INLINE_DATA) : null;
+    }
+
+    static boolean isBlob(@Nullable final Object value) {
+        return value instanceof Bundle && ((Bundle) value).containsKey(KEY_BLOB_ID);
+    }
+
+    /**
+     * @return data of the blob, null if blob is missing or broken
+     */
+    @Nullable
+    static byte[] read(@Nullable final InjectorBlobStore blobStore, @NonNull final Bundle handle) {
+        if (null == blobStore) {
+            Log.d(TAG, "State was saved to blob, but blob store is not set");
+            return null;
+        }
+
+        return blobStore.readBlob(handle.getLong(KEY_BLOB_ID), handle.getInt(KEY_BLOB_LENGTH), handle.getLong(KEY_BLOB_CHECKSUM));
+    }
+
+    private Bundle write(final byte[] data) {
+        final long id;
+        final File file;
+
+        synchronized (mRandom) {
+            long nextId;
+            File nextFile;
+
+            do {
+                nextId = mRandom.nextLong();
+                nextFile = getFile(nextId);
+            } while (nextFile.exists());
+
+            id = nextId;
+            file = nextFile;
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(data.length);
+
+            final MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, data.length);
+            buffer.put(data);
+        } catch (final IOException e) {
+            Log.d(TAG, "Could not write blob", e);
+
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+
+        if (mWrittenSinceGc.addAndGet(data.length) > mMaxSize / 2) {
+            mWrittenSinceGc.set(0);
+            collectGarbageAsync();
+        }
+
+        final Bundle handle = new Bundle(3);
+
+        handle.putLong(KEY_BLOB_ID, id);
+        handle.putInt(KEY_BLOB_LENGTH, data.length);
+        handle.putLong(KEY_BLOB_CHECKSUM, checksum(data));
+
+        return handle;
+    }
+
+    private byte[] readBlob(final long id, final int length, final long checksum) {
+        final File file = getFile(id);
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            if (randomAccessFile.length() != length) {
+                Log.d(TAG, "Blob has wrong length " + file);
+                return null;
+            }
+
+            final MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            final byte[] data = new byte[length];
+            buffer.get(data);
+
+            if (checksum(data) != checksum) {
+                Log.d(TAG, "Blob has wrong checksum " + file);
+                return null;
+            }
+
+            return data;
+        } catch (final IOException e) {
+            Log.d(TAG, "Could not read blob " + file, e);
+            return null;
+        }
+    }
+
+    private File getFile(final long id) {
+        return new File(mDir, Long.toHexString(id) + FILE_EXTENSION);
+    }
+
+    private static long checksum(final byte[] data) {
+        final CRC32 crc32 = new CRC32();
+
+        crc32.update(data, 0, data.length);
+
+        return crc32.getValue();
+    }
+}
@@ -0,0 +1,343 @@
+package com.azoft.injectorlib;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * File with InjectSavedState-fields of scanned classes, so Injector.init after process death does not scan them. Index is
+ * dropped when APK changes. Enable with Injector.setMetadataIndex.
+ */
+public final class InjectorMetadataIndex {
+
+    private static final String TAG = InjectorMetadataIndex.class.getSimpleName();
+
+    private static final String DIR_NAME = "injector__index";
+    private static final String FILE_NAME = "metadata.idx";
+
+    private static final int MAGIC = 0x494e4a58;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int FLAG_GENERATED = 1;
+    private static final int FLAG_REUSE_ENCODED = 1;
+    private static final int FLAG_COMPRESS = 2;
+    private static final int FLAG_SHARED = 4;
+
+    private final File mFile;
+    private final String mApkVersion;
+    private final Map<String, ClassEntry> mEntries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingClass> mPendingClasses = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mWriteScheduled = new AtomicBoolean();
+    private volatile boolean mLoaded;
+
+    public InjectorMetadataIndex(@NonNull final Context context) {
+        final Context appContext = context.getApplicationContext();
+        final File apkFile = new File(appContext.getApplicationInfo().sourceDir);
+
+        mFile = new File(appContext.getDir(DIR_NAME, Context.MODE_PRIVATE), FILE_NAME);
+        // reinstall of the same version changes APK time, so debug builds are covered too
+        mApkVersion = apkFile.getPath() + ':' + apkFile.length() + ':' + apkFile.lastModified();
+    }
+
+    /**
+     * @return indexed fields of the class or null if class is not indexed yet
+     */
+    ClassEntry get(final Class<?> clazz) {
+        if (!mLoaded) {
+            load();
+        }
+
+        return mEntries.get(clazz.getName());
+    }
+
+    /**
+     * Adds scanned class to index. Fields are read again and written to file on a background thread.
+     */
+    void put(final Class<?> clazz, final boolean generated) {
+        mPendingClasses.add(new PendingClass(clazz, generated));
+
+        if (mWriteScheduled.compareAndSet(false, true)) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    mWriteScheduled.set(false);
+                    write();
+                }
+            }, "injector-index");
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private synchronized void load() {
+        if (mLoaded) {
+            return;
+        }
+
+        if (mFile.exists()) {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r")) {
+                final ByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+
+                read(buffer);
+            } catch (final IOException | BufferUnderflowException | IllegalArgumentException e) {
+                Log.d(TAG, "Could not read metadata index", e);
+                mEntries.clear();
+            }
+        }
+
+        mLoaded = true;
+    }
+
+    private void read(final ByteBuffer buffer) {
+        if (MAGIC != buffer.getInt() || FORMAT_VERSION != buffer.getInt() || !mApkVersion.equals(readString(buffer))) {
+            return;
+        }
+
+        final int classCount = buffer.getInt();
+
+        for (int i = 0; i < classCount; i++) {
+            final String className = readString(buffer);
+            final boolean generated = 0 != (buffer.get() & FLAG_GENERATED);
+            final int fieldCount = buffer.getShort();
+            final List<FieldEntry> fields = new ArrayList<>(fieldCount);
+
+            for (int j = 0; j < fieldCount; j++) {
+                final String name = readString(buffer);
+                final String tag = readString(buffer);
+                final String codecName = readString(buffer);
+                final int flags = buffer.get();
+                final int compressAbove = buffer.getInt();
+
+                fields.add(new FieldEntry(name, tag, codecName, 0 != (flags & FLAG_REUSE_ENCODED), 0 != (flags & FLAG_COMPRESS),
+                        compressAbove, 0 != (flags & FLAG_SHARED)));
+            }
+
+            mEntries.put(className, new ClassEntry(generated, Collections.unmodifiableList(fields)));
+        }
+    }
+
+    private synchronized void write() {
+        if (!mLoaded) {
+            load();
+        }
+
+        PendingClass pendingClass;
+        boolean changed = false;
+
+        while (null != (pendingClass = mPendingClasses.poll())) {
+            if (!mEntries.containsKey(pendingClass.mClass.getName())) {
+                mEntries.put(pendingClass.mClass.getName(), scan(pendingClass.mClass, pendingClass.mGenerated));
+                changed = true;
+            }
+        }
+
+        if (!changed) {
+            return;
+        }
+
+        final File tmpFile = new File(mFile.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, mApkVersion);
+
+            final List<Map.Entry<String, ClassEntry>> entries = new ArrayList<>(mEntries.entrySet());
+
+            out.writeInt(entries.size());
+
+            for (final Map.Entry<String, ClassEntry> entry : entries) {
+                final ClassEntry classEntry = entry.getValue();
+
+                writeString(out, entry.getKey());
+                out.writeByte(classEntry.mGenerated ? FLAG_GENERATED : 0);
+                out.writeShort(classEntry.mFields.size());
+
+                for (final FieldEntry field : classEntry.mFields) {
+                    writeString(out, field.mName);
+                    writeString(out, field.mTag);
+                    writeString(out, field.mCodecName);
+                    out.writeByte((field.mReuseEncoded ? FLAG_REUSE_ENCODED : 0) | (field.mCompress ? FLAG_COMPRESS : 0)
+                            | (field.mShared ? FLAG_SHARED : 0));
+                    out.writeInt(field.mCompressAbove);
+                }
+            }
+        } catch (final IOException e) {
+            Log.d(TAG, "Could not write metadata index", e);
+
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+            return;
+        }
+
+        if (!tmpFile.renameTo(mFile)) {
+            Log.d(TAG, "Could not replace metadata index");
+        }
+    }
+
+    private static ClassEntry scan(final Class<?> clazz, final boolean generated) {
+        if (generated) {
+            return new ClassEntry(true, Collections.<FieldEntry>emptyList());
+        }
+
+        final List<FieldEntry> fields = new ArrayList<>();
+
+        for (final Field field : clazz.getDeclaredFields()) {
+            final InjectSavedState injectSavedState = field.getAnnotation(InjectSavedState.class);
+
+            if (null != injectSavedState) {
+                fields.add(new FieldEntry(field.getName(), injectSavedState.value(), injectSavedState.codec().getName(),
+                        injectSavedState.reuseEncoded(), injectSavedState.compress(), injectSavedState.compressAbove(),
+                        injectSavedState.shared()));
+            }
+        }
+
+        return new ClassEntry(false, Collections.unmodifiableList(fields));
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(BinaryBuffers.UTF_8);
+
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        return BinaryBuffers.getString(buffer, buffer.getShort() & 0xffff);
+    }
+
+    private static final class PendingClass {
+
+        private final Class<?> mClass;
+        private final boolean mGenerated;
+
+        PendingClass(final Class<?> clazz, final boolean generated) {
+            mClass = clazz;
+            mGenerated = generated;
+        }
+    }
+
+    static final class ClassEntry {
+
+        private final boolean mGenerated;
+        private final List<FieldEntry> mFields;
+
+        ClassEntry(final boolean generated, final List<FieldEntry> fields) {
+            mGenerated = generated;
+            mFields = fields;
+        }
+
+        boolean hasGeneratedSaver() {
+            return mGenerated;
+        }
+
+        List<FieldEntry> getFields() {
+            return mFields;
+        }
+    }
+
+    static final class FieldEntry {
+
+        private final String mName;
+        private final String mTag;
+        private final String mCodecName;
+        private final boolean mReuseEncoded;
+        private final boolean mCompress;
+        private final int mCompressAbove;
+        private final boolean mShared;
+
+        FieldEntry(final String name, final String tag, final String codecName, final boolean reuseEncoded, final boolean compress,
+                   final int compressAbove, final boolean shared) {
+            mName = name;
+            mTag = tag;
+            mCodecName = codecName;
+            mReuseEncoded = reuseEncoded;
+            mCompress = compress;
+            mCompressAbove = compressAbove;
+            mShared = shared;
+        }
+
+        String getName() {
+            return mName;
+        }
+
+        /**
+         * @return annotation equal to the one declared on the field
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        InjectSavedState toAnnotation(final ClassLoader classLoader) throws ClassNotFoundException {
+            final Class<? extends InjectCodec> codecClass = InjectCodec.class.getName().equals(mCodecName)
+                    ? InjectCodec.class : (Class<? extends InjectCodec>) Class.forName(mCodecName, false, classLoader);
+
+            return new IndexedSavedState(this, codecClass);
+        }
+    }
+
+    // codec() of the annotation returns raw InjectCodec class
+    @SuppressWarnings({"ClassExplicitlyAnnotation", "rawtypes"})
+    private static final class IndexedSavedState implements InjectSavedState {
+
+        private final FieldEntry mEntry;
+        private final Class<? extends InjectCodec> mCodecClass;
+
+        IndexedSavedState(final FieldEntry entry, final Class<? extends InjectCodec> codecClass) {
+            mEntry = entry;
+            mCodecClass = codecClass;
+        }
+
+        @Override
+        public String value() {
+            return mEntry.mTag;
+        }
+
+        @Override
+        public Class<? extends InjectCodec> codec() {
+            return mCodecClass;
+        }
+
+        @Override
+        public boolean reuseEncoded() {
+            return mEntry.mReuseEncoded;
+        }
+
+        @Override
+        public boolean compress() {
+            return mEntry.mCompress;
+        }
+
+        @Override
+        public int compressAbove() {
+            return mEntry.mCompressAbove;
+        }
+
+        @Override
+        public boolean shared() {
+            return mEntry.mShared;
+        }
+
+        @Override
+        public Class<? extends Annotation> annotationType() {
+            return InjectSavedState.class;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.azoft.injectorlib;
+
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Field;
+
+/**
+ * Receives timings and sizes of Injector work on the calling thread. Set with Injector.setMetrics, override only the methods
+ * you need. Fields of classes with generated StateSaver are reported on save with GENERATED path and without duration.
+ */
+@SuppressWarnings("unused")
+public abstract class InjectorMetrics {
+
+    /**
+     * How value was written to or read from Bundle.
+     */
+    public enum CodecPath {
+        /**
+         * Bundle put/get method for the value type.
+         */
+        BUNDLE,
+        /**
+         * Java serialization, the slowest and largest path.
+         */
+        SERIALIZABLE,
+        /**
+         * InjectCodec set in annotation or registered with Injector.registerCodec.
+         */
+        CODEC,
+        /**
+         * Encoded value spilled to InjectorBlobStore, only the handle is in Bundle.
+         */
+        BLOB,
+        /**
+         * Generated StateSaver, duration of such field is not measured.
+         */
+        GENERATED
+    }
+
+    /**
+     * Called when metadata of one class is collected, superclasses are reported separately.
+     *
+     * @param generated true if class has generated StateSaver
+     */
+    public void onClassCollected(@NonNull final Class<?> clazz, final boolean generated, final long durationNanos) {
+    }
+
+    /**
+     * @param cached true if metadata of the class was already collected
+     */
+    public void onInit(@NonNull final Class<?> clazz, final boolean cached, final long durationNanos) {
+    }
+
+    /**
+     * @param size approximate size of the entry in parceled Bundle, in bytes
+     */
+    public void onFieldSaved(@NonNull final Class<?> modelClass, @NonNull final Field field, @NonNull final String key,
+                             @NonNull final CodecPath path, final int size, final long durationNanos) {
+    }
+
+    public void onFieldRestored(@NonNull final Class<?> modelClass, @NonNull final Field field, @NonNull final String key,
+                                @NonNull final CodecPath path, final long durationNanos) {
+    }
+
+    /**
+     * @param size approximate size of all entries of the model in parceled Bundle, in bytes
+     */
+    public void onSave(@NonNull final Class<?> modelClass, final int size, final long durationNanos) {
+    }
+
+    public void onRestore(@NonNull final Class<?> modelClass, final long durationNanos) {
+    }
+
+    /**
+     * Measures value the same way Bundle writes it to Parcel, so it is as expensive as parceling.
+     */
+    static int sizeOf(@Nullable final Object value) {
+        final Parcel parcel = Parcel.obtain();
+
+        try {
+            parcel.writeValue(value);
+
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
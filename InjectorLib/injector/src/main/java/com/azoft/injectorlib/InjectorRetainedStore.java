@@ -0,0 +1,81 @@
+package com.azoft.injectorlib;
+
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * In-memory store of field values of saved models, restore in the same process takes them from here instead of decoding
+ * the Bundle. After process death the store is empty and state is restored from Bundle. Enable with
+ * Injector.setRetainedStore.
+ */
+public final class InjectorRetainedStore {
+
+    private final long mTokenBase = new Random().nextLong();
+    private final LinkedHashMap<String, Retained> mEntries;
+    private long mGeneration;
+
+    /**
+     * @param maxEntries number of saved models to keep, least recently used are dropped first
+     */
+    public InjectorRetainedStore(final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalStateException("maxEntries must be positive.");
+        }
+
+        mEntries = new LinkedHashMap<String, Retained>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Retained> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Drops all values, e.g. on ComponentCallbacks2.onTrimMemory. Models saved before are then restored from Bundle.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Replaces values saved under the key before.
+     *
+     * @return token to put to the Bundle, it is unique for each save and differs between processes
+     */
+    synchronized long put(final String key, final Object[][] values) {
+        final long token = mTokenBase + ++mGeneration;
+
+        mEntries.put(key, new Retained(token, values));
+
+        return token;
+    }
+
+    /**
+     * @return values of the save with this token or null if they were dropped or replaced by a later save
+     */
+    @Nullable
+    synchronized Object[][] get(final String key, final long token) {
+        final Retained entry = mEntries.get(key);
+
+        return null == entry || entry.mToken != token ? null : entry.mValues;
+    }
+
+    private static final class Retained {
+
+        private final long mToken;
+        private final Object[][] mValues;
+
+        private Retained(final long token, final Object[][] values) {
+            mToken = token;
+            mValues = values;
+        }
+    }
+}
@@ -6,24 +6,87 @@ import android.os.Parcelable;
 import android.view.AbsSavedState;
 import android.view.View;
 
+/**
+ * Saved state of View with InjectSavedState-fields. With parcelState fields are written to Parcel without keys, such state
+ * is kept in its own Parcel that is copied on every write and read from the start on every restore.
+ */
 public class InjectorViewSaveState extends AbsSavedState {
 
     private final Bundle mOurSaveState;
+    private final Parcel mOurParcelState;
 
     public InjectorViewSaveState(final Injector injector, final View view, final Parcelable superState) {
+        this(injector, view, superState, false);
+    }
+
+    /**
+     * @param parcelState true to write fields directly to Parcel, state must be restored with {@link #restore(Injector, View, Parcelable)}
+     */
+    public InjectorViewSaveState(final Injector injector, final View view, final Parcelable superState, final boolean parcelState) {
         super(superState);
 
-        mOurSaveState = new Bundle();
+        if (parcelState) {
+            mOurSaveState = null;
+            mOurParcelState = Parcel.obtain();
+
+            injector.writeToParcel(view, mOurParcelState);
+        } else {
+            mOurSaveState = new Bundle();
+            mOurParcelState = null;
 
-        injector.applyOnSaveInstanceState(view, mOurSaveState);
+            injector.applyOnSaveInstanceState(view, mOurSaveState);
+        }
     }
 
     private InjectorViewSaveState(final Parcel source) {
         super(source);
 
-        mOurSaveState = source.readBundle(Bundle.class.getClassLoader());
+        final Bundle ourSaveState = source.readBundle(Bundle.class.getClassLoader());
+
+        if (null != ourSaveState) {
+            mOurSaveState = ourSaveState;
+            mOurParcelState = null;
+        } else {
+            // null Bundle marks state written to Parcel, so Bundle state keeps the format of older versions
+            final int size = source.readInt();
+            final int position = source.dataPosition();
+
+            mOurSaveState = null;
+            mOurParcelState = Parcel.obtain();
+            mOurParcelState.appendFrom(source, position, size);
+
+            source.setDataPosition(position + size);
+        }
+    }
+
+    /**
+     * Restores fields of the view if state is InjectorViewSaveState.
+     *
+     * @return state to pass to super.onRestoreInstanceState
+     */
+    public static Parcelable restore(final Injector injector, final View view, final Parcelable state) {
+        if (!(state instanceof InjectorViewSaveState)) {
+            return state;
+        }
+
+        final InjectorViewSaveState injectorViewSaveState = (InjectorViewSaveState) state;
+
+        if (null != injectorViewSaveState.mOurSaveState) {
+            injector.applyRestoreInstanceState(view, injectorViewSaveState.mOurSaveState);
+        } else {
+            final Parcel parcel = injectorViewSaveState.mOurParcelState;
+
+            // the same instance may be restored several times, for example after configuration change
+            parcel.setDataPosition(0);
+            injector.readFromParcel(view, parcel);
+        }
+
+        return injectorViewSaveState.getSuperState();
     }
 
+    /**
+     * @return saved Bundle or null if state was written to Parcel
+     */
     public Bundle getOurSaveState() {
         return mOurSaveState;
     }
@@ -32,7 +95,15 @@ public class InjectorViewSaveState extends AbsSavedState {
     public void writeToParcel(final Parcel dest, final int flags) {
         super.writeToParcel(dest, flags);
 
-        dest.writeBundle(mOurSaveState);
+        if (null != mOurSaveState) {
+            dest.writeBundle(mOurSaveState);
+        } else {
+            final int size = mOurParcelState.dataSize();
+
+            dest.writeBundle(null);
+            dest.writeInt(size);
+            dest.appendFrom(mOurParcelState, 0, size);
+        }
     }
 
     public static final Parcelable.Creator<InjectorViewSaveState> CREATOR = new Parcelable.Creator<InjectorViewSaveState>() {
@@ -47,4 +118,4 @@ public class InjectorViewSaveState extends AbsSavedState {
             return new InjectorViewSaveState[size];
         }
     };
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.azoft.injectorlib;
+
+import android.os.Parcel;
+
+/**
+ * Codec of InjectLazy-field. Value is written with element codec, on restore encoded data is kept in InjectLazy until it is read.
+ */
+final class LazyCodec extends BundleCodec {
+
+    private final BundleCodec mElementCodec;
+
+    LazyCodec(final BundleCodec elementCodec) {
+        mElementCodec = elementCodec;
+    }
+
+    @Override
+    boolean put(final StateContainer state, final String key, final Object value) {
+        final byte[] data = encode(value);
+
+        if (null != data) {
+            mElementCodec.putEncoded(state, key, data);
+            return true;
+        }
+
+        final Object elementValue = ((InjectLazy<?>) value).get();
+
+        return null == elementValue || mElementCodec.put(state, key, elementValue);
+    }
+
+    @Override
+    Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+        final byte[] data = mElementCodec.getEncoded(state.get(key));
+
+        if (null != data) {
+            return new InjectLazy<>(data, mElementCodec, classLoader);
+        }
+
+        return new InjectLazy<>(mElementCodec.get(state, key, classLoader));
+    }
+
+    @Override
+    boolean isEncoding() {
+        return mElementCodec.isEncoding();
+    }
+
+    @Override
+    byte[] encode(final Object value) {
+        final InjectLazy<?> lazy = (InjectLazy<?>) value;
+        final byte[] data = lazy.getEncoded();
+
+        if (null != data) {
+            // not read since restore, saved as is
+            return data;
+        }
+
+        final Object elementValue = lazy.get();
+
+        return null == elementValue || !mElementCodec.isEncoding() ? null : mElementCodec.encode(elementValue);
+    }
+
+    @Override
+    Object decode(final byte[] data, final ClassLoader classLoader) {
+        return new InjectLazy<>(data, mElementCodec, classLoader);
+    }
+
+    @Override
+    InjectorMetrics.CodecPath getPath(final Object value) {
+        final InjectLazy<?> lazy = (InjectLazy<?>) value;
+
+        return mElementCodec.getPath(null == lazy || !lazy.isDecoded() ? null : lazy.get());
+    }
+
+    @Override
+    boolean isPuttingByteArrays() {
+        return mElementCodec.isPuttingByteArrays();
+    }
+
+    @Override
+    void putEncoded(final StateContainer state, final String key, final byte[] data) {
+        mElementCodec.putEncoded(state, key, data);
+    }
+
+    @Override
+    void writeValue(final Parcel dest, final Object value) {
+        mElementCodec.writeValue(dest, ((InjectLazy<?>) value).get());
+    }
+
+    @Override
+    Object readValue(final Parcel source, final ClassLoader classLoader) {
+        return new InjectLazy<>(mElementCodec.readValue(source, classLoader));
+    }
+}
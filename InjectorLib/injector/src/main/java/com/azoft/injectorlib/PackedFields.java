@@ -0,0 +1,211 @@
+package com.azoft.injectorlib;
+
+import android.util.Log;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Layout of primitive and primitive array fields of InjectPacked class. Fields are written in name order after schema hash,
+ * arrays are prefixed with length, -1 for null.
+ */
+final class PackedFields {
+
+    private static final String TAG = PackedFields.class.getSimpleName();
+
+    private static final String KEY_SUFFIX = "#[packed]";
+
+    private static final Comparator<Field> NAME_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(final Field first, final Field second) {
+            return first.getName().compareTo(second.getName());
+        }
+    };
+
+    private final String mKeyPrefix;
+    private final Field[] mFields;
+    private final int mSchemaHash;
+    private final int mFixedSize;
+
+    private PackedFields(final Class<?> clazz, final List<Field> fields) {
+        Collections.sort(fields, NAME_ORDER);
+
+        mKeyPrefix = clazz.getName() + KEY_SUFFIX;
+        mFields = fields.toArray(new Field[fields.size()]);
+
+        final StringBuilder schema = new StringBuilder();
+        int fixedSize = 4;
+
+        for (final Field field : mFields) {
+            schema.append(field.getName()).append(':').append(field.getType().getName()).append(';');
+            fixedSize += field.getType().isArray() ? 4 : BinaryBuffers.sizeOf(field.getType());
+        }
+
+        mSchemaHash = schema.toString().hashCode();
+        mFixedSize = fixedSize;
+    }
+
+    /**
+     * Removes packable fields from the list if class is InjectPacked.
+     *
+     * @return packed fields or null if class is not packed or has no such fields
+     */
+    static PackedFields collect(final Class<?> clazz, final List<SavedField> savedFields) {
+        if (!clazz.isAnnotationPresent(InjectPacked.class)) {
+            return null;
+        }
+
+        final List<Field> fields = new ArrayList<>();
+
+        for (final Iterator<SavedField> iterator = savedFields.iterator(); iterator.hasNext(); ) {
+            final SavedField savedField = iterator.next();
+
+            if (isPackable(savedField)) {
+                fields.add(savedField.getField());
+                iterator.remove();
+            }
+        }
+
+        return fields.isEmpty() ? null : new PackedFields(clazz, fields);
+    }
+
+    String getKey(final String tagSuffix) {
+        return tagSuffix.isEmpty() ? mKeyPrefix : mKeyPrefix.concat(tagSuffix);
+    }
+
+    void save(final Object model, final StateContainer outState, final String key) throws IllegalAccessException {
+        outState.putByteArray(key, pack(model));
+    }
+
+    void restore(final Object model, final StateContainer savedState, final String key) throws IllegalAccessException {
+        final byte[] data = savedState.getByteArray(key);
+
+        if (null != data) {
+            unpack(model, data);
+        }
+    }
+
+    byte[] pack(final Object model) throws IllegalAccessException {
+        int size = mFixedSize;
+
+        for (final Field field : mFields) {
+            if (field.getType().isArray()) {
+                final Object array = field.get(model);
+
+                size += null == array ? 0 : Array.getLength(array) * BinaryBuffers.sizeOf(field.getType().getComponentType());
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.putInt(mSchemaHash);
+
+        for (final Field field : mFields) {
+            write(buffer, field, model);
+        }
+
+        return buffer.array();
+    }
+
+    void unpack(final Object model, final byte[] data) throws IllegalAccessException {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        try {
+            if (buffer.getInt() != mSchemaHash) {
+                Log.d(TAG, "Packed state of " + mKeyPrefix + " has different layout, skipped");
+                return;
+            }
+
+            for (final Field field : mFields) {
+                read(buffer, field, model);
+            }
+        } catch (final BufferUnderflowException e) {
+            throw new IllegalStateException("Packed state of " + mKeyPrefix + " is corrupted", e);
+        }
+    }
+
+    private static boolean isPackable(final SavedField savedField) {
+        if (savedField.hasCustomTag() || savedField.isShared()) {
+            return false;
+        }
+
+        final Class<?> type = savedField.getField().getType();
+
+        if (type.isArray()) {
+            // InjectCodec or Serializable fallback means codec is not the plain Bundle array one
+            return type.getComponentType().isPrimitive() && !savedField.isEncoded();
+        }
+
+        return null != savedField.getPrimitiveAccessor();
+    }
+
+    private static void write(final ByteBuffer buffer, final Field field, final Object model) throws IllegalAccessException {
+        final Class<?> type = field.getType();
+
+        if (boolean.class.equals(type)) {
+            buffer.put((byte) (field.getBoolean(model) ? 1 : 0));
+        } else if (byte.class.equals(type)) {
+            buffer.put(field.getByte(model));
+        } else if (char.class.equals(type)) {
+            buffer.putChar(field.getChar(model));
+        } else if (short.class.equals(type)) {
+            buffer.putShort(field.getShort(model));
+        } else if (int.class.equals(type)) {
+            buffer.putInt(field.getInt(model));
+        } else if (long.class.equals(type)) {
+            buffer.putLong(field.getLong(model));
+        } else if (float.class.equals(type)) {
+            buffer.putFloat(field.getFloat(model));
+        } else if (double.class.equals(type)) {
+            buffer.putDouble(field.getDouble(model));
+        } else {
+            writeArray(buffer, field.get(model));
+        }
+    }
+
+    private static void writeArray(final ByteBuffer buffer, final Object array) {
+        if (null == array) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(Array.getLength(array));
+            BinaryBuffers.putArray(buffer, array);
+        }
+    }
+
+    private static void read(final ByteBuffer buffer, final Field field, final Object model) throws IllegalAccessException {
+        final Class<?> type = field.getType();
+
+        if (boolean.class.equals(type)) {
+            field.setBoolean(model, 0 != buffer.get());
+        } else if (byte.class.equals(type)) {
+            field.setByte(model, buffer.get());
+        } else if (char.class.equals(type)) {
+            field.setChar(model, buffer.getChar());
+        } else if (short.class.equals(type)) {
+            field.setShort(model, buffer.getShort());
+        } else if (int.class.equals(type)) {
+            field.setInt(model, buffer.getInt());
+        } else if (long.class.equals(type)) {
+            field.setLong(model, buffer.getLong());
+        } else if (float.class.equals(type)) {
+            field.setFloat(model, buffer.getFloat());
+        } else if (double.class.equals(type)) {
+            field.setDouble(model, buffer.getDouble());
+        } else {
+            field.set(model, readArray(buffer, type.getComponentType()));
+        }
+    }
+
+    private static Object readArray(final ByteBuffer buffer, final Class<?> componentType) {
+        final int length = buffer.getInt();
+
+        return length < 0 ? null : BinaryBuffers.getArray(buffer, componentType, length);
+    }
+}
@@ -0,0 +1,141 @@
+package com.azoft.injectorlib;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Encodes heavy fields of one save pass on executor. Only codec.encode runs in background, encoded data is written
+ * to container on the saving thread after all encodings are joined.
+ */
+final class ParallelEncoder {
+
+    static final int DEFAULT_THRESHOLD = 8 * 1024;
+
+    private static volatile ExecutorService sDefaultExecutor;
+
+    private final Executor mExecutor;
+    private final int mThreshold;
+
+    ParallelEncoder(final Executor executor, final int threshold) {
+        mExecutor = executor;
+        mThreshold = threshold;
+    }
+
+    /**
+     * Default executor has one daemon thread less than there are cores, the saving thread waits for results anyway.
+     */
+    static Executor getDefaultExecutor() {
+        if (null == sDefaultExecutor) {
+            synchronized (ParallelEncoder.class) {
+                if (null == sDefaultExecutor) {
+                    final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+                    sDefaultExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "injector-encoder");
+
+                            thread.setDaemon(true);
+
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+
+        return sDefaultExecutor;
+    }
+
+    /**
+     * @return true if value should be encoded in background: encoded form of the field was large last time and it can't be reused
+     */
+    boolean isHeavy(final SavedField savedField, final Object value, final EncodedValues encodedValues) {
+        final int sizeHint = savedField.getEncodedSizeHint();
+
+        if (sizeHint < 0 || sizeHint < mThreshold) {
+            return false;
+        }
+
+        return !EncodedValues.isTracked(savedField, value) || null == encodedValues.get(savedField, value);
+    }
+
+    PendingValue submit(final SavedField savedField, final Object value, final String key) {
+        final PendingValue pending = new PendingValue(savedField, value, key);
+
+        try {
+            mExecutor.execute(pending.mTask);
+        } catch (final RejectedExecutionException ignored) {
+            pending.mTask.run();
+        }
+
+        return pending;
+    }
+
+    static final class PendingValue {
+
+        private final SavedField mSavedField;
+        private final Object mValue;
+        private final String mKey;
+        private final FutureTask<byte[]> mTask;
+        private volatile long mDurationNanos;
+
+        PendingValue(final SavedField savedField, final Object value, final String key) {
+            mSavedField = savedField;
+            mValue = value;
+            mKey = key;
+            mTask = new FutureTask<>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    final long start = System.nanoTime();
+                    final byte[] data = mSavedField.getCodec().encode(mValue);
+
+                    mDurationNanos = System.nanoTime() - start;
+
+                    return data;
+                }
+            });
+        }
+
+        SavedField getSavedField() {
+            return mSavedField;
+        }
+
+        Object getValue() {
+            return mValue;
+        }
+
+        String getKey() {
+            return mKey;
+        }
+
+        long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        /**
+         * Waits for encoding to finish.
+         *
+         * @return encoded data or null if codec does not encode this value
+         */
+        byte[] getData() {
+            try {
+                return mTask.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while encoding field " + mSavedField.getField().getName(), e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Could not encode field " + mSavedField.getField().getName(), e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.azoft.injectorlib;
+
+import android.os.Parcel;
+
+import java.lang.reflect.Field;
+
+/**
+ * Copies primitive field to StateContainer or Parcel with typed Field getters and setters, so field value is not boxed
+ * by Field.get and Field.set. Accessor is resolved once per field when class is scanned.
+ */
+abstract class PrimitiveAccessor {
+
+    static final PrimitiveAccessor BOOLEAN = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putBoolean(key, field.getBoolean(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setBoolean(model, state.getBoolean(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeInt(field.getBoolean(model) ? 1 : 0);
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setBoolean(model, 0 != source.readInt());
+        }
+    };
+
+    static final PrimitiveAccessor BYTE = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putByte(key, field.getByte(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setByte(model, state.getByte(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeByte(field.getByte(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setByte(model, source.readByte());
+        }
+    };
+
+    static final PrimitiveAccessor CHAR = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putChar(key, field.getChar(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setChar(model, state.getChar(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeInt(field.getChar(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setChar(model, (char) source.readInt());
+        }
+    };
+
+    static final PrimitiveAccessor SHORT = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putShort(key, field.getShort(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setShort(model, state.getShort(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeInt(field.getShort(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setShort(model, (short) source.readInt());
+        }
+    };
+
+    static final PrimitiveAccessor INT = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putInt(key, field.getInt(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setInt(model, state.getInt(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeInt(field.getInt(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setInt(model, source.readInt());
+        }
+    };
+
+    static final PrimitiveAccessor LONG = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putLong(key, field.getLong(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setLong(model, state.getLong(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeLong(field.getLong(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setLong(model, source.readLong());
+        }
+    };
+
+    static final PrimitiveAccessor FLOAT = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putFloat(key, field.getFloat(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setFloat(model, state.getFloat(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeFloat(field.getFloat(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setFloat(model, source.readFloat());
+        }
+    };
+
+    static final PrimitiveAccessor DOUBLE = new PrimitiveAccessor() {
+        @Override
+        void save(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            state.putDouble(key, field.getDouble(model));
+        }
+
+        @Override
+        void restore(final Field field, final Object model, final StateContainer state, final String key) throws IllegalAccessException {
+            field.setDouble(model, state.getDouble(key));
+        }
+
+        @Override
+        void write(final Field field, final Object model, final Parcel dest) throws IllegalAccessException {
+            dest.writeDouble(field.getDouble(model));
+        }
+
+        @Override
+        void read(final Field field, final Object model, final Parcel source) throws IllegalAccessException {
+            field.setDouble(model, source.readDouble());
+        }
+    };
+
+    abstract void save(Field field, Object model, StateContainer state, String key) throws IllegalAccessException;
+
+    abstract void restore(Field field, Object model, StateContainer state, String key) throws IllegalAccessException;
+
+    abstract void write(Field field, Object model, Parcel dest) throws IllegalAccessException;
+
+    abstract void read(Field field, Object model, Parcel source) throws IllegalAccessException;
+
+    /**
+     * @return accessor for primitive type or null for any other type
+     */
+    static PrimitiveAccessor forType(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+
+        if (boolean.class.equals(type)) {
+            return BOOLEAN;
+        } else if (byte.class.equals(type)) {
+            return BYTE;
+        } else if (char.class.equals(type)) {
+            return CHAR;
+        } else if (short.class.equals(type)) {
+            return SHORT;
+        } else if (int.class.equals(type)) {
+            return INT;
+        } else if (long.class.equals(type)) {
+            return LONG;
+        } else if (float.class.equals(type)) {
+            return FLOAT;
+        } else if (double.class.equals(type)) {
+            return DOUBLE;
+        }
+
+        return null;
+    }
+}
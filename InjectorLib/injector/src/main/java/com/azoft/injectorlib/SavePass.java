@@ -0,0 +1,98 @@
+package com.azoft.injectorlib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * State of one Injector.applyOnSaveInstanceState call shared by all processors of the model.
+ */
+final class SavePass {
+
+    private final String mTagSuffix;
+    private final EncodedValues mEncodedValues;
+    private final InjectorMetrics mMetrics;
+    private final ParallelEncoder mParallelEncoder;
+    private List<ParallelEncoder.PendingValue> mPendingValues;
+    private boolean mDeferEncoding;
+    private int mEncodedBytes;
+    private int mSavedBytes;
+
+    SavePass(final String tagSuffix, final EncodedValues encodedValues, final InjectorMetrics metrics,
+             final ParallelEncoder parallelEncoder) {
+        mTagSuffix = tagSuffix;
+        mEncodedValues = encodedValues;
+        mMetrics = metrics;
+        mParallelEncoder = parallelEncoder;
+    }
+
+    String getTagSuffix() {
+        return mTagSuffix;
+    }
+
+    /**
+     * @return encoded values of previous saves of the same model
+     */
+    EncodedValues getEncodedValues() {
+        return mEncodedValues;
+    }
+
+    /**
+     * @return total size of encoded values in this pass including given count
+     */
+    int addEncodedBytes(final int count) {
+        mEncodedBytes += count;
+        return mEncodedBytes;
+    }
+
+    /**
+     * @return metrics to report to or null if they are disabled
+     */
+    InjectorMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return encoder for heavy fields or null if parallel save is disabled
+     */
+    ParallelEncoder getParallelEncoder() {
+        return mParallelEncoder;
+    }
+
+    /**
+     * @return true if encoded fields are put as DeferredValue and encoded only when the Bundle is parceled
+     */
+    boolean isDeferEncoding() {
+        return mDeferEncoding;
+    }
+
+    void setDeferEncoding(final boolean deferEncoding) {
+        mDeferEncoding = deferEncoding;
+    }
+
+    void addPendingValue(final ParallelEncoder.PendingValue pendingValue) {
+        if (null == mPendingValues) {
+            mPendingValues = new ArrayList<>();
+        }
+
+        mPendingValues.add(pendingValue);
+    }
+
+    /**
+     * @return values encoded in background, to be written after all processors of the model
+     */
+    List<ParallelEncoder.PendingValue> getPendingValues() {
+        return null == mPendingValues ? Collections.<ParallelEncoder.PendingValue>emptyList() : mPendingValues;
+    }
+
+    void addSavedBytes(final int count) {
+        mSavedBytes += count;
+    }
+
+    /**
+     * @return approximate size of entries saved in this pass, counted only while metrics are enabled
+     */
+    int getSavedBytes() {
+        return mSavedBytes;
+    }
+}
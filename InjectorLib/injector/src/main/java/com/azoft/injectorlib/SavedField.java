@@ -0,0 +1,126 @@
+package com.azoft.injectorlib;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Metadata of one InjectSavedState-field collected on class scan. Only encoded size hint changes after scan.
+ */
+final class SavedField {
+
+    private final Field mField;
+    private final String mKeyPrefix;
+    private final boolean mCustomTag;
+    private final BundleCodec mCodec;
+    private final PrimitiveAccessor mPrimitiveAccessor;
+    private final boolean mReuseEncoded;
+    private final boolean mShared;
+    private volatile int mEncodedSizeHint = -1;
+
+    SavedField(final Field field, final InjectSavedState injectSavedState) {
+        mField = field;
+        mCustomTag = 0 != injectSavedState.value().length();
+        mKeyPrefix = mCustomTag ? injectSavedState.value() : field.getDeclaringClass().getName() + '#' + field.getName();
+
+        if (InjectLazy.class.equals(field.getType())) {
+            final Type genericType = getTypeArgument(field.getGenericType());
+
+            mCodec = new LazyCodec(resolveCodec(field, getRawType(genericType), genericType, injectSavedState));
+            mPrimitiveAccessor = null;
+        } else {
+            mCodec = resolveCodec(field, field.getType(), field.getGenericType(), injectSavedState);
+            mPrimitiveAccessor = mCodec instanceof InjectCodecs.CustomCodec ? null : PrimitiveAccessor.forType(field.getType());
+        }
+
+        mReuseEncoded = injectSavedState.reuseEncoded();
+        mShared = injectSavedState.shared() && !field.getType().isPrimitive();
+    }
+
+    Field getField() {
+        return mField;
+    }
+
+    /**
+     * @param tagSuffix instance suffix computed once per save or restore call
+     * @return Bundle key for this field
+     */
+    String getKey(final String tagSuffix) {
+        return mCustomTag || tagSuffix.isEmpty() ? mKeyPrefix : mKeyPrefix.concat(tagSuffix);
+    }
+
+    boolean hasCustomTag() {
+        return mCustomTag;
+    }
+
+    BundleCodec getCodec() {
+        return mCodec;
+    }
+
+    /**
+     * @return accessor for primitive field without custom codec, null for other fields
+     */
+    PrimitiveAccessor getPrimitiveAccessor() {
+        return mPrimitiveAccessor;
+    }
+
+    boolean isEncoded() {
+        return mCodec.isEncoding();
+    }
+
+    boolean isReuseEncoded() {
+        return mReuseEncoded;
+    }
+
+    /**
+     * @return true if value is saved once per container for all shared fields holding the same instance
+     */
+    boolean isShared() {
+        return mShared;
+    }
+
+    /**
+     * @return size of the last encoded value of this field in any instance, -1 if it was never encoded
+     */
+    int getEncodedSizeHint() {
+        return mEncodedSizeHint;
+    }
+
+    void setEncodedSizeHint(final int encodedSizeHint) {
+        mEncodedSizeHint = encodedSizeHint;
+    }
+
+    private static BundleCodec resolveCodec(final Field field, final Class<?> type, final Type genericType,
+                                            final InjectSavedState injectSavedState) {
+        final BundleCodec customCodec = InjectCodecs.forField(field, type, injectSavedState);
+        final BundleCodec codec = null == customCodec ? BundleCodecs.forType(type, genericType) : customCodec;
+
+        return injectSavedState.compress() && !type.isPrimitive() ? new CompressingCodec(codec, injectSavedState.compressAbove()) : codec;
+    }
+
+    private static Type getTypeArgument(final Type genericType) {
+        if (genericType instanceof ParameterizedType) {
+            final Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+
+            if (1 == typeArguments.length) {
+                return typeArguments[0];
+            }
+        }
+
+        return Object.class;
+    }
+
+    private static Class<?> getRawType(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return getRawType(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(getRawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+
+        return Object.class;
+    }
+}
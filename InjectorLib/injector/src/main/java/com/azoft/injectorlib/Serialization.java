@@ -0,0 +1,63 @@
+package com.azoft.injectorlib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+/**
+ * Java serialization to and from byte arrays for Serializable values that are encoded by Injector itself.
+ */
+final class Serialization {
+
+    private Serialization() {
+    }
+
+    static byte[] serialize(final Serializable value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not serialize " + value.getClass().getName(), e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(final byte[] data, final ClassLoader classLoader) {
+        try (ObjectInputStream in = new ClassLoaderObjectInputStream(new ByteArrayInputStream(data), classLoader)) {
+            return in.readObject();
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not deserialize value", e);
+        }
+    }
+
+    private static final class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader mClassLoader;
+
+        ClassLoaderObjectInputStream(final InputStream in, final ClassLoader classLoader) throws IOException {
+            super(in);
+
+            mClassLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (null != mClassLoader) {
+                try {
+                    return Class.forName(desc.getName(), false, mClassLoader);
+                } catch (final ClassNotFoundException ignored) {
+                    // primitive types and arrays are resolved by default implementation
+                }
+            }
+
+            return super.resolveClass(desc);
+        }
+    }
+}
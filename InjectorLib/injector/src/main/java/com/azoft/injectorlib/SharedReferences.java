@@ -0,0 +1,117 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Table of values of shared InjectSavedState-fields in the container. Each instance is saved to it once, fields get only
+ * a reference with its id.
+ */
+final class SharedReferences {
+
+    static final String TABLE_KEY = "injector__shared";
+
+    private static final String KEY_REFERENCE_ID = "injector__shared_id";
+
+    private static final Map<Bundle, IdentityHashMap<Object, String>> SAVED_IDS = new WeakHashMap<>();
+    private static final Map<Bundle, Map<String, Object>> RESTORED_VALUES = new WeakHashMap<>();
+
+    private SharedReferences() {
+    }
+
+    static Bundle getOrCreateTable(final StateContainer state) {
+        final Object table = state.get(TABLE_KEY);
+
+        if (table instanceof Bundle) {
+            return (Bundle) table;
+        }
+
+        final Bundle newTable = new Bundle();
+
+        state.putBundle(TABLE_KEY, newTable);
+
+        return newTable;
+    }
+
+    @Nullable
+    static Bundle getTable(final StateContainer state) {
+        final Object table = state.get(TABLE_KEY);
+
+        return table instanceof Bundle ? (Bundle) table : null;
+    }
+
+    /**
+     * @return id of value already saved to the table or null
+     */
+    @Nullable
+    static String getSavedId(final Bundle table, final Object value) {
+        synchronized (SAVED_IDS) {
+            final IdentityHashMap<Object, String> ids = SAVED_IDS.get(table);
+
+            return null == ids ? null : ids.get(value);
+        }
+    }
+
+    /**
+     * @return new id for value, caller saves value to the table under it
+     */
+    static String addSavedId(final Bundle table, final Object value) {
+        synchronized (SAVED_IDS) {
+            IdentityHashMap<Object, String> ids = SAVED_IDS.get(table);
+
+            if (null == ids) {
+                ids = new IdentityHashMap<>();
+                SAVED_IDS.put(table, ids);
+            }
+
+            final String id = String.valueOf(ids.size());
+
+            ids.put(value, id);
+
+            return id;
+        }
+    }
+
+    @Nullable
+    static Object getRestored(final Bundle table, final String id) {
+        synchronized (RESTORED_VALUES) {
+            final Map<String, Object> values = RESTORED_VALUES.get(table);
+
+            return null == values ? null : values.get(id);
+        }
+    }
+
+    static void putRestored(final Bundle table, final String id, final Object value) {
+        synchronized (RESTORED_VALUES) {
+            Map<String, Object> values = RESTORED_VALUES.get(table);
+
+            if (null == values) {
+                values = new HashMap<>();
+                RESTORED_VALUES.put(table, values);
+            }
+
+            values.put(id, value);
+        }
+    }
+
+    static Bundle reference(final String id) {
+        final Bundle reference = new Bundle(1);
+
+        reference.putString(KEY_REFERENCE_ID, id);
+
+        return reference;
+    }
+
+    static boolean isReference(@Nullable final Object value) {
+        return value instanceof Bundle && ((Bundle) value).containsKey(KEY_REFERENCE_ID);
+    }
+
+    static String getId(final Bundle reference) {
+        return reference.getString(KEY_REFERENCE_ID);
+    }
+}
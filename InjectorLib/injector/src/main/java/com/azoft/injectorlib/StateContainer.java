@@ -0,0 +1,101 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * Storage that Injector saves fields to and restores them from. Methods have the same names and semantics as Bundle methods,
+ * so getters of missing keys return default values. See BundleStateContainer, CompactStateContainer and FlatStateContainer.
+ */
+@SuppressWarnings("unused")
+public interface StateContainer {
+
+    boolean containsKey(String key);
+
+    Object get(String key);
+
+    void remove(String key);
+
+    Set<String> keySet();
+
+    void putBoolean(String key, boolean value);
+
+    void putByte(String key, byte value);
+
+    void putChar(String key, char value);
+
+    void putShort(String key, short value);
+
+    void putInt(String key, int value);
+
+    void putLong(String key, long value);
+
+    void putFloat(String key, float value);
+
+    void putDouble(String key, double value);
+
+    boolean getBoolean(String key);
+
+    byte getByte(String key);
+
+    char getChar(String key);
+
+    short getShort(String key);
+
+    int getInt(String key);
+
+    long getLong(String key);
+
+    float getFloat(String key);
+
+    double getDouble(String key);
+
+    void putBooleanArray(String key, boolean[] value);
+
+    void putByteArray(String key, byte[] value);
+
+    void putCharArray(String key, char[] value);
+
+    void putShortArray(String key, short[] value);
+
+    void putIntArray(String key, int[] value);
+
+    void putLongArray(String key, long[] value);
+
+    void putFloatArray(String key, float[] value);
+
+    void putDoubleArray(String key, double[] value);
+
+    byte[] getByteArray(String key);
+
+    void putString(String key, String value);
+
+    void putStringArray(String key, String[] value);
+
+    void putCharSequence(String key, CharSequence value);
+
+    void putCharSequenceArray(String key, CharSequence[] value);
+
+    void putBundle(String key, Bundle value);
+
+    void putParcelable(String key, Parcelable value);
+
+    void putParcelableArray(String key, Parcelable[] value);
+
+    void putStringArrayList(String key, ArrayList<String> value);
+
+    void putCharSequenceArrayList(String key, ArrayList<CharSequence> value);
+
+    void putIntegerArrayList(String key, ArrayList<Integer> value);
+
+    void putParcelableArrayList(String key, ArrayList<? extends Parcelable> value);
+
+    void putSparseParcelableArray(String key, SparseArray<? extends Parcelable> value);
+
+    void putSerializable(String key, Serializable value);
+}
@@ -0,0 +1,22 @@
+package com.azoft.injectorlib;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Saves and restores InjectSavedState-fields declared in one class without reflection.
+ * Implementations are generated by injector-compiler as {@code ClassName$$StateSaver} and are picked up by Injector.init automatically.
+ *
+ * @param <T> class with InjectSavedState-fields
+ */
+public interface StateSaver<T> {
+
+    /**
+     * @param tagSuffix instance part of the key, see Injector.getSaveStateTagSuffix
+     */
+    void restore(@NonNull T model, @NonNull StateContainer savedState, @NonNull String tagSuffix);
+
+    /**
+     * @param tagSuffix instance part of the key, see Injector.getSaveStateTagSuffix
+     */
+    void save(@NonNull T model, @NonNull StateContainer outState, @NonNull String tagSuffix);
+}
@@ -0,0 +1,47 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Reads values of generated StateSavers that may be saved in encoded form by reflection: as byte array, inline envelope
+ * or blob. Called only by generated code.
+ */
+public final class StateSavers {
+
+    private StateSavers() {
+    }
+
+    /**
+     * @return data of InjectCodec-field or null if its blob is missing
+     */
+    @Nullable
+    public static byte[] getEncoded(@NonNull final StateContainer state, @NonNull final String key) {
+        final Object stored = state.get(key);
+
+        if (InjectorBlobStore.isBlob(stored)) {
+            return InjectorBlobStore.read(Injector.getBlobStore(), (Bundle) stored);
+        }
+
+        return stored instanceof byte[] ? (byte[]) stored : InjectorBlobStore.getInline(stored);
+    }
+
+    /**
+     * @param classLoader class loader of the model
+     * @return value of field saved with putSerializable or null if its blob is missing
+     */
+    @Nullable
+    public static Object getSerializable(@NonNull final StateContainer state, @NonNull final String key,
+                                         @Nullable final ClassLoader classLoader) {
+        final Object stored = state.get(key);
+
+        if (!(stored instanceof byte[]) && !(stored instanceof Bundle)) {
+            return stored;
+        }
+
+        final byte[] data = getEncoded(state, key);
+
+        return null == data ? null : BundleCodecs.SERIALIZABLE.decode(data, classLoader);
+    }
+}
@@ -0,0 +1,134 @@
+package com.azoft.injectorlib;
+
+import android.util.Log;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves once per model class how to build instance part of the Bundle key: InjectSaveStateTag tag or Fragment tag and id.
+ */
+final class TagSuffixes {
+
+    private static final String[] FRAGMENT_CLASS_NAMES = {"android.app.Fragment", "android.support.v4.app.Fragment"};
+
+    private static final ConcurrentMap<Class<?>, TagSuffix> CLASS_SUFFIXES = new ConcurrentHashMap<>();
+
+    private static final TagSuffix EMPTY_SUFFIX = new TagSuffix() {
+        @Override
+        String get(final Object model) {
+            return "";
+        }
+    };
+
+    private static final TagSuffix SAVE_STATE_TAG_SUFFIX = new TagSuffix() {
+        @Override
+        String get(final Object model) {
+            return ':' + ((InjectSaveStateTag) model).getSaveStateTag();
+        }
+    };
+
+    private TagSuffixes() {
+    }
+
+    static String getSuffix(final Object model) {
+        return forClass(model.getClass()).get(model);
+    }
+
+    /**
+     * Resolves suffix of the class in advance, see Injector.preload.
+     */
+    static void preload(final Class<?> modelClass) {
+        forClass(modelClass);
+    }
+
+    private static TagSuffix forClass(final Class<?> modelClass) {
+        TagSuffix tagSuffix = CLASS_SUFFIXES.get(modelClass);
+
+        if (null == tagSuffix) {
+            tagSuffix = resolve(modelClass);
+
+            final TagSuffix oldTagSuffix = CLASS_SUFFIXES.putIfAbsent(modelClass, tagSuffix);
+            if (null != oldTagSuffix) {
+                tagSuffix = oldTagSuffix;
+            }
+        }
+
+        return tagSuffix;
+    }
+
+    private static TagSuffix resolve(final Class<?> modelClass) {
+        if (InjectSaveStateTag.class.isAssignableFrom(modelClass)) {
+            return SAVE_STATE_TAG_SUFFIX;
+        }
+
+        for (final String fragmentClassName : FRAGMENT_CLASS_NAMES) {
+            final Class<?> fragmentClass = getFragmentClassIfHave(modelClass, fragmentClassName);
+
+            if (null != fragmentClass) {
+                try {
+                    return new FragmentTagSuffix(fragmentClass.getDeclaredMethod("getTag"), fragmentClass.getDeclaredMethod("getId"));
+                } catch (final NoSuchMethodException e) {
+                    Log.d(TagSuffixes.class.getSimpleName(), "Could not find Fragment tag methods", e);
+                    return EMPTY_SUFFIX;
+                }
+            }
+        }
+
+        return EMPTY_SUFFIX;
+    }
+
+    private static Class<?> getFragmentClassIfHave(final Class<?> modelClass, final String className) {
+        try {
+            final Class<?> fragmentClass = Class.forName(className);
+            if (fragmentClass.isAssignableFrom(modelClass)) {
+                return fragmentClass;
+            }
+        } catch (final ClassNotFoundException ignored) {
+            // pass
+        }
+        return null;
+    }
+
+    private abstract static class TagSuffix {
+
+        abstract String get(Object model);
+    }
+
+    private static final class FragmentTagSuffix extends TagSuffix {
+
+        private final Method mTagMethod;
+        private final Method mIdMethod;
+
+        FragmentTagSuffix(final Method tagMethod, final Method idMethod) {
+            mTagMethod = tagMethod;
+            mIdMethod = idMethod;
+        }
+
+        @Override
+        String get(final Object model) {
+            final StringBuilder tag = new StringBuilder();
+
+            //noinspection TryWithIdenticalCatches
+            try {
+                final Object fragmentTag = mTagMethod.invoke(model);
+
+                if (null != fragmentTag) {
+                    tag.append(':');
+                    tag.append(fragmentTag);
+                }
+
+                tag.append(':');
+                tag.append(mIdMethod.invoke(model));
+            } catch (final InvocationTargetException ignored) {
+                // pass
+            } catch (final IllegalAccessException ignored) {
+                // pass
+            }
+
+            return tag.toString();
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.azoft.injectorlib;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Codec of InjectValueType classes. Value is written as format byte, layout hash and fields in layout order without names,
+ * state written with other layout is not restored.
+ */
+final class ValueTypeCodec extends BundleCodec {
+
+    private static final byte FORMAT_VALUE_TYPE = 1;
+
+    private static final int KIND_BOOLEAN = 0;
+    private static final int KIND_BYTE = 1;
+    private static final int KIND_CHAR = 2;
+    private static final int KIND_SHORT = 3;
+    private static final int KIND_INT = 4;
+    private static final int KIND_LONG = 5;
+    private static final int KIND_FLOAT = 6;
+    private static final int KIND_DOUBLE = 7;
+    private static final int KIND_BOXED = 8;
+    private static final int KIND_STRING = 9;
+    private static final int KIND_ENUM = 10;
+    private static final int KIND_VALUE_TYPE = 11;
+    private static final int KIND_BOOLEAN_ARRAY = 12;
+    private static final int KIND_BYTE_ARRAY = 13;
+    private static final int KIND_CHAR_ARRAY = 14;
+    private static final int KIND_SHORT_ARRAY = 15;
+    private static final int KIND_INT_ARRAY = 16;
+    private static final int KIND_LONG_ARRAY = 17;
+    private static final int KIND_FLOAT_ARRAY = 18;
+    private static final int KIND_DOUBLE_ARRAY = 19;
+    private static final int KIND_STRING_ARRAY = 20;
+
+    private static final List<Class<?>> PRIMITIVES = Arrays.<Class<?>>asList(boolean.class, byte.class, char.class, short.class,
+            int.class, long.class, float.class, double.class);
+    private static final List<Class<?>> BOXED = Arrays.<Class<?>>asList(Boolean.class, Byte.class, Character.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class);
+    private static final List<Class<?>> ARRAYS = Arrays.<Class<?>>asList(boolean[].class, byte[].class, char[].class, short[].class,
+            int[].class, long[].class, float[].class, double[].class, String[].class);
+
+    private static final ConcurrentMap<Class<?>, ValueTypeCodec> CLASS_CODECS = new ConcurrentHashMap<>();
+
+    private final Class<?> mType;
+    private final Constructor<?> mConstructor;
+    private final Field[] mFields;
+    private final int[] mKinds;
+    private final ValueTypeCodec[] mNested;
+    private final int mLayoutHash;
+
+    /**
+     * @param resolving codecs being created with this one, recursive types get the same instance
+     */
+    private ValueTypeCodec(final Class<?> type, final Map<Class<?>, ValueTypeCodec> resolving) {
+        mType = type;
+
+        try {
+            mConstructor = type.getDeclaredConstructor();
+            mConstructor.setAccessible(true);
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException("InjectValueType-class " + type.getName() + " must have a constructor without arguments.", e);
+        }
+
+        final List<Field> fields = collectFields(type);
+        final StringBuilder layout = new StringBuilder();
+
+        mFields = fields.toArray(new Field[fields.size()]);
+        mKinds = new int[mFields.length];
+
+        for (int i = 0; i < mFields.length; i++) {
+            mKinds[i] = getKind(type, mFields[i]);
+            layout.append(mFields[i].getName()).append(':').append(mFields[i].getType().getName()).append(';');
+        }
+
+        mLayoutHash = layout.toString().hashCode();
+        mNested = new ValueTypeCodec[mFields.length];
+
+        resolving.put(type, this);
+
+        for (int i = 0; i < mFields.length; i++) {
+            if (KIND_VALUE_TYPE == mKinds[i]) {
+                mNested[i] = resolve(mFields[i].getType(), resolving);
+            }
+        }
+    }
+
+    /**
+     * Resolves layout of the class and of its nested value types once.
+     */
+    static ValueTypeCodec forClass(final Class<?> type) {
+        ValueTypeCodec codec = CLASS_CODECS.get(type);
+
+        if (null == codec) {
+            final Map<Class<?>, ValueTypeCodec> resolving = new HashMap<>();
+
+            codec = resolve(type, resolving);
+
+            // codecs are shared only when all of them are resolved
+            for (final Map.Entry<Class<?>, ValueTypeCodec> entry : resolving.entrySet()) {
+                CLASS_CODECS.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return codec;
+    }
+
+    private static ValueTypeCodec resolve(final Class<?> type, final Map<Class<?>, ValueTypeCodec> resolving) {
+        ValueTypeCodec codec = CLASS_CODECS.get(type);
+
+        if (null == codec) {
+            codec = resolving.get(type);
+        }
+
+        return null == codec ? new ValueTypeCodec(type, resolving) : codec;
+    }
+
+    private boolean isValueType(final Object value) {
+        return mType == value.getClass();
+    }
+
+    @Override
+    boolean put(final StateContainer state, final String key, final Object value) {
+        if (isValueType(value)) {
+            state.putByteArray(key, encode(value));
+            return true;
+        }
+
+        return value instanceof Serializable && BundleCodecs.SERIALIZABLE.put(state, key, value);
+    }
+
+    @Override
+    Object get(final StateContainer state, final String key, final ClassLoader classLoader) {
+        final Object stored = state.get(key);
+
+        // Serializable fallback and state saved before the class was marked are restored as is
+        return stored instanceof byte[] ? decode((byte[]) stored, classLoader) : stored;
+    }
+
+    @Override
+    boolean isEncoding() {
+        return true;
+    }
+
+    @Override
+    byte[] encode(final Object value) {
+        if (!isValueType(value)) {
+            return value instanceof Serializable ? BundleCodecs.SERIALIZABLE.encode(value) : null;
+        }
+
+        final Output out = new Output(64);
+
+        out.ensure(1).put(FORMAT_VALUE_TYPE);
+
+        try {
+            write(value, out);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException("Could not write InjectValueType " + mType.getName(), e);
+        }
+
+        return out.toByteArray();
+    }
+
+    @Override
+    Object decode(final byte[] data, final ClassLoader classLoader) {
+        if (FORMAT_VALUE_TYPE != data[0]) {
+            // java serialization stream starts with 0xACED
+            return BundleCodecs.SERIALIZABLE.decode(data, classLoader);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        buffer.get();
+
+        try {
+            return read(buffer);
+        } catch (final InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not read InjectValueType " + mType.getName(), e);
+        } catch (final BufferUnderflowException | IllegalArgumentException e) {
+            // IllegalArgumentException comes from unknown enum constant
+            throw new IllegalStateException("State of InjectValueType " + mType.getName() + " is corrupted", e);
+        }
+    }
+
+    @Override
+    InjectorMetrics.CodecPath getPath(final Object value) {
+        return null == value || isValueType(value) ? InjectorMetrics.CodecPath.CODEC : InjectorMetrics.CodecPath.SERIALIZABLE;
+    }
+
+    private void write(final Object value, final Output out) throws IllegalAccessException {
+        out.ensure(4).putInt(mLayoutHash);
+
+        for (int i = 0; i < mFields.length; i++) {
+            final Field field = mFields[i];
+
+            switch (mKinds[i]) {
+                case KIND_BOOLEAN:
+                    out.ensure(1).put(field.getBoolean(value) ? (byte) 1 : (byte) 0);
+                    break;
+                case KIND_BYTE:
+                    out.ensure(1).put(field.getByte(value));
+                    break;
+                case KIND_CHAR:
+                    out.ensure(2).putChar(field.getChar(value));
+                    break;
+                case KIND_SHORT:
+                    out.ensure(2).putShort(field.getShort(value));
+                    break;
+                case KIND_INT:
+                    out.ensure(4).putInt(field.getInt(value));
+                    break;
+                case KIND_LONG:
+                    out.ensure(8).putLong(field.getLong(value));
+                    break;
+                case KIND_FLOAT:
+                    out.ensure(4).putFloat(field.getFloat(value));
+                    break;
+                case KIND_DOUBLE:
+                    out.ensure(8).putDouble(field.getDouble(value));
+                    break;
+                default:
+                    writeObject(mKinds[i], mNested[i], field.get(value), out);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes null flag, then the value.
+     */
+    private static void writeObject(final int kind, final ValueTypeCodec nested, final Object value, final Output out)
+            throws IllegalAccessException {
+        out.ensure(1).put(null == value ? (byte) 0 : (byte) 1);
+
+        if (null == value) {
+            return;
+        }
+
+        switch (kind) {
+            case KIND_BOXED:
+                writeBoxed(value, out);
+                break;
+            case KIND_STRING:
+                out.putString((String) value);
+                break;
+            case KIND_ENUM:
+                out.putString(((Enum<?>) value).name());
+                break;
+            case KIND_VALUE_TYPE:
+                if (!nested.isValueType(value)) {
+                    throw new IllegalStateException("Nested InjectValueType value must be of exact type " + nested.mType.getName());
+                }
+
+                nested.write(value, out);
+                break;
+            case KIND_BOOLEAN_ARRAY:
+            case KIND_BYTE_ARRAY:
+            case KIND_CHAR_ARRAY:
+            case KIND_SHORT_ARRAY:
+            case KIND_INT_ARRAY:
+            case KIND_LONG_ARRAY:
+            case KIND_FLOAT_ARRAY:
+            case KIND_DOUBLE_ARRAY:
+                final int length = Array.getLength(value);
+                final int size = length * BinaryBuffers.sizeOf(value.getClass().getComponentType());
+
+                BinaryBuffers.putArray(out.ensure(4 + size).putInt(length), value);
+                break;
+            case KIND_STRING_ARRAY:
+                final String[] strings = (String[]) value;
+
+                out.ensure(4).putInt(strings.length);
+                for (final String element : strings) {
+                    out.ensure(1).put(null == element ? (byte) 0 : (byte) 1);
+
+                    if (null != element) {
+                        out.putString(element);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown kind " + kind);
+        }
+    }
+
+    private static void writeBoxed(final Object value, final Output out) {
+        if (value instanceof Boolean) {
+            out.ensure(1).put((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Byte) {
+            out.ensure(1).put((Byte) value);
+        } else if (value instanceof Character) {
+            out.ensure(2).putChar((Character) value);
+        } else if (value instanceof Short) {
+            out.ensure(2).putShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.ensure(4).putInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.ensure(8).putLong((Long) value);
+        } else if (value instanceof Float) {
+            out.ensure(4).putFloat((Float) value);
+        } else {
+            out.ensure(8).putDouble((Double) value);
+        }
+    }
+
+    private Object read(final ByteBuffer buffer) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        if (buffer.getInt() != mLayoutHash) {
+            throw new IllegalStateException("InjectValueType " + mType.getName() + " was written with other fields");
+        }
+
+        final Object value = mConstructor.newInstance();
+
+        for (int i = 0; i < mFields.length; i++) {
+            final Field field = mFields[i];
+
+            switch (mKinds[i]) {
+                case KIND_BOOLEAN:
+                    field.setBoolean(value, 0 != buffer.get());
+                    break;
+                case KIND_BYTE:
+                    field.setByte(value, buffer.get());
+                    break;
+                case KIND_CHAR:
+                    field.setChar(value, buffer.getChar());
+                    break;
+                case KIND_SHORT:
+                    field.setShort(value, buffer.getShort());
+                    break;
+                case KIND_INT:
+                    field.setInt(value, buffer.getInt());
+                    break;
+                case KIND_LONG:
+                    field.setLong(value, buffer.getLong());
+                    break;
+                case KIND_FLOAT:
+                    field.setFloat(value, buffer.getFloat());
+                    break;
+                case KIND_DOUBLE:
+                    field.setDouble(value, buffer.getDouble());
+                    break;
+                default:
+                    field.set(value, readObject(mKinds[i], field.getType(), mNested[i], buffer));
+                    break;
+            }
+        }
+
+        return value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readObject(final int kind, final Class<?> type, final ValueTypeCodec nested, final ByteBuffer buffer)
+            throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        if (0 == buffer.get()) {
+            return null;
+        }
+
+        switch (kind) {
+            case KIND_BOXED:
+                return readBoxed(type, buffer);
+            case KIND_STRING:
+                return getString(buffer);
+            case KIND_ENUM:
+                return Enum.valueOf((Class<? extends Enum>) type, getString(buffer));
+            case KIND_VALUE_TYPE:
+                return nested.read(buffer);
+            case KIND_BOOLEAN_ARRAY:
+            case KIND_BYTE_ARRAY:
+            case KIND_CHAR_ARRAY:
+            case KIND_SHORT_ARRAY:
+            case KIND_INT_ARRAY:
+            case KIND_LONG_ARRAY:
+            case KIND_FLOAT_ARRAY:
+            case KIND_DOUBLE_ARRAY:
+                return BinaryBuffers.getArray(buffer, type.getComponentType(), buffer.getInt());
+            case KIND_STRING_ARRAY:
+                final int length = buffer.getInt();
+
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+
+                final String[] strings = new String[length];
+
+                for (int i = 0; i < strings.length; i++) {
+                    strings[i] = 0 == buffer.get() ? null : getString(buffer);
+                }
+                return strings;
+            default:
+                throw new IllegalStateException("Unknown kind " + kind);
+        }
+    }
+
+    private static Object readBoxed(final Class<?> type, final ByteBuffer buffer) {
+        if (Boolean.class.equals(type)) {
+            return 0 != buffer.get();
+        } else if (Byte.class.equals(type)) {
+            return buffer.get();
+        } else if (Character.class.equals(type)) {
+            return buffer.getChar();
+        } else if (Short.class.equals(type)) {
+            return buffer.getShort();
+        } else if (Integer.class.equals(type)) {
+            return buffer.getInt();
+        } else if (Long.class.equals(type)) {
+            return buffer.getLong();
+        } else if (Float.class.equals(type)) {
+            return buffer.getFloat();
+        }
+
+        return buffer.getDouble();
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        return BinaryBuffers.getString(buffer, buffer.getInt());
+    }
+
+    /**
+     * @return fields of superclasses first, fields of each class sorted by name
+     */
+    private static List<Field> collectFields(final Class<?> type) {
+        final List<Class<?>> classes = new ArrayList<>();
+
+        for (Class<?> clazz = type; null != clazz && !Object.class.equals(clazz); clazz = clazz.getSuperclass()) {
+            classes.add(0, clazz);
+        }
+
+        final List<Field> fields = new ArrayList<>();
+
+        for (final Class<?> clazz : classes) {
+            final List<Field> classFields = new ArrayList<>();
+
+            for (final Field field : clazz.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+
+                // synthetic fields are added by compilers and build tools, they are not state
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    field.setAccessible(true);
+                    classFields.add(field);
+                }
+            }
+
+            Collections.sort(classFields, new Comparator<Field>() {
+                @Override
+                public int compare(final Field first, final Field second) {
+                    return first.getName().compareTo(second.getName());
+                }
+            });
+            fields.addAll(classFields);
+        }
+
+        return fields;
+    }
+
+    private static int getKind(final Class<?> type, final Field field) {
+        final Class<?> fieldType = field.getType();
+
+        if (PRIMITIVES.contains(fieldType)) {
+            return KIND_BOOLEAN + PRIMITIVES.indexOf(fieldType);
+        } else if (BOXED.contains(fieldType)) {
+            return KIND_BOXED;
+        } else if (String.class.equals(fieldType)) {
+            return KIND_STRING;
+        } else if (fieldType.isEnum()) {
+            return KIND_ENUM;
+        } else if (fieldType.isAnnotationPresent(InjectValueType.class)) {
+            return KIND_VALUE_TYPE;
+        } else if (ARRAYS.contains(fieldType)) {
+            return KIND_BOOLEAN_ARRAY + ARRAYS.indexOf(fieldType);
+        }
+
+        throw new IllegalStateException("InjectValueType-class " + type.getName() + " has field " + field.getName()
+                + " of unsupported type " + fieldType.getName());
+    }
+
+    /**
+     * Growable heap ByteBuffer.
+     */
+    private static final class Output {
+
+        private ByteBuffer mBuffer;
+
+        Output(final int capacity) {
+            mBuffer = ByteBuffer.allocate(capacity);
+        }
+
+        /**
+         * @return buffer with at least count bytes remaining
+         */
+        ByteBuffer ensure(final int count) {
+            if (mBuffer.remaining() < count) {
+                final ByteBuffer buffer = ByteBuffer.allocate(Math.max(mBuffer.capacity() * 2, mBuffer.position() + count));
+
+                mBuffer.flip();
+                buffer.put(mBuffer);
+                mBuffer = buffer;
+            }
+
+            return mBuffer;
+        }
+
+        void putString(final String value) {
+            final byte[] bytes = value.getBytes(BinaryBuffers.UTF_8);
+
+            ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer.array(), mBuffer.position());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BundleCodecsTest {
+
+    @Test
+    public void resolvesCodecFromDeclaredType() throws NoSuchFieldException {
+        assertSame(BundleCodecs.INT, forField("mInt"));
+        assertSame(BundleCodecs.INT, forField("mInteger"));
+        assertSame(BundleCodecs.STRING, forField("mString"));
+        assertSame(BundleCodecs.LONG_ARRAY, forField("mLongs"));
+        assertSame(BundleCodecs.STRING_ARRAY_LIST, forField("mStrings"));
+        assertSame(BundleCodecs.CHAR_SEQUENCE_ARRAY_LIST, forField("mCharSequences"));
+        assertSame(BundleCodecs.INTEGER_ARRAY_LIST, forField("mIntegers"));
+        assertSame(BundleCodecs.SERIALIZABLE, forField("mDate"));
+    }
+
+    @Test
+    public void resolvesCodecOfAbstractTypeFromValue() throws NoSuchFieldException {
+        // Object field is checked on every save
+        assertEquals("DynamicCodec", forField("mObject").getClass().getSimpleName());
+        assertSame(BundleCodecs.INT, BundleCodecs.forValue(5, null));
+        assertSame(BundleCodecs.STRING, BundleCodecs.forValue("value", null));
+        assertSame(BundleCodecs.SERIALIZABLE, BundleCodecs.forValue(new Date(), null));
+    }
+
+    @Test
+    public void restoresValuesOfObjectField() {
+        for (final Object value : Arrays.<Object>asList(5, 7L, "value", new ArrayList<>(Arrays.asList("line")))) {
+            final Model model = new Model();
+
+            model.mObject = value;
+
+            assertEquals(value, restore(save(model)).mObject);
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedValueOfObjectField() {
+        final Model model = new Model();
+
+        model.mObject = new Object();
+
+        try {
+            save(model);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not save value"));
+        }
+    }
+
+    private static BundleCodec forField(final String name) throws NoSuchFieldException {
+        final Field field = Model.class.getDeclaredField(name);
+
+        return BundleCodecs.forType(field.getType(), field.getGenericType());
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, bundle);
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        int mInt;
+        @InjectSavedState
+        Integer mInteger;
+        @InjectSavedState
+        String mString;
+        @InjectSavedState
+        long[] mLongs;
+        @InjectSavedState
+        ArrayList<String> mStrings;
+        @InjectSavedState
+        ArrayList<? extends CharSequence> mCharSequences;
+        @InjectSavedState
+        ArrayList<Integer> mIntegers;
+        @InjectSavedState
+        Date mDate;
+        @InjectSavedState
+        Object mObject;
+    }
+}
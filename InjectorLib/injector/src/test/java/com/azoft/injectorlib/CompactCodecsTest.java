@@ -0,0 +1,194 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactCodecsTest {
+
+    private static final String MAP_KEY = Model.class.getName() + "#mMap";
+    private static final String LONGS_KEY = Model.class.getName() + "#mLongs";
+
+    @Test
+    public void restoresCompactValues() {
+        final Model model = new Model();
+
+        model.mMap = new HashMap<>();
+        model.mMap.put("one", 1);
+        model.mMap.put("", -1);
+        model.mLongs = new ArrayList<>(Arrays.asList(1L, Long.MAX_VALUE));
+        model.mStrings = new LinkedHashSet<>(Arrays.asList("b", "a"));
+        model.mInts = new SparseIntArray();
+        model.mInts.put(3, 30);
+        model.mInts.put(-1, 10);
+        model.mFlags = new SparseBooleanArray();
+        model.mFlags.put(7, true);
+
+        final Bundle bundle = save(model);
+
+        assertTrue(bundle.get(MAP_KEY) instanceof byte[]);
+        assertTrue(bundle.get(LONGS_KEY) instanceof byte[]);
+
+        final Model restored = restore(bundle);
+
+        assertEquals(model.mMap, restored.mMap);
+        assertEquals(model.mLongs, restored.mLongs);
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(restored.mStrings));
+        assertEquals(2, restored.mInts.size());
+        assertEquals(30, restored.mInts.get(3));
+        assertEquals(10, restored.mInts.get(-1));
+        assertEquals(1, restored.mFlags.size());
+        assertTrue(restored.mFlags.get(7));
+    }
+
+    @Test
+    public void restoresEmptyValues() {
+        final Model model = new Model();
+
+        model.mMap = new HashMap<>();
+        model.mLongs = new ArrayList<>();
+        model.mStrings = new LinkedHashSet<>();
+        model.mInts = new SparseIntArray();
+        model.mFlags = new SparseBooleanArray();
+
+        final Model restored = restore(save(model));
+
+        assertTrue(restored.mMap.isEmpty());
+        assertTrue(restored.mLongs.isEmpty());
+        assertTrue(restored.mStrings.isEmpty());
+        assertEquals(0, restored.mInts.size());
+        assertEquals(0, restored.mFlags.size());
+    }
+
+    @Test
+    public void savesNullElementsAsSerializable() {
+        final Model model = new Model();
+
+        model.mMap = new HashMap<>();
+        model.mMap.put("null", null);
+        model.mLongs = new ArrayList<>(Arrays.asList(1L, null));
+
+        final Bundle bundle = save(model);
+
+        assertFalse(bundle.get(MAP_KEY) instanceof byte[]);
+        assertFalse(bundle.get(LONGS_KEY) instanceof byte[]);
+
+        final Model restored = restore(bundle);
+
+        assertEquals(model.mMap, restored.mMap);
+        assertEquals(model.mLongs, restored.mLongs);
+    }
+
+    @Test
+    public void restoresValueSavedBeforeCompactFormat() {
+        final Bundle bundle = new Bundle();
+        final HashMap<String, Integer> map = new HashMap<>();
+
+        map.put("one", 1);
+        bundle.putSerializable(MAP_KEY, map);
+        bundle.putByteArray(LONGS_KEY, Serialization.serialize(new ArrayList<>(Arrays.asList(5L))));
+
+        final Model restored = restore(bundle);
+
+        assertEquals(map, restored.mMap);
+        assertEquals(Arrays.asList(5L), restored.mLongs);
+    }
+
+    @Test
+    public void rejectsTruncatedValue() {
+        final Model model = new Model();
+
+        model.mLongs = new ArrayList<>(Arrays.asList(1L, 2L));
+
+        final Bundle bundle = save(model);
+        final byte[] data = (byte[]) bundle.get(LONGS_KEY);
+
+        bundle.putByteArray(LONGS_KEY, Arrays.copyOf(data, data.length - 1));
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Compact state is corrupted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedSize() {
+        final Model model = new Model();
+
+        model.mMap = new HashMap<>();
+        model.mMap.put("one", 1);
+
+        final Bundle bundle = save(model);
+        final byte[] data = (byte[]) bundle.get(MAP_KEY);
+
+        // size follows the format byte
+        data[1] = (byte) 0x7f;
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Compact state is corrupted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsSparseArraySubclass() {
+        final Model model = new Model();
+
+        model.mInts = new SparseIntArray() {
+        };
+        model.mInts.put(1, 10);
+
+        try {
+            save(model);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not save value"));
+        }
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        HashMap<String, Integer> mMap;
+        @InjectSavedState
+        ArrayList<Long> mLongs;
+        @InjectSavedState
+        LinkedHashSet<String> mStrings;
+        @InjectSavedState
+        SparseIntArray mInts;
+        @InjectSavedState
+        SparseBooleanArray mFlags;
+    }
+}
@@ -0,0 +1,180 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactStateContainerTest {
+
+    private static final String TEXT_KEY = Model.class.getName() + "#mText";
+    private static final List<String> KEYS = Arrays.asList(Model.class.getName() + "#mCount", TEXT_KEY,
+            Model.class.getName() + "#mLines");
+
+    @After
+    public void tearDown() {
+        Injector.setCompactKeys(false);
+    }
+
+    @Test
+    public void restoresFieldsSavedUnderIds() {
+        final Model model = new Model();
+
+        model.mCount = 42;
+        model.mText = "value";
+        model.mLines = new ArrayList<>();
+        model.mLines.add("line");
+
+        final Bundle bundle = save(model);
+
+        for (final String id : bundle.keySet()) {
+            assertFalse(id, id.contains(Model.class.getName()));
+        }
+
+        final Model restored = restore(bundle);
+
+        assertEquals(42, restored.mCount);
+        assertEquals("value", restored.mText);
+        assertEquals(model.mLines, restored.mLines);
+    }
+
+    @Test
+    public void restoresNullAndEmptyValues() {
+        final Model model = new Model();
+
+        model.mText = "";
+        model.mLines = null;
+
+        final Model restored = restore(save(model));
+
+        assertEquals("", restored.mText);
+        // null fields are not saved, so restored model keeps its own value
+        assertEquals(Model.DEFAULT_LINES, restored.mLines);
+    }
+
+    @Test
+    public void writesCollidingKeysUnderFullKeys() {
+        final Bundle bundle = new Bundle();
+        // both keys have the same hash
+        final CompactStateContainer container = new CompactStateContainer(bundle, Arrays.asList("Aa", "BB", "other"));
+
+        container.putInt("Aa", 1);
+        container.putInt("BB", 2);
+        container.putInt("other", 3);
+
+        assertTrue(bundle.containsKey("=Aa"));
+        assertTrue(bundle.containsKey("=BB"));
+        assertEquals(3, bundle.getInt(Integer.toHexString("other".hashCode())));
+
+        container.remove("Aa");
+
+        assertFalse(container.containsKey("Aa"));
+        assertEquals(2, container.getInt("BB"));
+    }
+
+    @Test
+    public void doesNotRestoreCollidingKeyOfNullField() {
+        Injector.setCompactKeys(true);
+
+        final CollidingModel model = new CollidingModel();
+        final Bundle bundle = new Bundle();
+
+        model.Aa = null;
+        model.BB = "bb";
+
+        Injector.init(CollidingModel.class).applyOnSaveInstanceState(model, bundle);
+
+        final CollidingModel restored = new CollidingModel();
+
+        Injector.init(CollidingModel.class).applyRestoreInstanceState(restored, bundle);
+
+        assertEquals("aa", restored.Aa);
+        assertEquals("bb", restored.BB);
+    }
+
+    @Test
+    public void writesUnknownKeyUnderFullKey() {
+        final Bundle bundle = new Bundle();
+
+        new CompactStateContainer(bundle, KEYS).putString("Aa", "value");
+
+        assertEquals("value", bundle.getString("=Aa"));
+        assertNull(new CompactStateContainer(bundle, Arrays.asList("Aa")).get("Aa"));
+        assertEquals("value", new CompactStateContainer(bundle, KEYS).get("Aa"));
+    }
+
+    @Test
+    public void keepsFieldsMissingInState() {
+        final Bundle bundle = new Bundle();
+
+        new CompactStateContainer(bundle, KEYS).putInt("other", 1);
+
+        final Model restored = restore(bundle);
+
+        assertEquals(0, restored.mCount);
+        assertEquals("default", restored.mText);
+    }
+
+    @Test
+    public void rejectsValueOfWrongType() {
+        final Bundle bundle = save(new Model());
+
+        bundle.putInt(Integer.toHexString(TEXT_KEY.hashCode()), 5);
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("mText"));
+        }
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new CompactStateContainer(bundle, KEYS));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new CompactStateContainer(bundle, KEYS));
+
+        return restored;
+    }
+
+    static class Model {
+
+        static final ArrayList<String> DEFAULT_LINES = new ArrayList<>();
+
+        @InjectSavedState
+        int mCount;
+        @InjectSavedState
+        String mText = "default";
+        @InjectSavedState
+        ArrayList<String> mLines = DEFAULT_LINES;
+    }
+
+    /**
+     * Keys of both fields have the same hash.
+     */
+    static class CollidingModel {
+
+        @InjectSavedState
+        String Aa = "aa";
+        @InjectSavedState
+        String BB;
+    }
+}
@@ -0,0 +1,196 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressingCodecTest {
+
+    private static final String TEXT_KEY = Model.class.getName() + "#mText";
+    private static final String LINES_KEY = Model.class.getName() + "#mLines";
+
+    private static final String LONG_TEXT = repeat("compressible text ", 50);
+
+    @Test
+    public void restoresDeflatedValues() {
+        final Model model = new Model();
+
+        model.mText = LONG_TEXT;
+        model.mLines = new ArrayList<>(Collections.nCopies(20, LONG_TEXT));
+
+        final Bundle bundle = save(model);
+        final byte[] data = bundle.getByteArray(TEXT_KEY);
+
+        assertTrue(data.length < LONG_TEXT.length());
+
+        final Model restored = restore(bundle);
+
+        assertEquals(LONG_TEXT, restored.mText);
+        assertEquals(model.mLines, restored.mLines);
+    }
+
+    @Test
+    public void restoresShortAndEmptyValues() {
+        final Model model = new Model();
+
+        model.mText = "";
+        model.mLines = new ArrayList<>();
+
+        final Bundle bundle = save(model);
+
+        // short strings are put as is
+        assertEquals("", bundle.get(TEXT_KEY));
+
+        final Model restored = restore(bundle);
+
+        assertEquals("", restored.mText);
+        assertTrue(restored.mLines.isEmpty());
+    }
+
+    @Test
+    public void keepsValueOfNullField() {
+        final Model model = new Model();
+
+        model.mText = null;
+
+        final Bundle bundle = save(model);
+
+        assertFalse(bundle.containsKey(TEXT_KEY));
+        assertEquals("default", restore(bundle).mText);
+    }
+
+    @Test
+    public void restoresValueSavedBeforeCompression() {
+        final Bundle bundle = new Bundle();
+
+        bundle.putString(TEXT_KEY, LONG_TEXT);
+        bundle.putSerializable(LINES_KEY, new ArrayList<>(Arrays.asList("line")));
+
+        final Model restored = restore(bundle);
+
+        assertEquals(LONG_TEXT, restored.mText);
+        assertEquals(Arrays.asList("line"), restored.mLines);
+    }
+
+    @Test
+    public void rejectsTruncatedValue() {
+        final Model model = new Model();
+
+        model.mText = LONG_TEXT;
+
+        final Bundle bundle = save(model);
+        final byte[] data = bundle.getByteArray(TEXT_KEY);
+
+        bundle.putByteArray(TEXT_KEY, Arrays.copyOf(data, data.length - 4));
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Compressed state is corrupted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsWrongOriginalLength() {
+        final Model model = new Model();
+
+        model.mText = LONG_TEXT;
+
+        final Bundle bundle = save(model);
+
+        // original length follows the header byte
+        bundle.getByteArray(TEXT_KEY)[4]++;
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Compressed state is corrupted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsTooLargeOriginalLength() {
+        final Model model = new Model();
+
+        model.mText = LONG_TEXT;
+
+        final Bundle bundle = save(model);
+
+        bundle.getByteArray(TEXT_KEY)[1] = 0x7f;
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Compressed state is corrupted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsValueShorterThanHeader() {
+        final Model model = new Model();
+
+        model.mText = LONG_TEXT;
+
+        final Bundle bundle = save(model);
+
+        // empty value and deflated value without full original length
+        for (int length = 0; length < 5; length++) {
+            final Bundle corrupted = new Bundle();
+
+            corrupted.putByteArray(TEXT_KEY, Arrays.copyOf(bundle.getByteArray(TEXT_KEY), length));
+
+            try {
+                restore(corrupted);
+                fail();
+            } catch (final IllegalStateException e) {
+                assertEquals("Compressed state is corrupted", e.getMessage());
+            }
+        }
+    }
+
+    private static String repeat(final String value, final int count) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+
+        return builder.toString();
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState(compress = true, compressAbove = 64)
+        String mText = "default";
+        @InjectSavedState(compress = true, compressAbove = 64)
+        ArrayList<String> mLines;
+    }
+}
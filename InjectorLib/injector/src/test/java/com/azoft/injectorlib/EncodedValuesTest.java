@@ -0,0 +1,147 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class EncodedValuesTest {
+
+    private static final String VALUE_KEY = Model.class.getName() + "#mValue";
+    private static final String VERSIONED_KEY = Model.class.getName() + "#mVersioned";
+
+    private Injector mInjector;
+
+    @Before
+    public void setUp() {
+        CountingCodec.sEncodes = 0;
+        mInjector = Injector.init(Model.class);
+    }
+
+    @Test
+    public void reusesEncodedValueOfSameInstance() {
+        final Model model = new Model();
+
+        model.mValue = new Value(1);
+
+        final Bundle first = save(model);
+        final Bundle second = save(model);
+
+        assertEquals(1, CountingCodec.sEncodes);
+        assertSame(first.getByteArray(VALUE_KEY), second.getByteArray(VALUE_KEY));
+
+        model.mValue = new Value(1);
+
+        assertNotSame(first.getByteArray(VALUE_KEY), save(model).getByteArray(VALUE_KEY));
+        assertEquals(2, CountingCodec.sEncodes);
+    }
+
+    @Test
+    public void encodesVersionedValueAgainAfterChange() {
+        final Model model = new Model();
+
+        model.mVersioned = new VersionedValue();
+        model.mVersioned.set(1);
+
+        save(model);
+        save(model);
+
+        assertEquals(1, CountingCodec.sEncodes);
+
+        model.mVersioned.set(2);
+
+        final Bundle bundle = save(model);
+
+        assertEquals(2, CountingCodec.sEncodes);
+
+        final Model restored = new Model();
+
+        mInjector.applyRestoreInstanceState(restored, bundle);
+
+        assertEquals(2, restored.mVersioned.mX);
+    }
+
+    @Test
+    public void doesNotShareEncodedValuesBetweenInjectors() {
+        final Model model = new Model();
+
+        model.mValue = new Value(1);
+
+        save(model);
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new Bundle());
+
+        assertEquals(2, CountingCodec.sEncodes);
+    }
+
+    private Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        mInjector.applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    static class Model {
+
+        @InjectSavedState(codec = CountingCodec.class, reuseEncoded = true)
+        Value mValue;
+        @InjectSavedState(codec = CountingCodec.class)
+        VersionedValue mVersioned;
+    }
+
+    static class Value {
+
+        int mX;
+
+        Value(final int x) {
+            mX = x;
+        }
+    }
+
+    static final class VersionedValue extends Value implements InjectVersioned {
+
+        private long mVersion;
+
+        VersionedValue() {
+            super(0);
+        }
+
+        void set(final int x) {
+            mX = x;
+            mVersion++;
+        }
+
+        @Override
+        public long getStateVersion() {
+            return mVersion;
+        }
+    }
+
+    public static final class CountingCodec implements InjectCodec<Value> {
+
+        static int sEncodes;
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Value value) {
+            sEncodes++;
+
+            return new byte[]{(byte) value.mX};
+        }
+
+        @NonNull
+        @Override
+        public Value decode(@NonNull final byte[] data) {
+            final VersionedValue value = new VersionedValue();
+
+            value.set(data[0]);
+
+            return value;
+        }
+    }
+}
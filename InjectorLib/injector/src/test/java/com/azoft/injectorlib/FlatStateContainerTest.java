@@ -0,0 +1,156 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FlatStateContainerTest {
+
+    @Test
+    public void restoresSavedFields() {
+        final Model model = new Model();
+
+        model.mInt = 42;
+        model.mLong = -7L;
+        model.mString = "value";
+        model.mInts = new int[]{1, 2, 3};
+        model.mStrings = new ArrayList<>(Arrays.asList("a", null, "c"));
+        model.mDate = new Date(1000);
+
+        final Model restored = saveAndRestore(model);
+
+        assertEquals(42, restored.mInt);
+        assertEquals(-7L, restored.mLong);
+        assertEquals("value", restored.mString);
+        assertArrayEquals(new int[]{1, 2, 3}, restored.mInts);
+        assertEquals(model.mStrings, restored.mStrings);
+        assertEquals(new Date(1000), restored.mDate);
+    }
+
+    @Test
+    public void restoresNullAndEmptyValues() {
+        final Model model = new Model();
+
+        model.mString = "";
+        model.mInts = new int[0];
+        model.mStrings = new ArrayList<>();
+        model.mDate = null;
+
+        final Model restored = saveAndRestore(model);
+
+        assertEquals("", restored.mString);
+        assertArrayEquals(new int[0], restored.mInts);
+        assertTrue(restored.mStrings.isEmpty());
+        // null fields are not saved, so restored model keeps its own value
+        assertEquals(new Date(0), restored.mDate);
+    }
+
+    @Test
+    public void restoresNullPutToContainer() {
+        final FlatStateContainer container = new FlatStateContainer(null, null);
+
+        container.putString("string", null);
+        container.putIntArray("ints", null);
+
+        final FlatStateContainer restored = FlatStateContainer.read(container.toByteArray(), null, null);
+
+        assertTrue(restored.containsKey("string"));
+        assertNull(restored.get("string"));
+        assertNull(restored.get("ints"));
+    }
+
+    @Test
+    public void writesNothingForEmptyContainer() {
+        final FlatStateContainer container = new FlatStateContainer(null, null);
+
+        assertTrue(container.isEmpty());
+        assertTrue(FlatStateContainer.read(container.toByteArray(), null, null).isEmpty());
+    }
+
+    @Test
+    public void rejectsOtherFormat() {
+        final byte[] data = save(new Model());
+
+        data[0] ^= 1;
+
+        try {
+            FlatStateContainer.read(data, null, null);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Not a flat state", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedState() {
+        final byte[] data = save(new Model());
+
+        try {
+            FlatStateContainer.read(Arrays.copyOf(data, data.length - 3), null, null);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Flat state is corrupted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedLength() {
+        final FlatStateContainer container = new FlatStateContainer(null, null);
+
+        container.putIntArray("key", new int[]{1});
+
+        final byte[] data = container.toByteArray();
+
+        // length of the array follows its key and type
+        data[data.length - 5] = (byte) 0x7f;
+
+        try {
+            FlatStateContainer.read(data, null, null);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("Flat state is corrupted", e.getMessage());
+        }
+    }
+
+    private static byte[] save(final Model model) {
+        final FlatStateContainer container = new FlatStateContainer(new BundleStateContainer(new Bundle()), null);
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, container);
+
+        return container.toByteArray();
+    }
+
+    private static Model saveAndRestore(final Model model) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, FlatStateContainer.read(save(model), null, null));
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        int mInt;
+        @InjectSavedState
+        long mLong;
+        @InjectSavedState
+        String mString = "default";
+        @InjectSavedState
+        int[] mInts;
+        @InjectSavedState
+        ArrayList<String> mStrings;
+        @InjectSavedState
+        Date mDate = new Date(0);
+    }
+}
@@ -0,0 +1,243 @@
+package com.azoft.injectorlib;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeneratedStateSaverTest {
+
+    private static final String TEXT_KEY = Model.class.getName() + "#mText";
+    private static final String LINES_KEY = Model.class.getName() + "#mLines";
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        Injector.setParallelSave(false);
+        Injector.setBlobStore(null);
+        Model$$StateSaver.sSaves = 0;
+    }
+
+    @Test
+    public void savesWithGeneratedSaver() {
+        final Model model = new Model();
+
+        model.mText = "value";
+
+        final Model restored = restore(save(model));
+
+        assertEquals(1, Model$$StateSaver.sSaves);
+        assertEquals("value", restored.mText);
+    }
+
+    @Test
+    public void savesWithReflectionWhileParallelSaveIsSet() {
+        Injector.setParallelSave(true);
+
+        final Model model = new Model();
+
+        model.mText = "value";
+
+        final Model restored = restore(save(model));
+
+        assertEquals(0, Model$$StateSaver.sSaves);
+        assertEquals("value", restored.mText);
+    }
+
+    @Test
+    public void savesWithReflectionForRegisteredCodec() {
+        Injector.registerCodec(Point.class, new PointCodec());
+
+        final CodecModel model = new CodecModel();
+
+        model.mPoint = new Point(3);
+
+        final Bundle bundle = new Bundle();
+
+        Injector.init(CodecModel.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        assertEquals(0, CodecModel$$StateSaver.sSaves);
+        assertArrayEquals(new byte[]{3}, bundle.getByteArray(CodecModel.class.getName() + "#mPoint"));
+    }
+
+    @Test
+    public void restoresSerializableEncodedByReflection() {
+        final Bundle bundle = new Bundle();
+        final LinkedList<String> lines = new LinkedList<>(Arrays.asList("line"));
+
+        // parallel save puts Serializable encoded
+        bundle.putByteArray(LINES_KEY, Serialization.serialize(lines));
+
+        assertEquals(lines, restore(bundle).mLines);
+    }
+
+    @Test
+    public void restoresSerializableSpilledToBlob() throws IOException {
+        Injector.setBlobStore(new InjectorBlobStore(new Context(mTemporaryFolder.newFolder())).setFieldThreshold(16));
+
+        final Model model = new Model();
+
+        model.mLines = new LinkedList<>(Arrays.asList("first line", "second line"));
+
+        final Bundle bundle = save(model);
+
+        assertTrue(InjectorBlobStore.isBlob(bundle.get(LINES_KEY)));
+
+        final Model restored = new Model();
+
+        // generated restore reads the blob the same way as Injector does
+        new Model$$StateSaver().restore(restored, new BundleStateContainer(bundle), "");
+
+        assertEquals(model.mLines, restored.mLines);
+    }
+
+    @Test
+    public void readsInlineEncodedData() {
+        final Bundle bundle = new Bundle();
+
+        bundle.putBundle(TEXT_KEY, InjectorBlobStore.inline(new byte[]{1, 2}));
+
+        assertArrayEquals(new byte[]{1, 2}, StateSavers.getEncoded(new BundleStateContainer(bundle), TEXT_KEY));
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        String mText;
+        @InjectSavedState
+        LinkedList<String> mLines;
+    }
+
+    /**
+     * The same code as injector-compiler generates for Model.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static final class Model$$StateSaver implements StateSaver<Model> {
+
+        static int sSaves;
+
+        @Override
+        public void restore(@NonNull final Model model, @NonNull final StateContainer savedState, @NonNull final String tagSuffix) {
+            String key;
+
+            key = TEXT_KEY + tagSuffix;
+            if (savedState.containsKey(key)) {
+                model.mText = (String) savedState.get(key);
+            }
+
+            key = LINES_KEY + tagSuffix;
+            if (savedState.containsKey(key)) {
+                final Object value = StateSavers.getSerializable(savedState, key, model.getClass().getClassLoader());
+
+                if (null != value) {
+                    model.mLines = (LinkedList) value;
+                }
+            }
+        }
+
+        @Override
+        public void save(@NonNull final Model model, @NonNull final StateContainer outState, @NonNull final String tagSuffix) {
+            String key;
+
+            sSaves++;
+
+            key = TEXT_KEY + tagSuffix;
+            if (null != model.mText) {
+                outState.putString(key, model.mText);
+            }
+
+            key = LINES_KEY + tagSuffix;
+            if (null != model.mLines) {
+                outState.putSerializable(key, model.mLines);
+            }
+        }
+    }
+
+    static class CodecModel {
+
+        @InjectSavedState
+        Point mPoint;
+    }
+
+    public static final class CodecModel$$StateSaver implements StateSaver<CodecModel> {
+
+        static int sSaves;
+
+        @Override
+        public void restore(@NonNull final CodecModel model, @NonNull final StateContainer savedState, @NonNull final String tagSuffix) {
+            final String key = CodecModel.class.getName() + "#mPoint" + tagSuffix;
+
+            if (savedState.containsKey(key)) {
+                model.mPoint = (Point) StateSavers.getSerializable(savedState, key, model.getClass().getClassLoader());
+            }
+        }
+
+        @Override
+        public void save(@NonNull final CodecModel model, @NonNull final StateContainer outState, @NonNull final String tagSuffix) {
+            sSaves++;
+
+            if (null != model.mPoint) {
+                outState.putSerializable(CodecModel.class.getName() + "#mPoint" + tagSuffix, model.mPoint);
+            }
+        }
+    }
+
+    /**
+     * Registered only in this test.
+     */
+    static final class Point implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final int mX;
+
+        Point(final int x) {
+            mX = x;
+        }
+    }
+
+    static final class PointCodec implements InjectCodec<Point> {
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Point value) {
+            return new byte[]{(byte) value.mX};
+        }
+
+        @NonNull
+        @Override
+        public Point decode(@NonNull final byte[] data) {
+            return new Point(data[0]);
+        }
+    }
+}
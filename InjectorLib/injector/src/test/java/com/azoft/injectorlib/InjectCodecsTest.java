@@ -0,0 +1,148 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InjectCodecsTest {
+
+    private static final String POINT_KEY = Model.class.getName() + "#mPoint";
+    private static final String ANNOTATED_KEY = Model.class.getName() + "#mAnnotated";
+
+    @Test
+    public void savesWithCodecOfAnnotation() {
+        final Model model = new Model();
+
+        model.mAnnotated = new Point(3);
+
+        final Bundle bundle = save(model);
+
+        assertArrayEquals(new byte[]{3, 3}, bundle.getByteArray(ANNOTATED_KEY));
+        assertEquals(3, restore(bundle).mAnnotated.mX);
+    }
+
+    @Test
+    public void savesWithRegisteredCodecOfSupertype() {
+        Injector.registerCodec(Shape.class, new ShapeCodec(1));
+        Injector.registerCodec(Shape.class, new ShapeCodec(2));
+
+        final Model model = new Model();
+
+        model.mPoint = new Point(5);
+        model.mAnnotated = new Point(5);
+
+        final Bundle bundle = save(model);
+
+        // last registered codec wins, codec of annotation has priority
+        assertArrayEquals(new byte[]{2, 5}, bundle.getByteArray(POINT_KEY));
+        assertArrayEquals(new byte[]{3, 5}, bundle.getByteArray(ANNOTATED_KEY));
+        assertEquals(5, restore(bundle).mPoint.mX);
+    }
+
+    @Test
+    public void restoresValueSavedBeforeCodecWasSet() {
+        final Bundle bundle = new Bundle();
+
+        bundle.putSerializable(ANNOTATED_KEY, new Point(7));
+
+        assertEquals(7, restore(bundle).mAnnotated.mX);
+    }
+
+    @Test
+    public void rejectsCodecWithoutConstructor() {
+        try {
+            Injector.init(BrokenModel.class);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not create InjectCodec"));
+        }
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, bundle);
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        Point mPoint;
+        @InjectSavedState(codec = AnnotatedCodec.class)
+        Point mAnnotated;
+    }
+
+    static class BrokenModel {
+
+        @InjectSavedState(codec = ShapeCodec.class)
+        Point mPoint;
+    }
+
+    /**
+     * Codecs are registered only for types of this test.
+     */
+    static class Shape implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    static final class Point extends Shape {
+
+        private static final long serialVersionUID = 1L;
+
+        final int mX;
+
+        Point(final int x) {
+            mX = x;
+        }
+    }
+
+    /**
+     * Writes its mark before the value.
+     */
+    static class ShapeCodec implements InjectCodec<Shape> {
+
+        private final byte mMark;
+
+        ShapeCodec(final int mark) {
+            mMark = (byte) mark;
+        }
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Shape value) {
+            return new byte[]{mMark, (byte) ((Point) value).mX};
+        }
+
+        @NonNull
+        @Override
+        public Shape decode(@NonNull final byte[] data) {
+            return new Point(data[1]);
+        }
+    }
+
+    public static final class AnnotatedCodec extends ShapeCodec {
+
+        public AnnotatedCodec() {
+            super(3);
+        }
+    }
+}
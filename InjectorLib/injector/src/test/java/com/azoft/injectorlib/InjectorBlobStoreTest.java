@@ -0,0 +1,171 @@
+package com.azoft.injectorlib;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InjectorBlobStoreTest {
+
+    private static final String LINES_KEY = Model.class.getName() + "#mLines";
+    private static final String OBJECT_KEY = Model.class.getName() + "#mObject";
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mBlobDir;
+
+    @Before
+    public void setUp() throws IOException {
+        final Context context = new Context(mTemporaryFolder.newFolder());
+
+        mBlobDir = context.getDir("injector__blobs", Context.MODE_PRIVATE);
+        Injector.setBlobStore(new InjectorBlobStore(context).setFieldThreshold(1024));
+    }
+
+    @After
+    public void tearDown() {
+        Injector.setBlobStore(null);
+    }
+
+    @Test
+    public void spillsLargeValueToBlob() {
+        final Model model = createLargeModel();
+        final Bundle bundle = save(model);
+
+        assertTrue(InjectorBlobStore.isBlob(bundle.get(LINES_KEY)));
+        assertEquals(1, getBlobs().length);
+        assertEquals(model.mLines, restore(bundle).mLines);
+    }
+
+    @Test
+    public void keepsSmallAndEmptyValuesInBundle() {
+        final Model model = new Model();
+
+        model.mLines = new LinkedList<>();
+
+        final Bundle bundle = save(model);
+
+        // encoded value is put as is, without envelope
+        assertTrue(bundle.get(LINES_KEY) instanceof byte[]);
+        assertEquals(0, getBlobs().length);
+        assertTrue(restore(bundle).mLines.isEmpty());
+    }
+
+    @Test
+    public void tellsEncodedValueFromByteArrayValue() {
+        final Model model = new Model();
+
+        model.mObject = new byte[]{(byte) 0xac, (byte) 0xed, 0, 5};
+
+        assertArrayEquals((byte[]) model.mObject, (byte[]) restore(save(model)).mObject);
+
+        model.mObject = new LinkedList<>(Collections.singletonList("value"));
+
+        final Bundle bundle = save(model);
+
+        assertFalse(bundle.get(OBJECT_KEY) instanceof byte[]);
+        assertEquals(model.mObject, restore(bundle).mObject);
+    }
+
+    @Test
+    public void keepsFieldValueWithoutBlobStore() {
+        final Bundle bundle = save(createLargeModel());
+
+        Injector.setBlobStore(null);
+
+        assertEquals(Model.DEFAULT_LINES, restore(bundle).mLines);
+    }
+
+    @Test
+    public void keepsFieldValueOfMissingBlob() {
+        final Bundle bundle = save(createLargeModel());
+
+        for (final File blob : getBlobs()) {
+            assertTrue(blob.delete());
+        }
+
+        assertEquals(Model.DEFAULT_LINES, restore(bundle).mLines);
+    }
+
+    @Test
+    public void keepsFieldValueOfCorruptedBlob() throws IOException {
+        final Bundle bundle = save(createLargeModel());
+
+        try (RandomAccessFile file = new RandomAccessFile(getBlobs()[0], "rw")) {
+            file.seek(file.length() / 2);
+            file.write(~file.read());
+        }
+
+        assertEquals(Model.DEFAULT_LINES, restore(bundle).mLines);
+    }
+
+    @Test
+    public void keepsFieldValueOfTruncatedBlob() throws IOException {
+        final Bundle bundle = save(createLargeModel());
+
+        try (RandomAccessFile file = new RandomAccessFile(getBlobs()[0], "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        assertEquals(Model.DEFAULT_LINES, restore(bundle).mLines);
+    }
+
+    private File[] getBlobs() {
+        return mBlobDir.listFiles();
+    }
+
+    private static Model createLargeModel() {
+        final Model model = new Model();
+
+        model.mLines = new LinkedList<>();
+
+        for (int i = 0; i < 200; i++) {
+            model.mLines.add("line " + i);
+        }
+
+        return model;
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        return restored;
+    }
+
+    static class Model {
+
+        static final LinkedList<String> DEFAULT_LINES = new LinkedList<>(Collections.singletonList("default"));
+
+        // saved as Serializable, so it can be spilled
+        @InjectSavedState
+        LinkedList<String> mLines = DEFAULT_LINES;
+        @InjectSavedState
+        Object mObject;
+    }
+}
@@ -0,0 +1,192 @@
+package com.azoft.injectorlib;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InjectorMetadataIndexTest {
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mRoot;
+    private Context mContext;
+    private File mIndexFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = mTemporaryFolder.newFolder();
+        mContext = new Context(mRoot);
+        mIndexFile = new File(mContext.getDir("injector__index", Context.MODE_PRIVATE), "metadata.idx");
+    }
+
+    @After
+    public void tearDown() {
+        Injector.setMetadataIndex(null);
+        Injector.clearCache();
+    }
+
+    @Test
+    public void readsIndexedFields() throws Exception {
+        index(Model.class, EmptyModel.class);
+
+        final InjectorMetadataIndex.ClassEntry entry = new InjectorMetadataIndex(mContext).get(Model.class);
+        final Set<String> names = new HashSet<>();
+
+        assertFalse(entry.hasGeneratedSaver());
+
+        for (final InjectorMetadataIndex.FieldEntry field : entry.getFields()) {
+            names.add(field.getName());
+
+            final InjectSavedState annotation = field.toAnnotation(getClass().getClassLoader());
+
+            assertEquals(Model.class.getDeclaredField(field.getName()).getAnnotation(InjectSavedState.class).value(), annotation.value());
+            assertEquals(Model.class.getDeclaredField(field.getName()).getAnnotation(InjectSavedState.class).compress(), annotation.compress());
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("mText", "mCount", "mTagged")), names);
+        assertTrue(new InjectorMetadataIndex(mContext).get(EmptyModel.class).getFields().isEmpty());
+    }
+
+    @Test
+    public void restoresStateWithIndexedFields() throws Exception {
+        index(Model.class);
+
+        Injector.setMetadataIndex(new InjectorMetadataIndex(mContext));
+        Injector.clearCache();
+
+        final Model model = new Model();
+        final Bundle bundle = new Bundle();
+
+        model.mText = "";
+        model.mCount = 3;
+        model.mTagged = "changed";
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        assertTrue(bundle.containsKey("tag"));
+
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        assertEquals("", restored.mText);
+        assertEquals(3, restored.mCount);
+        assertEquals("changed", restored.mTagged);
+    }
+
+    @Test
+    public void dropsIndexOfOtherApk() throws Exception {
+        index(Model.class);
+
+        assertTrue(mRoot.setLastModified(mRoot.lastModified() - 60000));
+        assertNull(new InjectorMetadataIndex(mContext).get(Model.class));
+    }
+
+    @Test
+    public void dropsIndexOfOtherFormat() throws Exception {
+        index(Model.class);
+
+        try (RandomAccessFile file = new RandomAccessFile(mIndexFile, "rw")) {
+            // format version follows the magic
+            file.seek(4);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertNull(new InjectorMetadataIndex(mContext).get(Model.class));
+    }
+
+    @Test
+    public void dropsTruncatedIndex() throws Exception {
+        index(Model.class);
+
+        try (RandomAccessFile file = new RandomAccessFile(mIndexFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        assertNull(new InjectorMetadataIndex(mContext).get(Model.class));
+    }
+
+    @Test
+    public void dropsIndexWithCorruptedStringLength() throws Exception {
+        index(Model.class);
+
+        try (RandomAccessFile file = new RandomAccessFile(mIndexFile, "rw")) {
+            // length of the APK version string follows the format version
+            file.seek(8);
+            file.writeShort(0xffff);
+        }
+
+        assertNull(new InjectorMetadataIndex(mContext).get(Model.class));
+    }
+
+    /**
+     * Adds classes to the index and waits until background write makes them visible to a new index.
+     */
+    private void index(final Class<?>... classes) throws InterruptedException {
+        final InjectorMetadataIndex index = new InjectorMetadataIndex(mContext);
+
+        for (final Class<?> clazz : classes) {
+            index.put(clazz, false);
+        }
+
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (System.currentTimeMillis() < deadline) {
+            if (isIndexed(classes)) {
+                return;
+            }
+
+            Thread.sleep(10);
+        }
+
+        fail("Index was not written");
+    }
+
+    private boolean isIndexed(final Class<?>... classes) {
+        final InjectorMetadataIndex index = new InjectorMetadataIndex(mContext);
+
+        for (final Class<?> clazz : classes) {
+            if (null == index.get(clazz)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static class Model {
+
+        @InjectSavedState(compress = true)
+        String mText = "default";
+        @InjectSavedState
+        int mCount;
+        @InjectSavedState("tag")
+        String mTagged = "tagged";
+
+        String mNotSaved;
+    }
+
+    static class EmptyModel {
+
+        String mNotSaved;
+    }
+}
@@ -0,0 +1,131 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InjectorMetricsTest {
+
+    private RecordingMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        Injector.clearCache();
+
+        mMetrics = new RecordingMetrics();
+        Injector.setMetrics(mMetrics);
+    }
+
+    @After
+    public void tearDown() {
+        Injector.setMetrics(null);
+    }
+
+    @Test
+    public void reportsInitOfCollectedAndCachedClass() {
+        Injector.init(Model.class);
+        Injector.init(Model.class);
+
+        assertEquals(Arrays.asList(false, true), mMetrics.mInits);
+        assertEquals(Arrays.<Class<?>>asList(Model.class), mMetrics.mCollected);
+    }
+
+    @Test
+    public void reportsCodecPathOfEverySavedField() {
+        final Model model = new Model();
+
+        model.mText = "value";
+        model.mLines = new LinkedList<>(Arrays.asList("line"));
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new Bundle());
+
+        assertEquals(InjectorMetrics.CodecPath.BUNDLE, mMetrics.mSavedPaths.get("mText"));
+        assertEquals(InjectorMetrics.CodecPath.SERIALIZABLE, mMetrics.mSavedPaths.get("mLines"));
+        // null fields are not saved
+        assertEquals(2, mMetrics.mSavedPaths.size());
+        assertEquals(1, mMetrics.mSaves);
+        assertTrue(mMetrics.mSavedSize > 0);
+    }
+
+    @Test
+    public void reportsRestoredFields() {
+        final Model model = new Model();
+        final Bundle bundle = new Bundle();
+
+        model.mText = "value";
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+        Injector.init(Model.class).applyRestoreInstanceState(new Model(), bundle);
+
+        assertEquals(InjectorMetrics.CodecPath.BUNDLE, mMetrics.mRestoredPaths.get("mText"));
+        assertEquals(1, mMetrics.mRestoredPaths.size());
+        assertEquals(1, mMetrics.mRestores);
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        String mText;
+        @InjectSavedState
+        LinkedList<String> mLines;
+        @InjectSavedState
+        ArrayList<String> mEmpty;
+    }
+
+    private static final class RecordingMetrics extends InjectorMetrics {
+
+        private final List<Boolean> mInits = new ArrayList<>();
+        private final List<Class<?>> mCollected = new ArrayList<>();
+        private final Map<String, CodecPath> mSavedPaths = new LinkedHashMap<>();
+        private final Map<String, CodecPath> mRestoredPaths = new LinkedHashMap<>();
+        private int mSaves;
+        private int mSavedSize;
+        private int mRestores;
+
+        @Override
+        public void onClassCollected(@NonNull final Class<?> clazz, final boolean generated, final long durationNanos) {
+            mCollected.add(clazz);
+        }
+
+        @Override
+        public void onInit(@NonNull final Class<?> clazz, final boolean cached, final long durationNanos) {
+            mInits.add(cached);
+        }
+
+        @Override
+        public void onFieldSaved(@NonNull final Class<?> modelClass, @NonNull final Field field, @NonNull final String key,
+                                 @NonNull final CodecPath path, final int size, final long durationNanos) {
+            mSavedPaths.put(field.getName(), path);
+        }
+
+        @Override
+        public void onFieldRestored(@NonNull final Class<?> modelClass, @NonNull final Field field, @NonNull final String key,
+                                    @NonNull final CodecPath path, final long durationNanos) {
+            mRestoredPaths.put(field.getName(), path);
+        }
+
+        @Override
+        public void onSave(@NonNull final Class<?> modelClass, final int size, final long durationNanos) {
+            mSaves++;
+            mSavedSize = size;
+        }
+
+        @Override
+        public void onRestore(@NonNull final Class<?> modelClass, final long durationNanos) {
+            mRestores++;
+        }
+    }
+}
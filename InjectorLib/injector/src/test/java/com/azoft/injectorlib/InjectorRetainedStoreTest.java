@@ -0,0 +1,208 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InjectorRetainedStoreTest {
+
+    private InjectorRetainedStore mStore;
+
+    @Before
+    public void setUp() {
+        CountingCodec.sEncodes = 0;
+        mStore = new InjectorRetainedStore(2);
+        Injector.setRetainedStore(mStore);
+    }
+
+    @After
+    public void tearDown() {
+        Injector.setRetainedStore(null);
+    }
+
+    @Test
+    public void restoresLiveValuesInSameProcess() {
+        final Model model = new Model("first");
+        final Bundle bundle = save(model);
+
+        assertEquals(1, mStore.size());
+
+        final Model restored = restore(bundle, "first");
+
+        assertSame(model.mValue, restored.mValue);
+        assertEquals(7, restored.mCount);
+        assertEquals(0, CountingCodec.sEncodes);
+    }
+
+    @Test
+    public void decodesBundleAfterProcessDeath() {
+        final Model model = new Model("first");
+        final Bundle bundle = parcel(save(model));
+
+        assertEquals(1, CountingCodec.sEncodes);
+
+        // store of the new process has other tokens
+        Injector.setRetainedStore(new InjectorRetainedStore(2));
+
+        final Model restored = restore(bundle, "first");
+
+        assertNotSame(model.mValue, restored.mValue);
+        assertEquals(5, restored.mValue.mX);
+        assertEquals(7, restored.mCount);
+    }
+
+    @Test
+    public void decodesBundleAfterClear() {
+        final Model model = new Model("first");
+        final Bundle bundle = parcel(save(model));
+
+        mStore.clear();
+
+        final Model restored = restore(bundle, "first");
+
+        assertNotSame(model.mValue, restored.mValue);
+        assertEquals(5, restored.mValue.mX);
+    }
+
+    @Test
+    public void decodesBundleOfReplacedSave() {
+        final Model model = new Model("first");
+        final Bundle bundle = parcel(save(model));
+
+        save(model);
+
+        final Model restored = restore(bundle, "first");
+
+        assertNotSame(model.mValue, restored.mValue);
+        assertEquals(5, restored.mValue.mX);
+    }
+
+    @Test
+    public void dropsLeastRecentlyUsedModels() {
+        final Model first = new Model("first");
+        final Bundle firstBundle = parcel(save(first));
+        final Model second = new Model("second");
+        final Bundle secondBundle = parcel(save(second));
+
+        save(new Model("third"));
+
+        assertEquals(2, mStore.size());
+        final Model firstRestored = restore(firstBundle, "first");
+
+        assertNotSame(first.mValue, firstRestored.mValue);
+        assertEquals(5, firstRestored.mValue.mX);
+        assertSame(second.mValue, restore(secondBundle, "second").mValue);
+    }
+
+    @Test
+    public void rejectsNotPositiveMaxEntries() {
+        try {
+            new InjectorRetainedStore(0);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("maxEntries"));
+        }
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle, final String tag) {
+        final Model restored = new Model(tag);
+
+        restored.mValue = null;
+        restored.mCount = 0;
+        Injector.init(Model.class).applyRestoreInstanceState(restored, bundle);
+
+        return restored;
+    }
+
+    /**
+     * @return copy of the Bundle with deferred values as they are read back from Parcel
+     */
+    private static Bundle parcel(final Bundle bundle) {
+        final Bundle parceled = new Bundle();
+
+        for (final String key : bundle.keySet()) {
+            final Object value = bundle.get(key);
+
+            if (value instanceof DeferredValue) {
+                final Parcel parcel = Parcel.obtain();
+
+                ((DeferredValue) value).writeToParcel(parcel, 0);
+                parcel.setDataPosition(0);
+                parceled.putParcelable(key, DeferredValue.CREATOR.createFromParcel(parcel));
+            } else if (value instanceof Long) {
+                parceled.putLong(key, (Long) value);
+            } else if (value instanceof Integer) {
+                parceled.putInt(key, (Integer) value);
+            } else {
+                throw new IllegalStateException("Unexpected value: " + value);
+            }
+        }
+
+        return parceled;
+    }
+
+    static class Model implements InjectSaveStateTag {
+
+        private final String mTag;
+
+        @InjectSavedState(codec = CountingCodec.class)
+        Value mValue = new Value(5);
+        @InjectSavedState
+        int mCount = 7;
+
+        Model(final String tag) {
+            mTag = tag;
+        }
+
+        @Override
+        public String getSaveStateTag() {
+            return mTag;
+        }
+    }
+
+    static final class Value {
+
+        final int mX;
+
+        Value(final int x) {
+            mX = x;
+        }
+    }
+
+    public static final class CountingCodec implements InjectCodec<Value> {
+
+        static int sEncodes;
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Value value) {
+            sEncodes++;
+
+            return new byte[]{(byte) value.mX};
+        }
+
+        @NonNull
+        @Override
+        public Value decode(@NonNull final byte[] data) {
+            return new Value(data[0]);
+        }
+    }
+}
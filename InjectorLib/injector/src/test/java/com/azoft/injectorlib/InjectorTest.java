@@ -0,0 +1,139 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InjectorTest {
+
+    @Test
+    public void restoresFieldsOfSuperclasses() {
+        final Child model = new Child();
+
+        model.mBaseText = "base";
+        model.mChildCount = 42;
+
+        final Bundle bundle = save(model);
+
+        assertTrue(bundle.containsKey(Base.class.getName() + "#mBaseText"));
+        assertTrue(bundle.containsKey(Child.class.getName() + "#mChildCount"));
+
+        final Child restored = new Child();
+
+        Injector.init(Child.class).applyRestoreInstanceState(restored, bundle);
+
+        assertEquals("base", restored.mBaseText);
+        assertEquals(42, restored.mChildCount);
+    }
+
+    @Test
+    public void skipsFieldsOfStopClassAndItsSuperclasses() {
+        Injector.addHierarchyStopClass(StoppedBase.class);
+
+        final StoppedChild model = new StoppedChild();
+
+        model.mBaseText = "base";
+        model.mChildCount = 42;
+
+        final Bundle bundle = save(model);
+
+        assertFalse(bundle.containsKey(Base.class.getName() + "#mBaseText"));
+        assertTrue(bundle.containsKey(StoppedChild.class.getName() + "#mChildCount"));
+    }
+
+    @Test
+    public void rejectsStaticField() {
+        try {
+            Injector.init(StaticFieldModel.class);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("InjectSavedState-field may not be static.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void sharesMetadataBetweenThreads() throws Exception {
+        Injector.clearCache();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<Child>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 16; i++) {
+                final int count = i;
+
+                futures.add(executor.submit(new Callable<Child>() {
+                    @Override
+                    public Child call() {
+                        final Child model = new Child();
+
+                        model.mChildCount = count;
+
+                        final Child restored = new Child();
+
+                        Injector.init(Child.class).applyRestoreInstanceState(restored, save(model));
+
+                        return restored;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).get().mChildCount);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Bundle save(final Object model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(model).applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    static class Base {
+
+        @InjectSavedState
+        String mBaseText;
+    }
+
+    static class Child extends Base {
+
+        @InjectSavedState
+        int mChildCount;
+    }
+
+    /**
+     * Stop class only of this test, other tests scan Base.
+     */
+    static class StoppedBase extends Base {
+    }
+
+    static class StoppedChild extends StoppedBase {
+
+        @InjectSavedState
+        int mChildCount;
+    }
+
+    static class StaticFieldModel {
+
+        @InjectSavedState
+        static int sCount;
+    }
+}
@@ -0,0 +1,217 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InjectorViewSaveStateTest {
+
+    @Test
+    public void restoresStateWrittenToParcel() {
+        final ModelView view = new ModelView();
+
+        view.mCount = 42;
+        view.mInts = new int[]{1, 2};
+        view.mText = "value";
+        view.mDates = new ArrayList<>(Arrays.asList(new Date(1000)));
+
+        final ModelView restored = new ModelView();
+        final Parcelable superState = InjectorViewSaveState.restore(Injector.init(ModelView.class), restored, writeAndRead(view, true));
+
+        assertNull(superState);
+        assertEquals(42, restored.mCount);
+        assertArrayEquals(new int[]{1, 2}, restored.mInts);
+        assertEquals("value", restored.mText);
+        assertEquals(view.mDates, restored.mDates);
+    }
+
+    @Test
+    public void restoresNullAndEmptyValues() {
+        final ModelView view = new ModelView();
+
+        view.mInts = new int[0];
+        view.mText = null;
+        view.mDates = new ArrayList<>();
+
+        final ModelView restored = new ModelView();
+
+        InjectorViewSaveState.restore(Injector.init(ModelView.class), restored, writeAndRead(view, true));
+
+        assertArrayEquals(new int[0], restored.mInts);
+        // null fields are not saved, so restored view keeps its own value
+        assertEquals("default", restored.mText);
+        assertTrue(restored.mDates.isEmpty());
+    }
+
+    @Test
+    public void restoresStateWrittenAsBundle() {
+        final ModelView view = new ModelView();
+
+        view.mCount = 42;
+        view.mText = "";
+
+        final ModelView restored = new ModelView();
+        final InjectorViewSaveState state = writeAndRead(view, false);
+
+        InjectorViewSaveState.restore(Injector.init(ModelView.class), restored, state);
+
+        assertEquals(42, restored.mCount);
+        assertEquals("", restored.mText);
+    }
+
+    @Test
+    public void returnsSuperState() {
+        final Parcelable superState = new Bundle();
+        final Injector injector = Injector.init(ModelView.class);
+
+        assertSame(superState, InjectorViewSaveState.restore(injector, new ModelView(), superState));
+        assertSame(superState, InjectorViewSaveState.restore(injector, new ModelView(),
+                new InjectorViewSaveState(injector, new ModelView(), superState, true)));
+    }
+
+    @Test
+    public void writesAndRestoresParcelStateRepeatedly() {
+        final ModelView view = new ModelView();
+
+        view.mCount = 42;
+        view.mText = "value";
+
+        final Injector injector = Injector.init(ModelView.class);
+        final InjectorViewSaveState state = new InjectorViewSaveState(injector, view, null, true);
+
+        for (int i = 0; i < 2; i++) {
+            // the same instance is parceled on stop and restored after configuration change
+            final Parcel parcel = Parcel.obtain();
+
+            state.writeToParcel(parcel, 0);
+
+            final ModelView restored = new ModelView();
+
+            InjectorViewSaveState.restore(injector, restored, state);
+
+            assertEquals(42, restored.mCount);
+            assertEquals("value", restored.mText);
+
+            parcel.setDataPosition(0);
+
+            final ModelView unparceled = new ModelView();
+
+            InjectorViewSaveState.restore(injector, unparceled, InjectorViewSaveState.CREATOR.createFromParcel(parcel));
+
+            assertEquals(42, unparceled.mCount);
+            assertEquals("value", unparceled.mText);
+        }
+    }
+
+    @Test
+    public void writesBundleStateInFormatOfOlderVersions() {
+        final ModelView view = new ModelView();
+
+        view.mCount = 42;
+
+        final Parcel parcel = Parcel.obtain();
+
+        new InjectorViewSaveState(Injector.init(ModelView.class), view, null).writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        // super state is followed by the Bundle
+        parcel.readParcelable(null);
+
+        final Bundle bundle = parcel.readBundle(null);
+        final ModelView restored = new ModelView();
+
+        Injector.init(ModelView.class).applyRestoreInstanceState(restored, bundle);
+
+        assertEquals(42, restored.mCount);
+        assertEquals(parcel.dataSize(), parcel.dataPosition());
+    }
+
+    @Test
+    public void rejectsStateOfOtherFields() {
+        final InjectorViewSaveState state = writeAndRead(new ModelView(), true);
+
+        try {
+            InjectorViewSaveState.restore(Injector.init(OtherView.class), new OtherView(), state);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("was written with other fields"));
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedPackedState() {
+        final Parcel parcel = Parcel.obtain();
+
+        new InjectorViewSaveState(Injector.init(ModelView.class), new ModelView(), null, true).writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        // super state, null Bundle and size are followed by schema hash and packed fields
+        final Parcel corrupted = Parcel.obtain();
+
+        corrupted.writeParcelable(parcel.readParcelable(null), 0);
+        corrupted.writeBundle(parcel.readBundle(null));
+        corrupted.writeInt(parcel.readInt());
+        corrupted.writeInt(parcel.readInt());
+
+        final byte[] packed = parcel.createByteArray();
+
+        corrupted.writeByteArray(Arrays.copyOf(packed, packed.length - 1));
+
+        while (parcel.dataPosition() < parcel.dataSize()) {
+            corrupted.writeValue(parcel.readValue(null));
+        }
+
+        corrupted.setDataPosition(0);
+
+        final InjectorViewSaveState state = InjectorViewSaveState.CREATOR.createFromParcel(corrupted);
+
+        try {
+            InjectorViewSaveState.restore(Injector.init(ModelView.class), new ModelView(), state);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is corrupted"));
+        }
+    }
+
+    private static InjectorViewSaveState writeAndRead(final ModelView view, final boolean parcelState) {
+        final Parcel parcel = Parcel.obtain();
+
+        new InjectorViewSaveState(Injector.init(ModelView.class), view, null, parcelState).writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        return InjectorViewSaveState.CREATOR.createFromParcel(parcel);
+    }
+
+    @InjectPacked
+    static class ModelView extends View {
+
+        @InjectSavedState
+        int mCount;
+        @InjectSavedState
+        int[] mInts;
+        @InjectSavedState
+        String mText = "default";
+        @InjectSavedState
+        ArrayList<Date> mDates;
+    }
+
+    static class OtherView extends View {
+
+        @InjectSavedState
+        long mCount;
+    }
+}
@@ -0,0 +1,161 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyCodecTest {
+
+    private static final String KEY = "key";
+    private static final String LINES_KEY = Model.class.getName() + "#mLines";
+
+    @Test
+    public void keepsValueEncodedUntilGet() {
+        final Model restored = restore(save(createModel()));
+
+        assertFalse(restored.mLines.isDecoded());
+        assertEquals(Arrays.asList("first", "second"), restored.mLines.get());
+        assertTrue(restored.mLines.isDecoded());
+    }
+
+    @Test
+    public void savesNotDecodedValueAsIs() {
+        final Bundle bundle = save(createModel());
+        final Model restored = restore(bundle);
+
+        assertSame(bundle.getByteArray(LINES_KEY), save(restored).getByteArray(LINES_KEY));
+        assertFalse(restored.mLines.isDecoded());
+    }
+
+    @Test
+    public void savesValueSetAfterRestore() {
+        final Model restored = restore(save(createModel()));
+
+        restored.mLines.set(new LinkedList<>(Arrays.asList("third")));
+
+        assertEquals(Arrays.asList("third"), restore(save(restored)).mLines.get());
+    }
+
+    @Test
+    public void decodesValueOnPrefetchExecutor() {
+        final Model restored = restore(save(createModel()));
+        final List<Runnable> tasks = new ArrayList<>();
+
+        restored.mLines.prefetch(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        assertEquals(1, tasks.size());
+        assertFalse(restored.mLines.isDecoded());
+
+        tasks.get(0).run();
+
+        assertTrue(restored.mLines.isDecoded());
+        assertEquals(Arrays.asList("first", "second"), restored.mLines.get());
+    }
+
+    @Test
+    public void decodesValueWithGivenClassLoader() {
+        final Bundle bundle = new Bundle();
+
+        bundle.putByteArray(KEY, Serialization.serialize(new ArrayList<>(Arrays.asList(new Value("value")))));
+
+        final RecordingClassLoader classLoader = new RecordingClassLoader();
+        final InjectLazy<?> lazy = (InjectLazy<?>) new LazyCodec(BundleCodecs.SERIALIZABLE)
+                .get(new BundleStateContainer(bundle), KEY, classLoader);
+
+        assertEquals(Arrays.asList(new Value("value")), lazy.get());
+        assertTrue(classLoader.mLoaded.contains(Value.class.getName()));
+    }
+
+    private static Model createModel() {
+        final Model model = new Model();
+
+        model.mLines.set(new LinkedList<>(Arrays.asList("first", "second")));
+
+        return model;
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, bundle);
+
+        return restored;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        InjectLazy<LinkedList<String>> mLines = new InjectLazy<>();
+    }
+
+    private static final class RecordingClassLoader extends ClassLoader {
+
+        private final Set<String> mLoaded = new HashSet<>();
+
+        RecordingClassLoader() {
+            super(LazyCodecTest.class.getClassLoader());
+        }
+
+        @Override
+        public Class<?> loadClass(final String name) throws ClassNotFoundException {
+            mLoaded.add(name);
+
+            return super.loadClass(name);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            mLoaded.add(name);
+
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    static final class Value implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String mText;
+
+        Value(final String text) {
+            mText = text;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Value && mText.equals(((Value) o).mText);
+        }
+
+        @Override
+        public int hashCode() {
+            return mText.hashCode();
+        }
+    }
+}
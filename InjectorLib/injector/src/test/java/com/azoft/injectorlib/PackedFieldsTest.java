@@ -0,0 +1,171 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackedFieldsTest {
+
+    private static final String PACKED_KEY = Model.class.getName() + "#[packed]";
+
+    @Test
+    public void packsPrimitiveFieldsToOneEntry() {
+        final Model model = new Model();
+
+        model.mFlag = true;
+        model.mChar = 'x';
+        model.mInt = 42;
+        model.mDouble = 0.5;
+        model.mInts = new int[]{1, 2, 3};
+        model.mLongs = new long[]{Long.MIN_VALUE};
+        model.mString = "value";
+
+        final Bundle bundle = save(model);
+
+        assertNotNull(bundle.getByteArray(PACKED_KEY));
+        assertFalse(bundle.containsKey(Model.class.getName() + "#mInt"));
+        // not packable field is saved separately
+        assertTrue(bundle.containsKey(Model.class.getName() + "#mString"));
+
+        final Model restored = restore(bundle);
+
+        assertTrue(restored.mFlag);
+        assertEquals('x', restored.mChar);
+        assertEquals(42, restored.mInt);
+        assertEquals(0.5, restored.mDouble, 0);
+        assertArrayEquals(new int[]{1, 2, 3}, restored.mInts);
+        assertArrayEquals(new long[]{Long.MIN_VALUE}, restored.mLongs);
+        assertEquals("value", restored.mString);
+    }
+
+    @Test
+    public void restoresNullAndEmptyArrays() {
+        final Model model = new Model();
+
+        model.mInts = null;
+        model.mLongs = new long[0];
+
+        final Model restored = restore(save(model));
+
+        assertNull(restored.mInts);
+        assertArrayEquals(new long[0], restored.mLongs);
+    }
+
+    @Test
+    public void skipsStateOfOtherSchema() {
+        final Model model = new Model();
+
+        model.mInt = 42;
+
+        final Bundle bundle = save(model);
+        final byte[] data = bundle.getByteArray(PACKED_KEY);
+
+        // schema hash of other field set
+        data[0] ^= 1;
+
+        final Model restored = restore(bundle);
+
+        assertEquals(0, restored.mInt);
+        assertArrayEquals(new int[]{7}, restored.mInts);
+    }
+
+    @Test
+    public void rejectsTruncatedState() {
+        final Bundle bundle = save(new Model());
+        final byte[] data = bundle.getByteArray(PACKED_KEY);
+
+        bundle.putByteArray(PACKED_KEY, Arrays.copyOf(data, data.length - 1));
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is corrupted"));
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedArrayLength() {
+        final Model model = new Model();
+
+        model.mLongs = null;
+
+        final Bundle bundle = save(model);
+        final byte[] data = bundle.getByteArray(PACKED_KEY);
+
+        // length of mInts is followed by its single element and -1 of null mLongs
+        data[data.length - 12] = (byte) 0x7f;
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is corrupted"));
+        }
+    }
+
+    @Test
+    public void rejectsArrayLengthLargerThanRemainingBytes() {
+        final Model model = new Model();
+
+        model.mLongs = new long[]{1, 2};
+
+        final Bundle bundle = save(model);
+        final byte[] data = bundle.getByteArray(PACKED_KEY);
+
+        // length of mLongs fits remaining 16 bytes as count of elements, but not as count of longs
+        data[data.length - 17] = 16;
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is corrupted"));
+        }
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        return restored;
+    }
+
+    @InjectPacked
+    static class Model {
+
+        @InjectSavedState
+        boolean mFlag;
+        @InjectSavedState
+        char mChar;
+        @InjectSavedState
+        int mInt;
+        @InjectSavedState
+        double mDouble;
+        @InjectSavedState
+        int[] mInts = {7};
+        @InjectSavedState
+        long[] mLongs;
+        @InjectSavedState
+        String mString;
+    }
+}
@@ -0,0 +1,211 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelSaveTest {
+
+    private static final String VALUE_KEY = Model.class.getName() + "#mValue";
+    private static final String OTHER_KEY = Model.class.getName() + "#mOther";
+    private static final String THREAD_NAME = "test-encoder";
+
+    private ExecutorService mExecutor;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        Injector.setParallelSave(false);
+        RecordingCodec.THREADS.clear();
+
+        if (null != mExecutor) {
+            mExecutor.shutdown();
+            mExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void encodesHeavyFieldsOnExecutor() {
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(runnable, THREAD_NAME);
+            }
+        });
+
+        final Bundle serial = save(createModel());
+
+        Injector.setParallelSave(mExecutor, 4);
+
+        final Injector injector = Injector.init(Model.class);
+        final Model model = createModel();
+
+        // size of encoded fields is known only after the first save
+        injector.applyOnSaveInstanceState(model, new Bundle());
+        RecordingCodec.THREADS.clear();
+
+        final Bundle parallel = new Bundle();
+
+        injector.applyOnSaveInstanceState(model, parallel);
+
+        assertEquals(Arrays.asList(THREAD_NAME, THREAD_NAME), RecordingCodec.THREADS);
+        assertArrayEquals(serial.getByteArray(VALUE_KEY), parallel.getByteArray(VALUE_KEY));
+        assertArrayEquals(serial.getByteArray(OTHER_KEY), parallel.getByteArray(OTHER_KEY));
+        assertEquals("text", parallel.getString(Model.class.getName() + "#mText"));
+
+        final Model restored = new Model();
+
+        injector.applyRestoreInstanceState(restored, parallel);
+
+        assertEquals(createModel().mValue, restored.mValue);
+        assertEquals(createModel().mOther, restored.mOther);
+    }
+
+    @Test
+    public void encodesLightFieldsOnSavingThread() {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        Injector.setParallelSave(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                tasks.add(command);
+                command.run();
+            }
+        }, 1024);
+
+        final Injector injector = Injector.init(Model.class);
+        final Model model = createModel();
+
+        injector.applyOnSaveInstanceState(model, new Bundle());
+        injector.applyOnSaveInstanceState(model, new Bundle());
+
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void throwsExceptionOfBackgroundEncoding() {
+        Injector.setParallelSave(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                command.run();
+            }
+        }, 1);
+
+        final Injector injector = Injector.init(Model.class);
+        final Model model = createModel();
+
+        injector.applyOnSaveInstanceState(model, new Bundle());
+        model.mValue = new Value(RecordingCodec.BROKEN);
+
+        try {
+            injector.applyOnSaveInstanceState(model, new Bundle());
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+
+    private static Model createModel() {
+        final Model model = new Model();
+
+        model.mValue = new Value(1, 2, 3, 4, 5);
+        model.mOther = new Value(6, 7, 8, 9, 10);
+        model.mText = "text";
+
+        return model;
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        return bundle;
+    }
+
+    static class Model {
+
+        @InjectSavedState(codec = RecordingCodec.class)
+        Value mValue;
+        @InjectSavedState(codec = RecordingCodec.class)
+        Value mOther;
+        @InjectSavedState
+        String mText;
+    }
+
+    static final class Value {
+
+        final byte[] mData;
+
+        Value(final int... data) {
+            mData = new byte[data.length];
+
+            for (int i = 0; i < data.length; i++) {
+                mData[i] = (byte) data[i];
+            }
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Value && Arrays.equals(mData, ((Value) o).mData);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(mData);
+        }
+    }
+
+    /**
+     * Records threads it encoded on.
+     */
+    public static final class RecordingCodec implements InjectCodec<Value> {
+
+        static final int BROKEN = -1;
+        static final List<String> THREADS = Collections.synchronizedList(new ArrayList<String>());
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Value value) {
+            if (value.mData.length > 0 && BROKEN == value.mData[0]) {
+                throw new UnsupportedOperationException("broken");
+            }
+
+            THREADS.add(Thread.currentThread().getName());
+
+            return value.mData.clone();
+        }
+
+        @NonNull
+        @Override
+        public Value decode(@NonNull final byte[] data) {
+            return new Value(toInts(data));
+        }
+
+        private static int[] toInts(final byte[] data) {
+            final int[] ints = new int[data.length];
+
+            for (int i = 0; i < data.length; i++) {
+                ints[i] = data[i];
+            }
+
+            return ints;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.azoft.injectorlib;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PreloadTest {
+
+    private RecordingMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        Injector.clearCache();
+
+        mMetrics = new RecordingMetrics();
+        Injector.setMetrics(mMetrics);
+    }
+
+    @After
+    public void tearDown() {
+        Injector.setMetrics(null);
+    }
+
+    @Test
+    public void collectsClassAndSuperclassesBeforeInit() {
+        Injector.preload(SubModel.class);
+
+        assertEquals(Arrays.<Class<?>>asList(SubModel.class, Model.class), mMetrics.mCollected);
+
+        Injector.init(SubModel.class);
+        Injector.init(Model.class);
+
+        assertEquals(Arrays.asList(true, true), mMetrics.mInits);
+        assertEquals(2, mMetrics.mCollected.size());
+    }
+
+    @Test
+    public void preloadsOnGivenExecutor() {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        Injector.preloadAsync(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                tasks.add(command);
+            }
+        }, Model.class);
+
+        assertEquals(1, tasks.size());
+        assertTrue(mMetrics.mCollected.isEmpty());
+
+        tasks.get(0).run();
+        Injector.init(Model.class);
+
+        assertEquals(Arrays.<Class<?>>asList(Model.class), mMetrics.mCollected);
+        assertEquals(Arrays.asList(true), mMetrics.mInits);
+    }
+
+    @Test
+    public void preloadsRemainingClassesAfterError() {
+        Injector.preloadAsync(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                command.run();
+            }
+        }, BrokenModel.class, Model.class);
+
+        Injector.init(Model.class);
+
+        assertEquals(Arrays.asList(true), mMetrics.mInits);
+
+        try {
+            Injector.init(BrokenModel.class);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not create InjectCodec"));
+        }
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        String mText;
+    }
+
+    static class SubModel extends Model {
+
+        @InjectSavedState
+        int mCount;
+    }
+
+    static class BrokenModel {
+
+        @InjectSavedState(codec = NoConstructorCodec.class)
+        String mText;
+    }
+
+    public static final class NoConstructorCodec implements InjectCodec<String> {
+
+        public NoConstructorCodec(final int unused) {
+        }
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final String value) {
+            return new byte[0];
+        }
+
+        @NonNull
+        @Override
+        public String decode(@NonNull final byte[] data) {
+            return "";
+        }
+    }
+
+    private static final class RecordingMetrics extends InjectorMetrics {
+
+        private final List<Boolean> mInits = new ArrayList<>();
+        private final List<Class<?>> mCollected = new ArrayList<>();
+
+        @Override
+        public void onClassCollected(@NonNull final Class<?> clazz, final boolean generated, final long durationNanos) {
+            mCollected.add(clazz);
+        }
+
+        @Override
+        public void onInit(@NonNull final Class<?> clazz, final boolean cached, final long durationNanos) {
+            mInits.add(cached);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveAccessorTest {
+
+    @Test
+    public void resolvesAccessorOnlyForPrimitiveTypes() {
+        assertSame(PrimitiveAccessor.INT, PrimitiveAccessor.forType(int.class));
+        assertNotNull(PrimitiveAccessor.forType(double.class));
+        assertNull(PrimitiveAccessor.forType(Integer.class));
+        assertNull(PrimitiveAccessor.forType(int[].class));
+        assertNull(PrimitiveAccessor.forType(void.class));
+    }
+
+    @Test
+    public void doesNotUseAccessorForFieldWithCodec() throws NoSuchFieldException {
+        final SavedField savedField = new SavedField(Model.class.getDeclaredField("mCoded"),
+                Model.class.getDeclaredField("mCoded").getAnnotation(InjectSavedState.class));
+
+        assertNull(savedField.getPrimitiveAccessor());
+    }
+
+    @Test
+    public void restoresPrimitiveFieldsFromBundle() {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(createModel(), bundle);
+
+        assertEquals(Integer.MIN_VALUE, bundle.getInt(Model.class.getName() + "#mInt"));
+
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, bundle);
+
+        assertModel(restored);
+    }
+
+    @Test
+    public void restoresPrimitiveFieldsFromParcel() {
+        final Injector injector = Injector.init(Model.class);
+        final Parcel parcel = Parcel.obtain();
+
+        injector.writeToParcel(createModel(), parcel);
+        parcel.setDataPosition(0);
+
+        final Model restored = new Model();
+
+        injector.readFromParcel(restored, parcel);
+
+        assertModel(restored);
+    }
+
+    @Test
+    public void keepsPrimitiveFieldMissingInState() {
+        final Model restored = new Model();
+
+        restored.mInt = 5;
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new Bundle());
+
+        assertEquals(5, restored.mInt);
+    }
+
+    private static Model createModel() {
+        final Model model = new Model();
+
+        model.mBoolean = true;
+        model.mByte = Byte.MIN_VALUE;
+        model.mChar = Character.MAX_VALUE;
+        model.mShort = Short.MIN_VALUE;
+        model.mInt = Integer.MIN_VALUE;
+        model.mLong = Long.MAX_VALUE;
+        model.mFloat = Float.NaN;
+        model.mDouble = -0.0;
+        model.mCoded = 42;
+
+        return model;
+    }
+
+    private static void assertModel(final Model model) {
+        assertTrue(model.mBoolean);
+        assertEquals(Byte.MIN_VALUE, model.mByte);
+        assertEquals(Character.MAX_VALUE, model.mChar);
+        assertEquals(Short.MIN_VALUE, model.mShort);
+        assertEquals(Integer.MIN_VALUE, model.mInt);
+        assertEquals(Long.MAX_VALUE, model.mLong);
+        assertTrue(Float.isNaN(model.mFloat));
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(model.mDouble));
+        assertEquals(42, model.mCoded);
+        assertFalse(model.mUnsaved);
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        boolean mBoolean;
+        @InjectSavedState
+        byte mByte;
+        @InjectSavedState
+        char mChar;
+        @InjectSavedState
+        short mShort;
+        @InjectSavedState
+        int mInt;
+        @InjectSavedState
+        long mLong;
+        @InjectSavedState
+        float mFloat;
+        @InjectSavedState
+        double mDouble;
+        @InjectSavedState(codec = IntCodec.class)
+        int mCoded;
+        boolean mUnsaved;
+    }
+
+    public static final class IntCodec implements InjectCodec<Integer> {
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Integer value) {
+            return new byte[]{value.byteValue()};
+        }
+
+        @NonNull
+        @Override
+        public Integer decode(@NonNull final byte[] data) {
+            return (int) data[0];
+        }
+    }
+}
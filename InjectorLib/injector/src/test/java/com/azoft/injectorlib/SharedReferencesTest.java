@@ -0,0 +1,148 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SharedReferencesTest {
+
+    @Test
+    public void savesInstanceOfSeveralFieldsOnce() {
+        final Node node = new Node(1);
+        final Model model = new Model();
+
+        model.mFirst = node;
+        model.mSecond = node;
+
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        assertEquals(1, bundle.getBundle(SharedReferences.TABLE_KEY).size());
+
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, copy(bundle));
+
+        assertEquals(1, restored.mFirst.mX);
+        assertSame(restored.mFirst, restored.mSecond);
+    }
+
+    @Test
+    public void keepsDifferentInstancesWithEqualValuesApart() {
+        final Model model = new Model();
+
+        model.mFirst = new Node(1);
+        model.mSecond = new Node(1);
+
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, copy(bundle));
+
+        assertEquals(2, bundle.getBundle(SharedReferences.TABLE_KEY).size());
+        assertNotSame(restored.mFirst, restored.mSecond);
+    }
+
+    @Test
+    public void rebuildsIdentityBetweenModelsAfterProcessDeath() {
+        final Node node = new Node(2);
+        final Model model = new Model();
+        final OtherModel otherModel = new OtherModel();
+
+        model.mFirst = node;
+        otherModel.mNode = node;
+
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, bundle);
+        Injector.init(OtherModel.class).applyOnSaveInstanceState(otherModel, bundle);
+
+        // restored Bundle holds new instances of nested Bundles, as after unparceling
+        final Bundle restoredBundle = copy(bundle);
+        final Model restored = new Model();
+        final OtherModel otherRestored = new OtherModel();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, restoredBundle);
+        Injector.init(OtherModel.class).applyRestoreInstanceState(otherRestored, restoredBundle);
+
+        assertNotSame(node, restored.mFirst);
+        assertEquals(2, restored.mFirst.mX);
+        assertSame(restored.mFirst, otherRestored.mNode);
+
+        final Model restoredAgain = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restoredAgain, copy(bundle));
+
+        assertNotSame(restored.mFirst, restoredAgain.mFirst);
+    }
+
+    /**
+     * Copies nested Bundles and byte arrays, the only mutable values of this test.
+     */
+    private static Bundle copy(final Bundle bundle) {
+        final Bundle copy = new Bundle();
+
+        for (final String key : bundle.keySet()) {
+            final Object value = bundle.get(key);
+
+            if (value instanceof Bundle) {
+                copy.putBundle(key, copy((Bundle) value));
+            } else if (value instanceof byte[]) {
+                copy.putByteArray(key, ((byte[]) value).clone());
+            } else if (value instanceof String) {
+                copy.putString(key, (String) value);
+            } else {
+                throw new IllegalStateException("Unexpected value: " + value);
+            }
+        }
+
+        return copy;
+    }
+
+    static class Model {
+
+        @InjectSavedState(codec = NodeCodec.class, shared = true)
+        Node mFirst;
+        @InjectSavedState(codec = NodeCodec.class, shared = true)
+        Node mSecond;
+    }
+
+    static class OtherModel {
+
+        @InjectSavedState(codec = NodeCodec.class, shared = true)
+        Node mNode;
+    }
+
+    static final class Node {
+
+        final int mX;
+
+        Node(final int x) {
+            mX = x;
+        }
+    }
+
+    public static final class NodeCodec implements InjectCodec<Node> {
+
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull final Node value) {
+            return new byte[]{(byte) value.mX};
+        }
+
+        @NonNull
+        @Override
+        public Node decode(@NonNull final byte[] data) {
+            return new Node(data[0]);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.azoft.injectorlib;
+
+import android.app.Fragment;
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TagSuffixesTest {
+
+    @Test
+    public void buildsSuffixOfFragmentFromTagAndId() {
+        final ModelFragment fragment = new ModelFragment();
+
+        fragment.setTagAndId("list", 7);
+        assertEquals(":list:7", Injector.getSaveStateTagSuffix(fragment));
+
+        fragment.setTagAndId(null, 3);
+        assertEquals(":3", Injector.getSaveStateTagSuffix(fragment));
+    }
+
+    @Test
+    public void buildsSuffixFromSaveStateTag() {
+        assertEquals(":first", Injector.getSaveStateTagSuffix(new TaggedModel("first")));
+        assertEquals("", Injector.getSaveStateTagSuffix(new Object()));
+    }
+
+    @Test
+    public void keepsStateOfFragmentInstancesApart() {
+        final ModelFragment first = new ModelFragment();
+        final ModelFragment second = new ModelFragment();
+        final Bundle bundle = new Bundle();
+
+        first.setTagAndId("first", 1);
+        first.mText = "first";
+        second.setTagAndId("second", 1);
+        second.mText = "second";
+
+        Injector.init(ModelFragment.class).applyOnSaveInstanceState(first, bundle);
+        Injector.init(ModelFragment.class).applyOnSaveInstanceState(second, bundle);
+
+        assertTrue(bundle.containsKey(ModelFragment.class.getName() + "#mText:first:1"));
+
+        final ModelFragment restored = new ModelFragment();
+
+        restored.setTagAndId("second", 1);
+        Injector.init(ModelFragment.class).applyRestoreInstanceState(restored, bundle);
+
+        assertEquals("second", restored.mText);
+    }
+
+    @Test
+    public void keepsCustomTagWithoutSuffix() {
+        final TaggedModel model = new TaggedModel("first");
+        final Bundle bundle = new Bundle();
+
+        model.mShared = "value";
+        Injector.init(TaggedModel.class).applyOnSaveInstanceState(model, bundle);
+
+        assertEquals("value", bundle.getString("shared"));
+
+        final TaggedModel restored = new TaggedModel("second");
+
+        Injector.init(TaggedModel.class).applyRestoreInstanceState(restored, bundle);
+
+        assertEquals("value", restored.mShared);
+    }
+
+    public static class ModelFragment extends Fragment {
+
+        @InjectSavedState
+        String mText;
+    }
+
+    static class TaggedModel implements InjectSaveStateTag {
+
+        private final String mTag;
+
+        @InjectSavedState("shared")
+        String mShared;
+
+        TaggedModel(final String tag) {
+            mTag = tag;
+        }
+
+        @Override
+        public String getSaveStateTag() {
+            return mTag;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.azoft.injectorlib;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValueTypeCodecTest {
+
+    private static final String POINT_KEY = Model.class.getName() + "#mPoint";
+    private static final String KIND_KEY = Model.class.getName() + "#mKindHolder";
+
+    @Test
+    public void restoresNestedValueTypes() {
+        final Model model = new Model();
+
+        model.mPoint = new Point();
+        model.mPoint.mX = 3;
+        model.mPoint.mBoxed = 5L;
+        model.mPoint.mName = "first";
+        model.mPoint.mKind = Kind.SECOND;
+        model.mPoint.mInts = new int[]{1, 2};
+        model.mPoint.mTags = new String[]{"a", null};
+        model.mPoint.mNext = new Point();
+        model.mPoint.mNext.mX = 4;
+
+        final Bundle bundle = save(model);
+
+        assertTrue(bundle.get(POINT_KEY) instanceof byte[]);
+
+        final Point restored = restore(bundle).mPoint;
+
+        assertEquals(3, restored.mX);
+        assertEquals(Long.valueOf(5), restored.mBoxed);
+        assertEquals("first", restored.mName);
+        assertSame(Kind.SECOND, restored.mKind);
+        assertArrayEquals(new int[]{1, 2}, restored.mInts);
+        assertArrayEquals(new String[]{"a", null}, restored.mTags);
+        assertEquals(4, restored.mNext.mX);
+        assertNull(restored.mNext.mNext);
+    }
+
+    @Test
+    public void restoresNullAndEmptyFields() {
+        final Model model = new Model();
+
+        model.mPoint = new Point();
+        model.mPoint.mName = "";
+        model.mPoint.mInts = new int[0];
+        model.mPoint.mTags = new String[0];
+
+        final Point restored = restore(save(model)).mPoint;
+
+        assertEquals("", restored.mName);
+        assertArrayEquals(new int[0], restored.mInts);
+        assertArrayEquals(new String[0], restored.mTags);
+        assertNull(restored.mBoxed);
+        assertNull(restored.mKind);
+        assertNull(restored.mNext);
+    }
+
+    @Test
+    public void savesSubclassAsSerializable() {
+        final Model model = new Model();
+
+        model.mPoint = new SubPoint();
+        model.mPoint.mX = 8;
+
+        final Bundle bundle = save(model);
+        final Point restored = restore(bundle).mPoint;
+
+        assertTrue(restored instanceof SubPoint);
+        assertEquals(8, restored.mX);
+    }
+
+    @Test
+    public void restoresValueSavedBeforeValueTypeFormat() {
+        final Point point = new Point();
+        final Bundle bundle = new Bundle();
+
+        point.mName = "serialized";
+        bundle.putByteArray(POINT_KEY, Serialization.serialize(point));
+
+        assertEquals("serialized", restore(bundle).mPoint.mName);
+    }
+
+    @Test
+    public void rejectsStateOfOtherLayout() {
+        final Model model = new Model();
+
+        model.mPoint = new Point();
+
+        final Bundle bundle = save(model);
+
+        // layout hash follows the format byte
+        ((byte[]) bundle.get(POINT_KEY))[1] ^= 1;
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("was written with other fields"));
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedState() {
+        final Model model = new Model();
+
+        model.mPoint = new Point();
+        model.mPoint.mName = "name";
+
+        final Bundle bundle = save(model);
+        final byte[] data = (byte[]) bundle.get(POINT_KEY);
+
+        bundle.putByteArray(POINT_KEY, Arrays.copyOf(data, data.length - 1));
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is corrupted"));
+        }
+    }
+
+    @Test
+    public void rejectsUnknownEnumConstant() {
+        final Model model = new Model();
+
+        model.mKindHolder = new KindHolder();
+        model.mKindHolder.mKind = Kind.FIRST;
+
+        final Bundle bundle = save(model);
+        final byte[] data = (byte[]) bundle.get(KIND_KEY);
+
+        // last byte of the constant name
+        data[data.length - 1] = '?';
+
+        try {
+            restore(bundle);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is corrupted"));
+        }
+    }
+
+    private static Bundle save(final Model model) {
+        final Bundle bundle = new Bundle();
+
+        Injector.init(Model.class).applyOnSaveInstanceState(model, new BundleStateContainer(bundle));
+
+        return bundle;
+    }
+
+    private static Model restore(final Bundle bundle) {
+        final Model restored = new Model();
+
+        Injector.init(Model.class).applyRestoreInstanceState(restored, new BundleStateContainer(bundle));
+
+        return restored;
+    }
+
+    enum Kind {
+        FIRST, SECOND
+    }
+
+    @InjectValueType
+    static class Point implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        int mX;
+        Long mBoxed;
+        String mName;
+        Kind mKind;
+        int[] mInts;
+        String[] mTags;
+        Point mNext;
+    }
+
+    static class SubPoint extends Point {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    @InjectValueType
+    static class KindHolder {
+
+        Kind mKind;
+    }
+
+    static class Model {
+
+        @InjectSavedState
+        Point mPoint;
+        @InjectSavedState
+        KindHolder mKindHolder;
+    }
+}
@@ -9,11 +9,10 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.azoft.injectorlib.InjectSavedState;
+import com.azoft.injectorlib.InjectValueType;
 import com.azoft.injectorlib.Injector;
 import com.azoft.injectorlib.sample.databinding.FragmentInjectSampleBinding;
 
-import java.io.Serializable;
-
 public class InjectSampleFragment extends Fragment {
 
     private final Injector mInjector = Injector.init(getClass());
@@ -70,9 +69,8 @@ public class InjectSampleFragment extends Fragment {
         mBinding = null;
     }
 
-    private static class InnerDataClass implements Serializable {
-
-        private static final long serialVersionUID = 1283013520874243839L;
+    @InjectValueType
+    private static class InnerDataClass {
 
         private int mValue;
     }